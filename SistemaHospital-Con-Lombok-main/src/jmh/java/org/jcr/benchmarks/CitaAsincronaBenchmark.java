@@ -0,0 +1,104 @@
+package org.jcr.benchmarks;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Departamento;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Paciente;
+import org.jcr.excepciones.CitaException;
+import org.jcr.servicios.CitaManager;
+import org.jcr.servicios.CitaManagerAsincrono;
+import org.jcr.simulacion.GeneradorHospital;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// Lote de reservas seguidas de una etapa posterior bloqueante (como escribir un diario).
+// "sincronico" encadena programarCita y la etapa en el hilo llamador;
+// "asincronico" usa CitaManagerAsincrono y espera todos los futuros al final.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CitaAsincronaBenchmark {
+    @Param({"500"})
+    int reservas;
+
+    @Param({"100"})
+    long etapaMicros;
+
+    private CitaManager manager;
+    private CitaManagerAsincrono asincrono;
+    private Departamento departamento;
+    private List<Paciente> pacientes;
+    private LocalDateTime siguiente;
+    private Consumer<Cita> etapaPosterior;
+    private final BigDecimal costo = new BigDecimal("50000.00");
+
+    @Setup(Level.Iteration)
+    public void preparar() {
+        Hospital hospital = new GeneradorHospital(42).generarHospital(1, 4, 4, 1_000);
+        departamento = hospital.getDepartamentos().get(0);
+        pacientes = hospital.getPacientes();
+        manager = new CitaManager();
+        manager.registrarHospital(hospital);
+        long espera = TimeUnit.MICROSECONDS.toNanos(etapaMicros);
+        etapaPosterior = cita -> LockSupport.parkNanos(espera);
+        asincrono = new CitaManagerAsincrono(manager);
+        asincrono.agregarEtapaPosterior(etapaPosterior);
+        siguiente = LocalDate.now().plusDays(1).atTime(8, 0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void cerrar() {
+        asincrono.close();
+    }
+
+    @Benchmark
+    public int sincronico() throws CitaException {
+        int programadas = 0;
+        for (int i = 0; i < reservas; i++) {
+            int par = i % departamento.getMedicos().size();
+            Cita cita = manager.programarCita(pacientes.get(i % pacientes.size()), departamento.getMedicos().get(par),
+                    departamento.getSalas().get(par), horario(par), costo);
+            etapaPosterior.accept(cita);
+            programadas++;
+        }
+        return programadas;
+    }
+
+    @Benchmark
+    public int asincronico() {
+        List<CompletableFuture<Cita>> pendientes = new ArrayList<>(reservas);
+        for (int i = 0; i < reservas; i++) {
+            int par = i % departamento.getMedicos().size();
+            pendientes.add(asincrono.programarCita(pacientes.get(i % pacientes.size()), departamento.getMedicos().get(par),
+                    departamento.getSalas().get(par), horario(par), costo));
+        }
+        CompletableFuture.allOf(pendientes.toArray(new CompletableFuture<?>[0])).join();
+        return pendientes.size();
+    }
+
+    // Cada par médico-sala avanza por su lado; al cerrar una vuelta de pares se corre el horario
+    private LocalDateTime horario(int par) {
+        if (par == 0) {
+            siguiente = siguiente.plus(CitaManager.BLOQUEO_POR_CITA);
+        }
+        return siguiente;
+    }
+}
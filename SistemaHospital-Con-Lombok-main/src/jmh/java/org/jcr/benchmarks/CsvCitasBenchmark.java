@@ -0,0 +1,102 @@
+package org.jcr.benchmarks;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+import org.jcr.excepciones.CitaException;
+import org.jcr.servicios.CitaManager;
+import org.jcr.simulacion.GeneradorHospital;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Serialización CSV de una cita y guardado/carga completos de un CitaManager
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CsvCitasBenchmark {
+    @Param({"1000", "10000"})
+    int cantidad;
+
+    private CitaManager manager;
+    private CitaManager managerCarga;
+    private List<Cita> citas;
+    private String[] lineas;
+    private Map<String, Paciente> pacientes;
+    private Map<String, Medico> medicos;
+    private Map<String, Sala> salas;
+    private Path archivoGuardado;
+    private Path archivoCarga;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() throws CitaException, IOException {
+        GeneradorHospital generador = new GeneradorHospital(11);
+        Hospital hospital = generador.generarHospital(6, 4, 4, 2_000);
+        manager = new CitaManager();
+        manager.registrarHospital(hospital);
+        citas = generador.programarCitas(manager, hospital, cantidad, LocalDate.now().plusDays(1).atTime(8, 0));
+
+        lineas = new String[citas.size()];
+        for (int i = 0; i < lineas.length; i++) {
+            lineas[i] = citas.get(i).toCsvString();
+        }
+        pacientes = GeneradorHospital.pacientesPorDni(hospital);
+        medicos = GeneradorHospital.medicosPorDni(hospital);
+        salas = GeneradorHospital.salasPorNumero(hospital);
+
+        archivoGuardado = Files.createTempFile("citas-guardado-", ".csv");
+        archivoCarga = Files.createTempFile("citas-carga-", ".csv");
+        manager.guardarCitas(archivoCarga.toString());
+        managerCarga = new CitaManager();
+        managerCarga.registrarHospital(hospital);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException {
+        Files.deleteIfExists(archivoGuardado);
+        Files.deleteIfExists(archivoCarga);
+    }
+
+    @Benchmark
+    public String toCsvString() {
+        siguiente = (siguiente + 1) % lineas.length;
+        return citas.get(siguiente).toCsvString();
+    }
+
+    @Benchmark
+    public Cita fromCsvString() throws CitaException {
+        siguiente = (siguiente + 1) % lineas.length;
+        return Cita.fromCsvString(lineas[siguiente], pacientes, medicos, salas);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void guardarCitas() throws IOException {
+        manager.guardarCitas(archivoGuardado.toString());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CitaManager cargarCitas() throws IOException, ClassNotFoundException, CitaException {
+        managerCarga.cargarCitas(archivoCarga.toString(), pacientes, medicos, salas);
+        return managerCarga;
+    }
+}
@@ -0,0 +1,103 @@
+package org.jcr.benchmarks;
+
+import org.jcr.entidades.Departamento;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Medico;
+import org.jcr.excepciones.CitaException;
+import org.jcr.servicios.CitaManager;
+import org.jcr.servicios.EjecutorSolicitudesCitas;
+import org.jcr.simulacion.GeneradorHospital;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Ráfaga de consultas de agenda con una espera bloqueante simulada (como un flush a disco) por solicitud.
+// PLATAFORMA es el pool de respaldo del ejecutor (200 hilos de plataforma), que es lo que se usa con
+// Java 17; FIJO es un pool del tamaño de la cantidad de procesadores, donde la espera bloquea al hilo.
+// VIRTUAL es el ejecutor por defecto con hilos virtuales (Java 21 o posterior). En una JVM sin
+// newVirtualThreadPerTaskExecutor ese caso se omite: preparar() lo corta y JMH sigue con los demás
+// (sin -foe true) y lo deja fuera de la tabla de resultados.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EjecutorSolicitudesBenchmark {
+    @Param({"VIRTUAL", "PLATAFORMA", "FIJO"})
+    String ejecutor;
+
+    @Param({"2000"})
+    int solicitudes;
+
+    @Param({"200"})
+    long esperaMicros;
+
+    private EjecutorSolicitudesCitas solicitudesCitas;
+    private List<Medico> medicos;
+    private LocalDate dia;
+
+    @Setup
+    public void preparar() throws CitaException, InterruptedException {
+        GeneradorHospital generador = new GeneradorHospital(42);
+        CitaManager manager = new CitaManager();
+        medicos = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Hospital hospital = generador.generarHospital(4, 4, 4, 500);
+            manager.registrarHospital(hospital);
+            generador.programarCitas(manager, hospital, 2_000, LocalDate.now().plusDays(1).atTime(8, 0));
+            for (Departamento departamento : hospital.getDepartamentos()) {
+                medicos.addAll(departamento.getMedicos());
+            }
+        }
+        dia = LocalDate.now().plusDays(1);
+        int permisos = EjecutorSolicitudesCitas.PERMISOS_POR_DEFECTO;
+        solicitudesCitas = switch (ejecutor) {
+            case "VIRTUAL" -> new EjecutorSolicitudesCitas(manager, permisos);
+            case "PLATAFORMA" -> new EjecutorSolicitudesCitas(manager, permisos,
+                    Executors.newFixedThreadPool(EjecutorSolicitudesCitas.HILOS_PLATAFORMA_POR_DEFECTO));
+            case "FIJO" -> new EjecutorSolicitudesCitas(manager, permisos,
+                    Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
+            default -> throw new IllegalArgumentException("Ejecutor desconocido: " + ejecutor);
+        };
+        if (ejecutor.equals("VIRTUAL") && !solicitudesCitas.isVirtual()) {
+            solicitudesCitas.close();
+            throw new IllegalStateException("Se omite VIRTUAL: esta JVM no tiene hilos virtuales (requiere Java 21 o posterior)");
+        }
+    }
+
+    @TearDown
+    public void cerrar() throws InterruptedException {
+        solicitudesCitas.close();
+    }
+
+    @Benchmark
+    public int rafagaDeAgendas() {
+        long espera = TimeUnit.MICROSECONDS.toNanos(esperaMicros);
+        List<CompletableFuture<Integer>> pendientes = new ArrayList<>(solicitudes);
+        for (int i = 0; i < solicitudes; i++) {
+            Medico medico = medicos.get(i % medicos.size());
+            pendientes.add(solicitudesCitas.enviar(medico.getDepartamento().getHospital(), servicio -> {
+                int cantidad = servicio.getAgendaMedico(medico, dia).size();
+                LockSupport.parkNanos(espera);
+                return cantidad;
+            }));
+        }
+        int total = 0;
+        for (CompletableFuture<Integer> pendiente : pendientes) {
+            total += pendiente.join();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,57 @@
+package org.jcr.benchmarks;
+
+import org.jcr.entidades.Paciente;
+import org.jcr.repositorio.InMemoryRepository;
+import org.jcr.simulacion.GeneradorHospital;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Alta masiva en InMemoryRepository. "guardarLoteConConsola" reproduce el println por alta que
+// hacía save antes de pasar a SLF4J, como línea de base para medir la mejora.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GuardadoMasivoBenchmark {
+    @Param({"10000"})
+    int lote;
+
+    private List<Paciente> pacientes;
+
+    @Setup
+    public void preparar() {
+        GeneradorHospital generador = new GeneradorHospital(5);
+        pacientes = new ArrayList<>(lote);
+        for (int i = 0; i < lote; i++) {
+            pacientes.add(generador.generarPaciente());
+        }
+    }
+
+    @Benchmark
+    public InMemoryRepository<Paciente> guardarLote() {
+        InMemoryRepository<Paciente> repositorio = new InMemoryRepository<>();
+        for (Paciente paciente : pacientes) {
+            repositorio.save(paciente);
+        }
+        return repositorio;
+    }
+
+    @Benchmark
+    public InMemoryRepository<Paciente> guardarLoteConConsola() {
+        InMemoryRepository<Paciente> repositorio = new InMemoryRepository<>();
+        for (Paciente paciente : pacientes) {
+            repositorio.save(paciente);
+            System.out.println(paciente.getClass().getName() + "   id :" + paciente.getId());
+        }
+        return repositorio;
+    }
+}
@@ -0,0 +1,47 @@
+package org.jcr.benchmarks;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Paciente;
+import org.jcr.excepciones.CitaException;
+import org.jcr.servicios.CitaManager;
+import org.jcr.simulacion.GeneradorHospital;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Paciente.getCitas copia la lista en cada llamada: el costo crece con las citas del paciente
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PacienteBenchmark {
+    @Param({"10", "1000", "10000"})
+    int citasPorPaciente;
+
+    private Paciente paciente;
+
+    @Setup(Level.Trial)
+    public void preparar() throws CitaException {
+        GeneradorHospital generador = new GeneradorHospital(3);
+        Hospital hospital = generador.generarHospital(4, 2, 2, 1);
+        CitaManager manager = new CitaManager();
+        manager.registrarHospital(hospital);
+        generador.programarCitas(manager, hospital, citasPorPaciente, LocalDate.now().plusDays(1).atTime(8, 0));
+        paciente = hospital.getPacientes().get(0);
+    }
+
+    @Benchmark
+    public List<Cita> getCitas() {
+        return paciente.getCitas();
+    }
+}
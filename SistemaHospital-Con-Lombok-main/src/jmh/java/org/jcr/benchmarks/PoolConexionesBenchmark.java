@@ -0,0 +1,94 @@
+package org.jcr.benchmarks;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Costo de conseguir una conexión en operaciones cortas: obtenerla, un SELECT por clave con JDBC
+// y devolverla, contra una base H2 en archivo propia del benchmark (una tabla de 1.000 filas).
+// No pasa por Hibernate ni por la unidad HotelPU: solo compara abrir una conexión JDBC por
+// operación (SIN_POOL) con pedirla a un HikariCP configurado con el tamaño de pool de
+// persistence.xml (HIKARI: 16 conexiones, 4 ociosas como mínimo).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class PoolConexionesBenchmark {
+    private static final int FILAS = 1_000;
+
+    @Param({"SIN_POOL", "HIKARI"})
+    String conexiones;
+
+    private Path directorio;
+    private String url;
+    private HikariDataSource pool;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException, SQLException {
+        directorio = Files.createTempDirectory("pool-bench");
+        // DB_CLOSE_DELAY=-1: la base queda abierta entre conexiones, así solo se mide la conexión
+        url = "jdbc:h2:file:" + directorio.resolve("bench").toAbsolutePath() + ";DB_CLOSE_DELAY=-1";
+        try (Connection conexion = DriverManager.getConnection(url, "sa", "");
+             Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("CREATE TABLE paciente (id INT PRIMARY KEY, dni VARCHAR(16))");
+            for (int i = 0; i < FILAS; i++) {
+                sentencia.execute("INSERT INTO paciente VALUES (" + i + ", 'DNI" + i + "')");
+            }
+        }
+        if (conexiones.equals("HIKARI")) {
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl(url);
+            config.setUsername("sa");
+            config.setPassword("");
+            config.setPoolName("HospitalPool-bench");
+            config.setMaximumPoolSize(16);
+            config.setMinimumIdle(4);
+            config.setConnectionTimeout(5000);
+            pool = new HikariDataSource(config);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws SQLException {
+        if (pool != null) {
+            pool.close();
+        }
+        try (Connection conexion = DriverManager.getConnection(url, "sa", "");
+             Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("SHUTDOWN");
+        }
+    }
+
+    @Benchmark
+    public String consultaCorta() throws SQLException {
+        try (Connection conexion = pool != null ? pool.getConnection() : DriverManager.getConnection(url, "sa", "");
+             PreparedStatement consulta = conexion.prepareStatement("SELECT dni FROM paciente WHERE id = ?")) {
+            consulta.setInt(1, ThreadLocalRandom.current().nextInt(FILAS));
+            try (ResultSet resultado = consulta.executeQuery()) {
+                return resultado.next() ? resultado.getString(1) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.jcr.benchmarks;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Departamento;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+import org.jcr.excepciones.CitaException;
+import org.jcr.servicios.CitaManager;
+import org.jcr.simulacion.GeneradorHospital;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Costo de programarCita según cuántas citas tiene ya el CitaManager y el índice de ocupación usado
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProgramarCitaBenchmark {
+    @Param({"0", "1000", "10000", "100000"})
+    int historial;
+
+    @Param({"ORDENADA", "SLOTS_15_MINUTOS"})
+    CitaManager.ModoOcupacion modo;
+
+    private CitaManager manager;
+    private Paciente paciente;
+    private Medico medico;
+    private Sala sala;
+    private LocalDateTime siguiente;
+    private final BigDecimal costo = new BigDecimal("50000.00");
+
+    // Se rehace en cada iteración para que el historial no crezca con las invocaciones
+    @Setup(Level.Iteration)
+    public void preparar() throws CitaException {
+        GeneradorHospital generador = new GeneradorHospital(42);
+        Hospital hospital = generador.generarHospital(6, 4, 4, 1_000);
+        manager = new CitaManager(modo);
+        manager.registrarHospital(hospital);
+        LocalDateTime inicio = LocalDate.now().plusDays(1).atTime(8, 0);
+        generador.programarCitas(manager, hospital, historial, inicio);
+
+        Departamento departamento = hospital.getDepartamentos().get(0);
+        paciente = hospital.getPacientes().get(0);
+        medico = departamento.getMedicos().get(0);
+        sala = departamento.getSalas().get(0);
+        // Después de todo el historial generado, así nunca hay conflicto
+        siguiente = inicio.plusYears(200);
+    }
+
+    @Benchmark
+    public Cita programarCita() throws CitaException {
+        siguiente = siguiente.plus(CitaManager.BLOQUEO_POR_CITA);
+        return manager.programarCita(paciente, medico, sala, siguiente, costo);
+    }
+}
@@ -0,0 +1,71 @@
+package org.jcr.benchmarks;
+
+import org.jcr.entidades.Paciente;
+import org.jcr.repositorio.InMemoryRepository;
+import org.jcr.simulacion.GeneradorHospital;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// save, findById y genericFindByField de InMemoryRepository con distintos tamaños
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RepositorioBenchmark {
+    @Param({"1000", "100000"})
+    int tamanio;
+
+    private InMemoryRepository<Paciente> repositorio;
+    private InMemoryRepository<Paciente> repositorioEscritura;
+    private List<Paciente> pacientes;
+    private String dniBuscado;
+    private long siguienteId;
+    private int siguientePaciente;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        GeneradorHospital generador = new GeneradorHospital(7);
+        pacientes = new ArrayList<>(tamanio);
+        repositorio = new InMemoryRepository<>();
+        for (int i = 0; i < tamanio; i++) {
+            Paciente paciente = generador.generarPaciente();
+            pacientes.add(paciente);
+            repositorio.save(paciente);
+        }
+        dniBuscado = pacientes.get(tamanio / 2).getDni();
+    }
+
+    @Setup(Level.Iteration)
+    public void reiniciarEscritura() {
+        repositorioEscritura = new InMemoryRepository<>();
+    }
+
+    @Benchmark
+    public Paciente save() {
+        Paciente paciente = pacientes.get(siguientePaciente);
+        siguientePaciente = (siguientePaciente + 1) % tamanio;
+        return repositorioEscritura.save(paciente);
+    }
+
+    @Benchmark
+    public Optional<Paciente> findById() {
+        siguienteId = siguienteId % tamanio + 1;
+        return repositorio.findById(siguienteId);
+    }
+
+    @Benchmark
+    public List<Paciente> genericFindByField() {
+        return repositorio.genericFindByField("dni", dniBuscado);
+    }
+}
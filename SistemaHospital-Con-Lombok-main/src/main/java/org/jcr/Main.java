@@ -1,11 +1,22 @@
 package org.jcr;
 
+import org.jcr.busqueda.IndiceClinico;
+import org.jcr.busqueda.VerificadorAlergias;
 import org.jcr.repositorio.InMemoryRepository;
 import org.jcr.entidades.*;
 import org.jcr.enums.*;
+import org.jcr.estadisticas.EstadisticasHospital;
+import org.jcr.excepciones.AlergiaException;
 import org.jcr.excepciones.CitaException;
+import org.jcr.reportes.GeneradorReportes;
 import org.jcr.servicios.CitaManager;
+import org.jcr.servicios.HuecoLibre;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -33,10 +44,14 @@ public class Main{
 
             // 4. Programar citas médicas CON REPOSITORY
             CitaManager citaManager = new CitaManager();
+            citaManager.registrarHospital(hospital);
             programarCitasConRepository(citaManager, medicos, pacientes, hospital);
+            mostrarHuecosLibres(citaManager);
 
             // 5. Mostrar información del sistema
             mostrarInformacionCompleta(hospital, citaManager);
+            mostrarBusquedaClinica(hospital);
+            mostrarChequeoAlergias(hospital, pacientes.get(0));
 
             // 6. Mostrar datos con IDs del repository
             mostrarDatosConRepository();
@@ -178,7 +193,7 @@ public class Main{
         return medicos;
     }
 
-    private static List<Paciente> registrarPacientes(Hospital hospital) {
+    private static List<Paciente> registrarPacientes(Hospital hospital) throws AlergiaException {
         System.out.println("Registrando pacientes...");
 
         List<Paciente> pacientes = new ArrayList<>();
@@ -236,7 +251,7 @@ public class Main{
         return pacientes;
     }
 
-    private static void configurarHistoriasClinicas(Paciente pacienteCardiaco, Paciente pacientePediatrico, Paciente pacienteTraumatologico) {
+    private static void configurarHistoriasClinicas(Paciente pacienteCardiaco, Paciente pacientePediatrico, Paciente pacienteTraumatologico) throws AlergiaException {
         // Historia clínica del paciente cardíaco
         pacienteCardiaco.getHistoriaClinica().agregarDiagnostico("Hipertensión arterial");
         pacienteCardiaco.getHistoriaClinica().agregarTratamiento("Enalapril 10mg");
@@ -314,6 +329,46 @@ public class Main{
         }
     }
 
+    private static void mostrarHuecosLibres(CitaManager citaManager) {
+        System.out.println("Próximos huecos libres en Cardiología:");
+        LocalDateTime desde = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+        List<HuecoLibre> huecos = citaManager.buscarHuecosLibres(EspecialidadMedica.CARDIOLOGIA,
+                desde, desde.withHour(20), Duration.ofMinutes(30), 3);
+        for (HuecoLibre hueco : huecos) {
+            System.out.println("  " + hueco.getInicio() + " | " + hueco.getMedico().getNombreCompleto() + " | Sala " + hueco.getSala().getNumero());
+        }
+        System.out.println();
+    }
+
+    private static void mostrarBusquedaClinica(Hospital hospital) {
+        IndiceClinico indice = hospital.getIndiceClinico();
+        System.out.println("Búsqueda en historias clínicas:");
+        System.out.println("  Alérgicos a 'penicilina': " + indice.buscar(CampoClinico.ALERGIA, "penicilina"));
+        System.out.println("  Diagnósticos que empiezan con 'HIPERTENSION': " + indice.buscarPorPrefijo(CampoClinico.DIAGNOSTICO, "HIPERTENSION"));
+        System.out.println("  Diagnósticos con 'fractura': " + indice.buscar(CampoClinico.DIAGNOSTICO, "fractura"));
+
+        Paciente paciente = hospital.getPacientes().get(0);
+        List<EntradaClinica> recientes = paciente.getHistoriaClinica()
+                .getEntradas(CampoClinico.DIAGNOSTICO, LocalDateTime.now().minusDays(90), null);
+        System.out.println("  Diagnósticos de " + paciente.getNombreCompleto() + " en los últimos 90 días:");
+        for (EntradaClinica entrada : recientes) {
+            System.out.println("    " + entrada.getInstante().toLocalDate() + " - " + entrada.getTexto());
+        }
+        System.out.println();
+    }
+
+    private static void mostrarChequeoAlergias(Hospital hospital, Paciente paciente) {
+        System.out.println("Chequeo de alergias:");
+        Map<Paciente, Set<String>> conflictos = VerificadorAlergias.verificarEnPacientes(hospital.getPacientes(), "Ibuprofeno 400mg cada 8 horas");
+        conflictos.forEach((p, alergias) -> System.out.println("  " + p.getNombreCompleto() + " es alérgico/a a " + alergias));
+        try {
+            paciente.getHistoriaClinica().agregarTratamiento("Penicilina benzatínica");
+        } catch (AlergiaException e) {
+            System.out.println("  Tratamiento rechazado: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
     // ===== MÉTODOS AUXILIARES ORIGINALES =====
 
     private static Map<EspecialidadMedica, Sala> obtenerSalasPorEspecialidad(Hospital hospital) {
@@ -337,76 +392,12 @@ public class Main{
 
     // ===== MÉTODOS DE VISUALIZACIÓN ORIGINALES =====
 
-    private static void mostrarInformacionCompleta(Hospital hospital, CitaManager citaManager) {
-        mostrarInformacionHospital(hospital);
-        mostrarDepartamentosYPersonal(hospital);
-        mostrarPacientesEHistorias(hospital);
-        mostrarCitasProgramadas(hospital, citaManager);
-    }
-
-    private static void mostrarInformacionHospital(Hospital hospital) {
-        System.out.println(" INFORMACIÓN DEL HOSPITAL ");
-        System.out.println(hospital);
-        System.out.println("ID en Repository: " + hospital.getId());
-        System.out.println("Departamentos: " + hospital.getDepartamentos().size());
-        System.out.println("Pacientes registrados: " + hospital.getPacientes().size());
-        System.out.println();
-    }
-
-    private static void mostrarDepartamentosYPersonal(Hospital hospital) {
-        System.out.println(" DEPARTAMENTOS Y PERSONAL ");
-        for (Departamento dep : hospital.getDepartamentos()) {
-            System.out.println(dep);
-
-            System.out.println("  Médicos (" + dep.getMedicos().size() + "):");
-            for (Medico medico : dep.getMedicos()) {
-                System.out.println("    " + medico + " (ID: " + medico.getId() + ")");
-            }
-
-            System.out.println("  Salas (" + dep.getSalas().size() + "):");
-            for (Sala sala : dep.getSalas()) {
-                System.out.println("    " + sala);
-            }
-            System.out.println();
-        }
-    }
-
-    private static void mostrarPacientesEHistorias(Hospital hospital) {
-        System.out.println("===== PACIENTES E HISTORIAS CLÍNICAS =====");
-        for (Paciente paciente : hospital.getPacientes()) {
-            System.out.println(paciente + " (ID: " + paciente.getId() + ")");
-            HistoriaClinica historia = paciente.getHistoriaClinica();
-            System.out.println("  Historia: " + historia.getNumeroHistoria() + " | Edad: " + paciente.getEdad() + " años");
-
-            if (!historia.getDiagnosticos().isEmpty()) {
-                System.out.println("  Diagnósticos: " + historia.getDiagnosticos());
-            }
-            if (!historia.getTratamientos().isEmpty()) {
-                System.out.println("  Tratamientos: " + historia.getTratamientos());
-            }
-            if (!historia.getAlergias().isEmpty()) {
-                System.out.println("  Alergias: " + historia.getAlergias());
-            }
-            System.out.println();
-        }
-    }
-
-    private static void mostrarCitasProgramadas(Hospital hospital, CitaManager citaManager) {
-        System.out.println("===== CITAS PROGRAMADAS =====");
-
-        // Mostrar citas por paciente usando CitaManager
-        for (Paciente paciente : hospital.getPacientes()) {
-            List<Cita> citasPaciente = citaManager.getCitasPorPaciente(paciente);
-            if (!citasPaciente.isEmpty()) {
-                System.out.println("Citas de " + paciente.getNombreCompleto() + ":");
-                for (Cita cita : citasPaciente) {
-                    System.out.println("  " + cita + " (ID: " + cita.getId() + ")");
-                    if (!cita.getObservaciones().isEmpty()) {
-                        System.out.println("    Observaciones: " + cita.getObservaciones());
-                    }
-                }
-                System.out.println();
-            }
+    private static void mostrarInformacionCompleta(Hospital hospital, CitaManager citaManager) throws IOException {
+        // System.out no se cierra: el Writer solo se vacía al final del reporte
+        Writer salida = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        // El reporte entero lee una misma foto de las citas aunque se sigan programando otras
+        try (GeneradorReportes generador = new GeneradorReportes()) {
+            generador.generarReporteCompleto(hospital, citaManager.getInstantanea()::getCitasPorPaciente, salida);
         }
     }
 
@@ -511,27 +502,23 @@ public class Main{
 
     private static void mostrarEstadisticasFinales(Hospital hospital) {
         System.out.println(" ESTADÍSTICAS FINALES ");
+        EstadisticasHospital estadisticas = hospital.getEstadisticas();
 
-        // Contadores generales
-        int totalDepartamentos = hospital.getDepartamentos().size();
-        int totalPacientes = hospital.getPacientes().size();
-        int totalMedicos = hospital.getDepartamentos().stream()
-                .mapToInt(dep -> dep.getMedicos().size())
-                .sum();
-        int totalSalas = hospital.getDepartamentos().stream()
-                .mapToInt(dep -> dep.getSalas().size())
-                .sum();
-
-        System.out.println("Departamentos: " + totalDepartamentos);
-        System.out.println("Médicos: " + totalMedicos);
-        System.out.println("Salas: " + totalSalas);
-        System.out.println("Pacientes: " + totalPacientes);
+        // Contadores generales (mantenidos incrementalmente por el hospital)
+        System.out.println("Departamentos: " + estadisticas.getTotalDepartamentos());
+        System.out.println("Médicos: " + estadisticas.getTotalMedicos());
+        System.out.println("Salas: " + estadisticas.getTotalSalas());
+        System.out.println("Pacientes: " + estadisticas.getTotalPacientes());
+        System.out.println("Citas: " + estadisticas.getTotalCitas());
 
         // Distribución por tipo de sangre
-        mostrarDistribucionTipoSangre(hospital);
+        mostrarDistribucionTipoSangre(estadisticas);
 
         // Distribución por especialidad
-        mostrarDistribucionEspecialidades(hospital);
+        mostrarDistribucionEspecialidades(estadisticas);
+
+        // Distribución por estado de cita
+        mostrarDistribucionEstadoCitas(estadisticas);
 
         // Estadísticas del repository
         System.out.println("\n--- Estadísticas Repository ---");
@@ -540,29 +527,32 @@ public class Main{
                         pacienteRepository.size() + citaRepository.size()));
     }
 
-    private static void mostrarDistribucionTipoSangre(Hospital hospital) {
+    private static void mostrarDistribucionTipoSangre(EstadisticasHospital estadisticas) {
         System.out.println("\nDistribución por tipo de sangre:");
-        Map<TipoSangre, Integer> distribucion = new HashMap<>();
-
-        for (Paciente paciente : hospital.getPacientes()) {
-            TipoSangre tipo = paciente.getTipoSangre();
-            distribucion.put(tipo, distribucion.getOrDefault(tipo, 0) + 1);
-        }
-
-        distribucion.entrySet().stream()
-                .sorted(Map.Entry.<TipoSangre, Integer>comparingByValue().reversed())
+        estadisticas.getDistribucionTipoSangre().entrySet().stream()
+                .sorted(Map.Entry.<TipoSangre, Long>comparingByValue().reversed())
                 .forEach(entry -> System.out.println("  " + entry.getKey().getDescripcion() + ": " + entry.getValue()));
     }
 
-    private static void mostrarDistribucionEspecialidades(Hospital hospital) {
+    private static void mostrarDistribucionEspecialidades(EstadisticasHospital estadisticas) {
         System.out.println("\nDistribución por especialidad:");
-        for (Departamento dep : hospital.getDepartamentos()) {
-            System.out.println("  " + dep.getEspecialidad().getDescripcion() + ": " +
-                    dep.getMedicos().size() + " médicos, " +
-                    dep.getSalas().size() + " salas");
+        for (EspecialidadMedica especialidad : EspecialidadMedica.values()) {
+            long medicos = estadisticas.getMedicos(especialidad);
+            long salas = estadisticas.getSalas(especialidad);
+            if (medicos > 0 || salas > 0) {
+                System.out.println("  " + especialidad.getDescripcion() + ": " +
+                        medicos + " médicos, " +
+                        salas + " salas");
+            }
         }
     }
 
+    private static void mostrarDistribucionEstadoCitas(EstadisticasHospital estadisticas) {
+        System.out.println("\nDistribución por estado de cita:");
+        estadisticas.getDistribucionEstadoCita()
+                .forEach((estado, cantidad) -> System.out.println("  " + estado.getDescripcion() + ": " + cantidad));
+    }
+
     // ===== NUEVA FUNCIONALIDAD: DEMOSTRAR REPOSITORY =====
 
     private static void demostrarRepository() {
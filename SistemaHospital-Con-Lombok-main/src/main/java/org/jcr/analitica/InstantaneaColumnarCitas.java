@@ -0,0 +1,237 @@
+package org.jcr.analitica;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Sala;
+import org.jcr.enums.EspecialidadMedica;
+import org.jcr.enums.EstadoCita;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+// Foto columnar de las citas para reportes: arreglos primitivos paralelos en lugar de objetos Cita,
+// con médicos y salas codificados por diccionario. Las agregaciones recorren bloques en paralelo.
+public class InstantaneaColumnarCitas {
+    private static final int TAMANIO_BLOQUE = 1 << 14;
+    private static final EstadoCita[] ESTADOS = EstadoCita.values();
+    private static final EspecialidadMedica[] ESPECIALIDADES = EspecialidadMedica.values();
+
+    private final int cantidad;
+    private final long[] minutoEpoch;
+    private final int[] mesEpoch;
+    private final long[] costoCentavos;
+    private final byte[] estado;
+    private final byte[] especialidad;
+    private final int[] medicoId;
+    private final int[] salaId;
+    private final List<Medico> medicos;
+    private final List<Sala> salas;
+
+    private InstantaneaColumnarCitas(int cantidad) {
+        this.cantidad = cantidad;
+        this.minutoEpoch = new long[cantidad];
+        this.mesEpoch = new int[cantidad];
+        this.costoCentavos = new long[cantidad];
+        this.estado = new byte[cantidad];
+        this.especialidad = new byte[cantidad];
+        this.medicoId = new int[cantidad];
+        this.salaId = new int[cantidad];
+        this.medicos = new ArrayList<>();
+        this.salas = new ArrayList<>();
+    }
+
+    public static InstantaneaColumnarCitas desde(Collection<Cita> citas) {
+        InstantaneaColumnarCitas foto = new InstantaneaColumnarCitas(citas.size());
+        Map<Medico, Integer> idsMedicos = new HashMap<>();
+        Map<Sala, Integer> idsSalas = new HashMap<>();
+
+        int i = 0;
+        for (Cita cita : citas) {
+            LocalDateTime fechaHora = cita.getFechaHora();
+            foto.minutoEpoch[i] = fechaHora.toEpochSecond(ZoneOffset.UTC) / 60;
+            foto.mesEpoch[i] = fechaHora.getYear() * 12 + fechaHora.getMonthValue() - 1;
+            foto.costoCentavos[i] = cita.getCosto().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            foto.estado[i] = (byte) cita.getEstado().ordinal();
+            foto.especialidad[i] = (byte) cita.getMedico().getEspecialidad().ordinal();
+            foto.medicoId[i] = idsMedicos.computeIfAbsent(cita.getMedico(), m -> {
+                foto.medicos.add(m);
+                return foto.medicos.size() - 1;
+            });
+            foto.salaId[i] = idsSalas.computeIfAbsent(cita.getSala(), s -> {
+                foto.salas.add(s);
+                return foto.salas.size() - 1;
+            });
+            i++;
+        }
+        return foto;
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public List<Medico> getMedicos() {
+        return Collections.unmodifiableList(medicos);
+    }
+
+    public List<Sala> getSalas() {
+        return Collections.unmodifiableList(salas);
+    }
+
+    // AGREGACIONES
+    public Map<EstadoCita, Long> contarPorEstado() {
+        long[] conteos = IntStream.range(0, cantidadBloques()).parallel()
+                .mapToObj(bloque -> {
+                    long[] parcial = new long[ESTADOS.length];
+                    for (int i = inicioBloque(bloque), fin = finBloque(bloque); i < fin; i++) {
+                        parcial[estado[i]]++;
+                    }
+                    return parcial;
+                })
+                .reduce(new long[ESTADOS.length], InstantaneaColumnarCitas::sumar);
+
+        Map<EstadoCita, Long> resultado = new EnumMap<>(EstadoCita.class);
+        for (EstadoCita estadoCita : ESTADOS) {
+            resultado.put(estadoCita, conteos[estadoCita.ordinal()]);
+        }
+        return resultado;
+    }
+
+    public BigDecimal costoTotal(EstadoCita filtro) {
+        long total = IntStream.range(0, cantidadBloques()).parallel()
+                .mapToLong(bloque -> {
+                    long parcial = 0;
+                    byte buscado = (byte) filtro.ordinal();
+                    for (int i = inicioBloque(bloque), fin = finBloque(bloque); i < fin; i++) {
+                        parcial += estado[i] == buscado ? costoCentavos[i] : 0;
+                    }
+                    return parcial;
+                })
+                .sum();
+        return BigDecimal.valueOf(total, 2);
+    }
+
+    // Ingreso por especialidad y mes, sin contar las citas canceladas
+    public Map<EspecialidadMedica, Map<YearMonth, BigDecimal>> costoPorEspecialidadYMes() {
+        if (cantidad == 0) {
+            return new EnumMap<>(EspecialidadMedica.class);
+        }
+        int primerMes = IntStream.of(mesEpoch).parallel().min().getAsInt();
+        int meses = IntStream.of(mesEpoch).parallel().max().getAsInt() - primerMes + 1;
+        byte cancelada = (byte) EstadoCita.CANCELADA.ordinal();
+
+        long[] totales = IntStream.range(0, cantidadBloques()).parallel()
+                .mapToObj(bloque -> {
+                    long[] parcial = new long[ESPECIALIDADES.length * meses];
+                    for (int i = inicioBloque(bloque), fin = finBloque(bloque); i < fin; i++) {
+                        long valor = estado[i] != cancelada ? costoCentavos[i] : 0;
+                        parcial[especialidad[i] * meses + (mesEpoch[i] - primerMes)] += valor;
+                    }
+                    return parcial;
+                })
+                .reduce(new long[ESPECIALIDADES.length * meses], InstantaneaColumnarCitas::sumar);
+
+        Map<EspecialidadMedica, Map<YearMonth, BigDecimal>> resultado = new EnumMap<>(EspecialidadMedica.class);
+        for (EspecialidadMedica esp : ESPECIALIDADES) {
+            for (int mes = 0; mes < meses; mes++) {
+                long total = totales[esp.ordinal() * meses + mes];
+                if (total != 0) {
+                    int mesAbsoluto = primerMes + mes;
+                    resultado.computeIfAbsent(esp, e -> new TreeMap<>())
+                            .put(YearMonth.of(mesAbsoluto / 12, mesAbsoluto % 12 + 1), BigDecimal.valueOf(total, 2));
+                }
+            }
+        }
+        return resultado;
+    }
+
+    // Inasistencias sobre citas cerradas (completadas + no asistió) por médico
+    public Map<Medico, Double> tasaInasistenciaPorMedico() {
+        int cantidadMedicos = medicos.size();
+        byte noAsistio = (byte) EstadoCita.NO_ASISTIO.ordinal();
+        byte completada = (byte) EstadoCita.COMPLETADA.ordinal();
+
+        long[] conteos = IntStream.range(0, cantidadBloques()).parallel()
+                .mapToObj(bloque -> {
+                    long[] parcial = new long[cantidadMedicos * 2];
+                    for (int i = inicioBloque(bloque), fin = finBloque(bloque); i < fin; i++) {
+                        byte e = estado[i];
+                        parcial[medicoId[i] * 2] += e == noAsistio ? 1 : 0;
+                        parcial[medicoId[i] * 2 + 1] += (e == noAsistio || e == completada) ? 1 : 0;
+                    }
+                    return parcial;
+                })
+                .reduce(new long[cantidadMedicos * 2], InstantaneaColumnarCitas::sumar);
+
+        Map<Medico, Double> resultado = new LinkedHashMap<>();
+        for (int id = 0; id < cantidadMedicos; id++) {
+            long cerradas = conteos[id * 2 + 1];
+            if (cerradas > 0) {
+                resultado.put(medicos.get(id), (double) conteos[id * 2] / cerradas);
+            }
+        }
+        return resultado;
+    }
+
+    public long[] contarPorSala() {
+        int cantidadSalas = salas.size();
+        return IntStream.range(0, cantidadBloques()).parallel()
+                .mapToObj(bloque -> {
+                    long[] parcial = new long[cantidadSalas];
+                    for (int i = inicioBloque(bloque), fin = finBloque(bloque); i < fin; i++) {
+                        parcial[salaId[i]]++;
+                    }
+                    return parcial;
+                })
+                .reduce(new long[cantidadSalas], InstantaneaColumnarCitas::sumar);
+    }
+
+    public long contarEntre(LocalDateTime desde, LocalDateTime hasta) {
+        long minDesde = desde.toEpochSecond(ZoneOffset.UTC) / 60;
+        long minHasta = hasta.toEpochSecond(ZoneOffset.UTC) / 60;
+        return IntStream.range(0, cantidadBloques()).parallel()
+                .mapToLong(bloque -> {
+                    long parcial = 0;
+                    for (int i = inicioBloque(bloque), fin = finBloque(bloque); i < fin; i++) {
+                        parcial += (minutoEpoch[i] >= minDesde && minutoEpoch[i] < minHasta) ? 1 : 0;
+                    }
+                    return parcial;
+                })
+                .sum();
+    }
+
+    // BLOQUES
+    private int cantidadBloques() {
+        return (cantidad + TAMANIO_BLOQUE - 1) / TAMANIO_BLOQUE;
+    }
+
+    private int inicioBloque(int bloque) {
+        return bloque * TAMANIO_BLOQUE;
+    }
+
+    private int finBloque(int bloque) {
+        return Math.min(cantidad, (bloque + 1) * TAMANIO_BLOQUE);
+    }
+
+    // La identidad del reduce se comparte: nunca se modifica, siempre se devuelve un arreglo nuevo
+    private static long[] sumar(long[] a, long[] b) {
+        long[] suma = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            suma[i] = a[i] + b[i];
+        }
+        return suma;
+    }
+}
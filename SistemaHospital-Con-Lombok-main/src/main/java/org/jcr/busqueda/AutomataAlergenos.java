@@ -0,0 +1,109 @@
+package org.jcr.busqueda;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+// Autómata Aho-Corasick sobre los alérgenos normalizados de un paciente: una sola pasada
+// sobre el texto del tratamiento encuentra todos los alérgenos que aparecen en él.
+// Cada alérgeno debe empezar en un límite de palabra ("cilina" no coincide con "penicilina"
+// pero "penicilina" sí coincide con "penicilinas").
+public final class AutomataAlergenos {
+    private static final AutomataAlergenos VACIO = new AutomataAlergenos(Collections.emptyList());
+
+    private final List<Map<Character, Integer>> transiciones = new ArrayList<>();
+    private final List<List<Integer>> salidas = new ArrayList<>();
+    private final int[] fallos;
+    private final List<String> alergenos = new ArrayList<>();
+
+    private AutomataAlergenos(Collection<String> alergias) {
+        nuevoEstado();
+        for (String alergia : alergias) {
+            String normalizado = Normalizador.normalizar(alergia);
+            if (!normalizado.isEmpty()) {
+                insertar(" " + normalizado, alergenos.size());
+                alergenos.add(alergia);
+            }
+        }
+        this.fallos = new int[transiciones.size()];
+        construirFallos();
+    }
+
+    public static AutomataAlergenos compilar(Collection<String> alergias) {
+        return alergias.isEmpty() ? VACIO : new AutomataAlergenos(alergias);
+    }
+
+    // Devuelve las alergias (tal como se registraron) presentes en el texto
+    public Set<String> buscar(String texto) {
+        if (alergenos.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String normalizado = " " + Normalizador.normalizar(texto);
+        Set<String> encontrados = new LinkedHashSet<>();
+        int estado = 0;
+        for (int i = 0; i < normalizado.length(); i++) {
+            char c = normalizado.charAt(i);
+            Integer siguiente;
+            while ((siguiente = transiciones.get(estado).get(c)) == null && estado != 0) {
+                estado = fallos[estado];
+            }
+            estado = siguiente != null ? siguiente : 0;
+            for (int indice : salidas.get(estado)) {
+                encontrados.add(alergenos.get(indice));
+            }
+        }
+        return encontrados;
+    }
+
+    public boolean estaVacio() {
+        return alergenos.isEmpty();
+    }
+
+    // CONSTRUCCIÓN
+    private int nuevoEstado() {
+        transiciones.add(new HashMap<>());
+        salidas.add(new ArrayList<>());
+        return transiciones.size() - 1;
+    }
+
+    private void insertar(String patron, int indice) {
+        int estado = 0;
+        for (int i = 0; i < patron.length(); i++) {
+            char c = patron.charAt(i);
+            Integer siguiente = transiciones.get(estado).get(c);
+            if (siguiente == null) {
+                siguiente = nuevoEstado();
+                transiciones.get(estado).put(c, siguiente);
+            }
+            estado = siguiente;
+        }
+        salidas.get(estado).add(indice);
+    }
+
+    // Recorrido BFS: el fallo de cada estado es el sufijo propio más largo que también es prefijo
+    private void construirFallos() {
+        Queue<Integer> pendientes = new ArrayDeque<>(transiciones.get(0).values());
+        while (!pendientes.isEmpty()) {
+            int estado = pendientes.poll();
+            for (Map.Entry<Character, Integer> transicion : transiciones.get(estado).entrySet()) {
+                char c = transicion.getKey();
+                int hijo = transicion.getValue();
+                int fallo = fallos[estado];
+                while (fallo != 0 && !transiciones.get(fallo).containsKey(c)) {
+                    fallo = fallos[fallo];
+                }
+                Integer destino = transiciones.get(fallo).get(c);
+                fallos[hijo] = destino != null && destino != hijo ? destino : 0;
+                salidas.get(hijo).addAll(salidas.get(fallos[hijo]));
+                pendientes.add(hijo);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.jcr.busqueda;
+
+import org.jcr.entidades.HistoriaClinica;
+import org.jcr.enums.CampoClinico;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Índice invertido de términos clínicos normalizados a DNIs de pacientes, uno por campo.
+// Se indexa cada palabra y la frase completa, así "hipertension arterial" y "hipert" resuelven sin recorrer historias.
+public class IndiceClinico implements Serializable {
+    private final Map<CampoClinico, ConcurrentSkipListMap<String, Set<String>>> terminos = new EnumMap<>(CampoClinico.class);
+
+    public IndiceClinico() {
+        for (CampoClinico campo : CampoClinico.values()) {
+            terminos.put(campo, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    // ACTUALIZACIÓN
+    public void indexar(CampoClinico campo, String texto, String dni) {
+        NavigableMap<String, Set<String>> indice = terminos.get(campo);
+        for (String termino : terminosDe(texto)) {
+            indice.computeIfAbsent(termino, t -> ConcurrentHashMap.newKeySet()).add(dni);
+        }
+    }
+
+    public void indexarHistoria(HistoriaClinica historia, String dni) {
+        for (CampoClinico campo : CampoClinico.values()) {
+            for (String texto : historia.getEntradas(campo)) {
+                indexar(campo, texto, dni);
+            }
+        }
+    }
+
+    public void quitarHistoria(HistoriaClinica historia, String dni) {
+        for (CampoClinico campo : CampoClinico.values()) {
+            NavigableMap<String, Set<String>> indice = terminos.get(campo);
+            for (String texto : historia.getEntradas(campo)) {
+                for (String termino : terminosDe(texto)) {
+                    indice.computeIfPresent(termino, (t, dnis) -> {
+                        dnis.remove(dni);
+                        return dnis.isEmpty() ? null : dnis;
+                    });
+                }
+            }
+        }
+    }
+
+    // CONSULTAS
+    // Frase exacta normalizada; si no aparece como frase se intersecan sus palabras
+    public Set<String> buscar(CampoClinico campo, String termino) {
+        NavigableMap<String, Set<String>> indice = terminos.get(campo);
+        String normalizado = Normalizador.normalizar(termino);
+        Set<String> exacto = indice.get(normalizado);
+        if (exacto != null) {
+            return Collections.unmodifiableSet(new HashSet<>(exacto));
+        }
+
+        List<String> tokens = Normalizador.tokenizar(termino);
+        if (tokens.size() < 2) {
+            return Collections.emptySet();
+        }
+        Set<String> resultado = null;
+        for (String token : tokens) {
+            Set<String> dnis = indice.get(token);
+            if (dnis == null) {
+                return Collections.emptySet();
+            }
+            if (resultado == null) {
+                resultado = new HashSet<>(dnis);
+            } else {
+                resultado.retainAll(dnis);
+            }
+        }
+        return Collections.unmodifiableSet(resultado);
+    }
+
+    public Set<String> buscarPorPrefijo(CampoClinico campo, String prefijo) {
+        String normalizado = Normalizador.normalizar(prefijo);
+        if (normalizado.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> resultado = new HashSet<>();
+        for (Set<String> dnis : terminos.get(campo).subMap(normalizado, true, normalizado + Character.MAX_VALUE, false).values()) {
+            resultado.addAll(dnis);
+        }
+        return Collections.unmodifiableSet(resultado);
+    }
+
+    public int getCantidadTerminos(CampoClinico campo) {
+        return terminos.get(campo).size();
+    }
+
+    private static Set<String> terminosDe(String texto) {
+        Set<String> resultado = new HashSet<>(Normalizador.tokenizar(texto));
+        String frase = Normalizador.normalizar(texto);
+        if (!frase.isEmpty()) {
+            resultado.add(frase);
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,35 @@
+package org.jcr.busqueda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Normaliza texto clínico para búsquedas: sin tildes, en minúsculas y con espacios simples
+public final class Normalizador {
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private Normalizador() {
+    }
+
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinTildes = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(sinTildes.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    public static List<String> tokenizar(String texto) {
+        String normalizado = normalizar(texto);
+        List<String> tokens = new ArrayList<>();
+        if (!normalizado.isEmpty()) {
+            for (String token : normalizado.split(" ")) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
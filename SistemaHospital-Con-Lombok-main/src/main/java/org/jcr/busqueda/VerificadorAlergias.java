@@ -0,0 +1,42 @@
+package org.jcr.busqueda;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Chequeo masivo de una prescripción contra las alergias de muchos pacientes en paralelo.
+// Cada historia usa su autómata precompilado, así el costo por paciente es lineal en la prescripción.
+public final class VerificadorAlergias {
+
+    private VerificadorAlergias() {
+    }
+
+    // Solo devuelve los pacientes con conflicto, junto con las alergias detectadas
+    public static Map<Paciente, Set<String>> verificarEnPacientes(Collection<Paciente> pacientes, String prescripcion) {
+        Map<Paciente, Set<String>> conflictos = new ConcurrentHashMap<>();
+        pacientes.parallelStream().forEach(paciente -> {
+            // Un paciente sin historia cargada no tiene alergias registradas: no se la crea
+            paciente.buscarHistoriaClinica().ifPresent(historia -> {
+                Set<String> alergias = historia.conflictosConAlergias(prescripcion);
+                if (!alergias.isEmpty()) {
+                    conflictos.put(paciente, alergias);
+                }
+            });
+        });
+        return conflictos;
+    }
+
+    public static Map<Paciente, Set<String>> verificarEnSala(Sala sala, String prescripcion) {
+        Set<Paciente> pacientes = new LinkedHashSet<>();
+        for (Cita cita : sala.getCitas()) {
+            pacientes.add(cita.getPaciente());
+        }
+        return verificarEnPacientes(pacientes, prescripcion);
+    }
+}
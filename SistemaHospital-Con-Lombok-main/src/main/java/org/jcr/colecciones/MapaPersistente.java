@@ -0,0 +1,289 @@
+package org.jcr.colecciones;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+// Mapa inmutable con estructura compartida (hash array mapped trie). Cada nodo usa 5 bits del hash
+// y un bitmap para guardar solo las ramas presentes; agregar o quitar copia el camino desde la raíz
+// (O(log32 n)). Las claves con el mismo hash completo van a un nodo de colisión. No admite claves nulas.
+public final class MapaPersistente<K, V> {
+    private static final int BITS = 5;
+    private static final MapaPersistente<?, ?> VACIO = new MapaPersistente<>(NodoBitmap.VACIO, 0);
+
+    private final Nodo raiz;
+    private final int cantidad;
+
+    private MapaPersistente(Nodo raiz, int cantidad) {
+        this.raiz = raiz;
+        this.cantidad = cantidad;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> MapaPersistente<K, V> vacio() {
+        return (MapaPersistente<K, V>) VACIO;
+    }
+
+    // LECTURA
+    public int size() {
+        return cantidad;
+    }
+
+    public boolean isEmpty() {
+        return cantidad == 0;
+    }
+
+    public V get(K clave) {
+        return getOrDefault(clave, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(K clave, V porDefecto) {
+        Objects.requireNonNull(clave, "La clave no puede ser nula");
+        return (V) raiz.buscar(hash(clave), 0, clave, porDefecto);
+    }
+
+    public boolean containsKey(K clave) {
+        Object ausente = new Object();
+        return raiz.buscar(hash(Objects.requireNonNull(clave, "La clave no puede ser nula")), 0, clave, ausente) != ausente;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> accion) {
+        raiz.recorrer((BiConsumer<Object, Object>) accion);
+    }
+
+    // VERSIONES NUEVAS
+    public MapaPersistente<K, V> conEntrada(K clave, V valor) {
+        Objects.requireNonNull(clave, "La clave no puede ser nula");
+        boolean[] agregada = new boolean[1];
+        Nodo nuevaRaiz = raiz.asociar(hash(clave), 0, clave, valor, agregada);
+        if (nuevaRaiz == raiz) {
+            return this;
+        }
+        return new MapaPersistente<>(nuevaRaiz, agregada[0] ? cantidad + 1 : cantidad);
+    }
+
+    public MapaPersistente<K, V> sinClave(K clave) {
+        Objects.requireNonNull(clave, "La clave no puede ser nula");
+        Nodo nuevaRaiz = raiz.quitar(hash(clave), 0, clave);
+        if (nuevaRaiz == raiz) {
+            return this;
+        }
+        return new MapaPersistente<>(nuevaRaiz != null ? nuevaRaiz : NodoBitmap.VACIO, cantidad - 1);
+    }
+
+    private static int hash(Object clave) {
+        int h = clave.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // NODOS
+    private abstract static class Nodo {
+        abstract Object buscar(int hash, int nivel, Object clave, Object ausente);
+
+        abstract Nodo asociar(int hash, int nivel, Object clave, Object valor, boolean[] agregada);
+
+        // Devuelve null si el nodo queda vacío
+        abstract Nodo quitar(int hash, int nivel, Object clave);
+
+        abstract void recorrer(BiConsumer<Object, Object> accion);
+    }
+
+    // Pares [clave, valor] compactados según el bitmap; clave null indica que el valor es un subnodo
+    private static final class NodoBitmap extends Nodo {
+        static final NodoBitmap VACIO = new NodoBitmap(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] arreglo;
+
+        NodoBitmap(int bitmap, Object[] arreglo) {
+            this.bitmap = bitmap;
+            this.arreglo = arreglo;
+        }
+
+        private static int bit(int hash, int nivel) {
+            return 1 << ((hash >>> nivel) & 31);
+        }
+
+        private int posicion(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object buscar(int hash, int nivel, Object clave, Object ausente) {
+            int bit = bit(hash, nivel);
+            if ((bitmap & bit) == 0) {
+                return ausente;
+            }
+            int i = 2 * posicion(bit);
+            Object claveActual = arreglo[i];
+            Object valorActual = arreglo[i + 1];
+            if (claveActual == null) {
+                return ((Nodo) valorActual).buscar(hash, nivel + BITS, clave, ausente);
+            }
+            return clave.equals(claveActual) ? valorActual : ausente;
+        }
+
+        @Override
+        Nodo asociar(int hash, int nivel, Object clave, Object valor, boolean[] agregada) {
+            int bit = bit(hash, nivel);
+            int i = 2 * posicion(bit);
+            if ((bitmap & bit) != 0) {
+                Object claveActual = arreglo[i];
+                Object valorActual = arreglo[i + 1];
+                if (claveActual == null) {
+                    Nodo hijo = (Nodo) valorActual;
+                    Nodo nuevoHijo = hijo.asociar(hash, nivel + BITS, clave, valor, agregada);
+                    return nuevoHijo == hijo ? this : conPar(i, null, nuevoHijo);
+                }
+                if (clave.equals(claveActual)) {
+                    return valorActual == valor ? this : conPar(i, claveActual, valor);
+                }
+                agregada[0] = true;
+                return conPar(i, null, crearSubnodo(nivel + BITS, claveActual, valorActual, hash, clave, valor));
+            }
+            agregada[0] = true;
+            Object[] nuevo = new Object[arreglo.length + 2];
+            System.arraycopy(arreglo, 0, nuevo, 0, i);
+            nuevo[i] = clave;
+            nuevo[i + 1] = valor;
+            System.arraycopy(arreglo, i, nuevo, i + 2, arreglo.length - i);
+            return new NodoBitmap(bitmap | bit, nuevo);
+        }
+
+        @Override
+        Nodo quitar(int hash, int nivel, Object clave) {
+            int bit = bit(hash, nivel);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = 2 * posicion(bit);
+            Object claveActual = arreglo[i];
+            if (claveActual == null) {
+                Nodo hijo = (Nodo) arreglo[i + 1];
+                Nodo nuevoHijo = hijo.quitar(hash, nivel + BITS, clave);
+                if (nuevoHijo == hijo) {
+                    return this;
+                }
+                if (nuevoHijo != null) {
+                    return conPar(i, null, nuevoHijo);
+                }
+                return sinPar(bit, i);
+            }
+            return clave.equals(claveActual) ? sinPar(bit, i) : this;
+        }
+
+        @Override
+        void recorrer(BiConsumer<Object, Object> accion) {
+            for (int i = 0; i < arreglo.length; i += 2) {
+                if (arreglo[i] == null) {
+                    ((Nodo) arreglo[i + 1]).recorrer(accion);
+                } else {
+                    accion.accept(arreglo[i], arreglo[i + 1]);
+                }
+            }
+        }
+
+        private NodoBitmap conPar(int i, Object clave, Object valor) {
+            Object[] copia = arreglo.clone();
+            copia[i] = clave;
+            copia[i + 1] = valor;
+            return new NodoBitmap(bitmap, copia);
+        }
+
+        private NodoBitmap sinPar(int bit, int i) {
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] nuevo = new Object[arreglo.length - 2];
+            System.arraycopy(arreglo, 0, nuevo, 0, i);
+            System.arraycopy(arreglo, i + 2, nuevo, i, arreglo.length - i - 2);
+            return new NodoBitmap(bitmap ^ bit, nuevo);
+        }
+
+        private static Nodo crearSubnodo(int nivel, Object clave1, Object valor1, int hash2, Object clave2, Object valor2) {
+            int hash1 = hash(clave1);
+            if (hash1 == hash2) {
+                return new NodoColision(hash1, new Object[]{clave1, valor1, clave2, valor2});
+            }
+            boolean[] ignorada = new boolean[1];
+            return VACIO.asociar(hash1, nivel, clave1, valor1, ignorada)
+                    .asociar(hash2, nivel, clave2, valor2, ignorada);
+        }
+    }
+
+    // Claves distintas con el mismo hash: lista lineal de pares
+    private static final class NodoColision extends Nodo {
+        private final int hash;
+        private final Object[] pares;
+
+        NodoColision(int hash, Object[] pares) {
+            this.hash = hash;
+            this.pares = pares;
+        }
+
+        private int indiceDe(Object clave) {
+            for (int i = 0; i < pares.length; i += 2) {
+                if (clave.equals(pares[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object buscar(int hash, int nivel, Object clave, Object ausente) {
+            if (hash != this.hash) {
+                return ausente;
+            }
+            int i = indiceDe(clave);
+            return i >= 0 ? pares[i + 1] : ausente;
+        }
+
+        @Override
+        Nodo asociar(int hash, int nivel, Object clave, Object valor, boolean[] agregada) {
+            if (hash != this.hash) {
+                // Se cuelga este nodo de un bitmap en el nivel actual y se sigue por ahí
+                NodoBitmap contenedor = new NodoBitmap(1 << ((this.hash >>> nivel) & 31), new Object[]{null, this});
+                return contenedor.asociar(hash, nivel, clave, valor, agregada);
+            }
+            int i = indiceDe(clave);
+            if (i >= 0) {
+                if (pares[i + 1] == valor) {
+                    return this;
+                }
+                Object[] copia = pares.clone();
+                copia[i + 1] = valor;
+                return new NodoColision(hash, copia);
+            }
+            agregada[0] = true;
+            Object[] nuevo = Arrays.copyOf(pares, pares.length + 2);
+            nuevo[pares.length] = clave;
+            nuevo[pares.length + 1] = valor;
+            return new NodoColision(hash, nuevo);
+        }
+
+        @Override
+        Nodo quitar(int hash, int nivel, Object clave) {
+            int i = hash == this.hash ? indiceDe(clave) : -1;
+            if (i < 0) {
+                return this;
+            }
+            if (pares.length == 2) {
+                return null;
+            }
+            Object[] nuevo = new Object[pares.length - 2];
+            System.arraycopy(pares, 0, nuevo, 0, i);
+            System.arraycopy(pares, i + 2, nuevo, i, pares.length - i - 2);
+            return new NodoColision(hash, nuevo);
+        }
+
+        @Override
+        void recorrer(BiConsumer<Object, Object> accion) {
+            for (int i = 0; i < pares.length; i += 2) {
+                accion.accept(pares[i], pares[i + 1]);
+            }
+        }
+    }
+}
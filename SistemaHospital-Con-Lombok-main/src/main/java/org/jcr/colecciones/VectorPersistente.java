@@ -0,0 +1,144 @@
+package org.jcr.colecciones;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+// Vector inmutable con estructura compartida: un trie de 32 ramas más una cola de hasta 32
+// elementos. Agregar al final o reemplazar copia solo el camino desde la raíz (O(log32 n)),
+// así dos versiones comparten todo lo demás. Se lee como cualquier List; los métodos
+// mutadores de List lanzan UnsupportedOperationException.
+public final class VectorPersistente<E> extends AbstractList<E> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int ANCHO = 1 << BITS;
+    private static final int MASCARA = ANCHO - 1;
+    private static final VectorPersistente<?> VACIO = new VectorPersistente<>(0, BITS, new Object[ANCHO], new Object[0]);
+
+    private final int cantidad;
+    private final int nivel;
+    private final Object[] raiz;
+    private final Object[] cola;
+
+    private VectorPersistente(int cantidad, int nivel, Object[] raiz, Object[] cola) {
+        this.cantidad = cantidad;
+        this.nivel = nivel;
+        this.raiz = raiz;
+        this.cola = cola;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> VectorPersistente<E> vacio() {
+        return (VectorPersistente<E>) VACIO;
+    }
+
+    @SafeVarargs
+    public static <E> VectorPersistente<E> de(E... elementos) {
+        VectorPersistente<E> vector = vacio();
+        for (E elemento : elementos) {
+            vector = vector.conAgregado(elemento);
+        }
+        return vector;
+    }
+
+    // LECTURA
+    @Override
+    public int size() {
+        return cantidad;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int indice) {
+        return (E) hojaDe(indice)[indice & MASCARA];
+    }
+
+    public E getUltimo() {
+        return get(cantidad - 1);
+    }
+
+    // VERSIONES NUEVAS
+    public VectorPersistente<E> conAgregado(E elemento) {
+        if (cantidad - inicioCola() < ANCHO) {
+            Object[] nuevaCola = Arrays.copyOf(cola, cola.length + 1);
+            nuevaCola[cola.length] = elemento;
+            return new VectorPersistente<>(cantidad + 1, nivel, raiz, nuevaCola);
+        }
+        // La cola está llena: pasa al trie y se empieza una nueva
+        Object[] nuevaRaiz;
+        int nuevoNivel = nivel;
+        if ((cantidad >>> BITS) > (1 << nivel)) {
+            nuevaRaiz = new Object[ANCHO];
+            nuevaRaiz[0] = raiz;
+            nuevaRaiz[1] = nuevoCamino(nivel, cola);
+            nuevoNivel += BITS;
+        } else {
+            nuevaRaiz = empujarCola(nivel, raiz, cola);
+        }
+        return new VectorPersistente<>(cantidad + 1, nuevoNivel, nuevaRaiz, new Object[]{elemento});
+    }
+
+    public VectorPersistente<E> conReemplazo(int indice, E elemento) {
+        if (indice < 0 || indice >= cantidad) {
+            throw new IndexOutOfBoundsException(indice);
+        }
+        if (indice >= inicioCola()) {
+            Object[] nuevaCola = cola.clone();
+            nuevaCola[indice & MASCARA] = elemento;
+            return new VectorPersistente<>(cantidad, nivel, raiz, nuevaCola);
+        }
+        return new VectorPersistente<>(cantidad, nivel, reemplazar(nivel, raiz, indice, elemento), cola);
+    }
+
+    // INTERNOS DEL TRIE
+    private int inicioCola() {
+        return cantidad < ANCHO ? 0 : ((cantidad - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] hojaDe(int indice) {
+        if (indice < 0 || indice >= cantidad) {
+            throw new IndexOutOfBoundsException(indice);
+        }
+        if (indice >= inicioCola()) {
+            return cola;
+        }
+        Object[] nodo = raiz;
+        for (int n = nivel; n > 0; n -= BITS) {
+            nodo = (Object[]) nodo[(indice >>> n) & MASCARA];
+        }
+        return nodo;
+    }
+
+    private Object[] empujarCola(int nivelActual, Object[] padre, Object[] hoja) {
+        int posicion = ((cantidad - 1) >>> nivelActual) & MASCARA;
+        Object[] copia = padre.clone();
+        if (nivelActual == BITS) {
+            copia[posicion] = hoja;
+        } else {
+            Object[] hijo = (Object[]) padre[posicion];
+            copia[posicion] = hijo != null
+                    ? empujarCola(nivelActual - BITS, hijo, hoja)
+                    : nuevoCamino(nivelActual - BITS, hoja);
+        }
+        return copia;
+    }
+
+    private static Object[] nuevoCamino(int nivelActual, Object[] hoja) {
+        if (nivelActual == 0) {
+            return hoja;
+        }
+        Object[] nodo = new Object[ANCHO];
+        nodo[0] = nuevoCamino(nivelActual - BITS, hoja);
+        return nodo;
+    }
+
+    private static Object[] reemplazar(int nivelActual, Object[] nodo, int indice, Object elemento) {
+        Object[] copia = nodo.clone();
+        if (nivelActual == 0) {
+            copia[indice & MASCARA] = elemento;
+        } else {
+            int posicion = (indice >>> nivelActual) & MASCARA;
+            copia[posicion] = reemplazar(nivelActual - BITS, (Object[]) nodo[posicion], indice, elemento);
+        }
+        return copia;
+    }
+}
@@ -3,7 +3,7 @@ package org.jcr.entidades;
 import org.jcr.enums.EstadoCita;
 import org.jcr.excepciones.CitaException;
 
-import lombok.Builder;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -11,37 +11,86 @@ import lombok.ToString;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Getter // Solo getters automáticos para campos final
-@ToString(exclude = {"paciente","medico","sala"}) // ToString automático está bien
-@Builder
+@ToString // ToString automático está bien (sin las relaciones para evitar recursión)
 
 public class Cita implements Serializable {
     @Setter
     private Long id;
+    @ToString.Exclude
     private final Paciente paciente;
+    @ToString.Exclude
     private final Medico medico;
+    @ToString.Exclude
     private final Sala sala;
     private final LocalDateTime fechaHora;
     private final BigDecimal costo;
 
-    @Setter // Solo estos 2 campos necesitan setters
-    private EstadoCita estado;
+    // Estado mutable versionado: se reemplaza completo con compare-and-set
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final AtomicReference<EstadoVersionado> estadoActual;
 
-    @Setter
-    private String observaciones;
+    // Quienes mantienen índices o estadísticas derivadas (cada CitaManager que la indexa) se enteran
+    // de los cambios por acá. Lista inmutable que se reemplaza entera al agregar o quitar
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile List<Observador> observadores;
+
+    // BUILDER (escrito a mano: solo expone los campos que se eligen al crear la cita)
+    public static CitaBuilder builder() {
+        return new CitaBuilder();
+    }
 
-    // BUILDER
     private Cita(CitaBuilder builder) {
         this.paciente = Objects.requireNonNull(builder.paciente, "El paciente no puede ser nulo");
         this.medico = Objects.requireNonNull(builder.medico, "El médico no puede ser nulo");
         this.sala = Objects.requireNonNull(builder.sala, "La sala no puede ser nula");
         this.fechaHora = Objects.requireNonNull(builder.fechaHora, "La fecha y hora no pueden ser nulas");
         this.costo = Objects.requireNonNull(builder.costo, "El costo no puede ser nulo");
-        this.estado = builder.estado != null ? builder.estado : EstadoCita.PROGRAMADA;
-        this.observaciones = builder.observaciones != null ? builder.observaciones : "";
+        this.estadoActual = new AtomicReference<>(new EstadoVersionado(0L,
+                builder.estado != null ? builder.estado : EstadoCita.PROGRAMADA,
+                builder.observaciones != null ? builder.observaciones : ""));
+        this.observadores = List.of();
+    }
+
+    public interface Observador {
+        void estadoCambiado(Cita cita, EstadoCita anterior, EstadoCita nuevo);
+
+        default void observacionesActualizadas(Cita cita, String anteriores, String nuevas) {
+        }
+    }
+
+    public synchronized void agregarObservador(Observador observador) {
+        List<Observador> actuales = observadores();
+        if (!actuales.contains(observador)) {
+            List<Observador> nuevos = new ArrayList<>(actuales);
+            nuevos.add(Objects.requireNonNull(observador, "El observador no puede ser nulo"));
+            this.observadores = List.copyOf(nuevos);
+        }
+    }
+
+    public synchronized void quitarObservador(Observador observador) {
+        List<Observador> nuevos = new ArrayList<>(observadores());
+        if (nuevos.remove(observador)) {
+            this.observadores = List.copyOf(nuevos);
+        }
+    }
+
+    // Tras deserializar el campo transient queda en null
+    private List<Observador> observadores() {
+        List<Observador> actuales = observadores;
+        return actuales != null ? actuales : List.of();
+    }
+
+    // Foto inmutable de los campos mutables junto con su versión
+    public record EstadoVersionado(long version, EstadoCita estado, String observaciones) implements Serializable {
     }
 
     public static class CitaBuilder {
@@ -101,15 +150,15 @@ public class Cita implements Serializable {
                 sala.getNumero(),
                 fechaHora.toString(),
                 costo.toString(),
-                estado.name(),
-                observaciones.replaceAll(",", ";"));
+                getEstado().name(),
+                getObservaciones().replaceAll(",", ";"));
     }
 
     public static Cita fromCsvString(String csvString,
                                      Map<String, Paciente> pacientes,
                                      Map<String, Medico> medicos,
                                      Map<String, Sala> salas) throws CitaException {
-        String[] values = csvString.split(",");
+        String[] values = csvString.split(",", -1); // -1 conserva observaciones vacías al final
         if (values.length != 7) {
             throw new CitaException("Formato de CSV inválido para Cita: " + csvString);
         }
@@ -147,12 +196,88 @@ public class Cita implements Serializable {
                 .build();
     }
 
-    // SETTERS PERSONALIZADOS CON VALIDACIÓN
+    // GETTERS DEL ESTADO VERSIONADO
+    @ToString.Include(name = "estado")
+    public EstadoCita getEstado() {
+        return estadoActual.get().estado();
+    }
+
+    @ToString.Include(name = "observaciones")
+    public String getObservaciones() {
+        return estadoActual.get().observaciones();
+    }
+
+    @ToString.Include(name = "version")
+    public long getVersion() {
+        return estadoActual.get().version();
+    }
+
+    public EstadoVersionado getEstadoVersionado() {
+        return estadoActual.get();
+    }
+
+    // SETTERS PERSONALIZADOS CON VALIDACIÓN: aplican el cambio sobre la versión vigente con
+    // compare-and-set, reintentando si otro hilo la cambió en el medio
     public void setEstado(EstadoCita estado) {
-        this.estado = Objects.requireNonNull(estado, "El estado no puede ser nulo");
+        Objects.requireNonNull(estado, "El estado no puede ser nulo");
+        EstadoVersionado actual;
+        do {
+            actual = estadoActual.get();
+            if (actual.estado() == estado) {
+                return;
+            }
+        } while (!compareAndSetEstado(actual.version(), estado));
     }
 
     public void setObservaciones(String observaciones) {
-        this.observaciones = observaciones != null ? observaciones : "";
+        long version;
+        do {
+            version = getVersion();
+        } while (!compareAndSetObservaciones(version, observaciones));
+    }
+
+    // CONCURRENCIA OPTIMISTA. Un estado final (completada, cancelada, no asistió) no se reabre:
+    // intentarlo es un error de quien llama, no un conflicto de versión
+    public boolean compareAndSetEstado(long versionEsperada, EstadoCita nuevoEstado) {
+        Objects.requireNonNull(nuevoEstado, "El estado no puede ser nulo");
+        EstadoVersionado actual = estadoActual.get();
+        if (actual.version() != versionEsperada) {
+            return false;
+        }
+        if (actual.estado().esFinal() && actual.estado() != nuevoEstado) {
+            throw new IllegalStateException("La cita ya está " + actual.estado().getDescripcion().toLowerCase()
+                    + " y no puede pasar a " + nuevoEstado.getDescripcion().toLowerCase() + ".");
+        }
+        EstadoVersionado nuevo = new EstadoVersionado(versionEsperada + 1, nuevoEstado, actual.observaciones());
+        if (!estadoActual.compareAndSet(actual, nuevo)) {
+            return false;
+        }
+        notificar(actual, nuevo);
+        return true;
+    }
+
+    public boolean compareAndSetObservaciones(long versionEsperada, String observaciones) {
+        EstadoVersionado actual = estadoActual.get();
+        if (actual.version() != versionEsperada) {
+            return false;
+        }
+        EstadoVersionado nuevo = new EstadoVersionado(versionEsperada + 1, actual.estado(),
+                observaciones != null ? observaciones : "");
+        if (!estadoActual.compareAndSet(actual, nuevo)) {
+            return false;
+        }
+        notificar(actual, nuevo);
+        return true;
+    }
+
+    private void notificar(EstadoVersionado anterior, EstadoVersionado nuevo) {
+        for (Observador actual : observadores()) {
+            if (anterior.estado() != nuevo.estado()) {
+                actual.estadoCambiado(this, anterior.estado(), nuevo.estado());
+            }
+            if (!anterior.observaciones().equals(nuevo.observaciones())) {
+                actual.observacionesActualizadas(this, anterior.observaciones(), nuevo.observaciones());
+            }
+        }
     }
 }
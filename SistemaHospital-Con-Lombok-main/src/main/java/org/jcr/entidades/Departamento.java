@@ -51,19 +51,33 @@ public class Departamento implements Serializable {
         if (this.hospital != hospital) {
             if (this.hospital != null) {
                 this.hospital.getInternalDepartamentos().remove(this);
+                actualizarEstadisticas(this.hospital, -1);
             }
             this.hospital = hospital;
             if (hospital != null) {
                 hospital.getInternalDepartamentos().add(this);
+                actualizarEstadisticas(hospital, 1);
             }
         }
     }
 
+    // Traslada al hospital el departamento junto con sus médicos y salas
+    private void actualizarEstadisticas(Hospital destino, int delta) {
+        destino.getEstadisticas().registrarDepartamento(delta);
+        for (Medico medico : medicos) {
+            destino.getEstadisticas().registrarMedico(medico.getEspecialidad(), delta);
+        }
+        destino.getEstadisticas().registrarSala(especialidad, delta * salas.size());
+    }
+
     // MÉTODOS DE NEGOCIO CRÍTICOS
     public void agregarMedico(Medico medico) {
         if (medico != null && !medicos.contains(medico)) {
             medicos.add(medico);
             medico.setDepartamento(this);
+            if (hospital != null) {
+                hospital.getEstadisticas().registrarMedico(medico.getEspecialidad(), 1);
+            }
         }
     }
 
@@ -74,6 +88,9 @@ public class Departamento implements Serializable {
                 .departamento(this)
                 .build();
         salas.add(sala);
+        if (hospital != null) {
+            hospital.getEstadisticas().registrarSala(especialidad, 1);
+        }
         return sala;
     }
 
@@ -0,0 +1,20 @@
+package org.jcr.entidades;
+
+import org.jcr.enums.CampoClinico;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Getter
+@ToString(exclude = {"cita"})
+@RequiredArgsConstructor
+
+public class EntradaClinica {
+    private final CampoClinico campo;
+    private final LocalDateTime instante;
+    private final String texto;
+    private final Cita cita; // Puede ser null si la entrada no surgió de una cita
+}
@@ -1,37 +1,63 @@
 package org.jcr.entidades;
 
-import lombok.Builder;
+import org.jcr.busqueda.AutomataAlergenos;
+import org.jcr.enums.CampoClinico;
+import org.jcr.excepciones.AlergiaException;
+
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.ToString;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 @Getter
-@ToString(exclude = {"paciente"})   // Evitar referencia circular
-@Builder
+@ToString(exclude = {"paciente", "automataAlergenos", "versionAlergias", "lineasTemporales"})   // Evitar referencia circular
 
 public class HistoriaClinica implements Serializable {
     private final String numeroHistoria;
     private final Paciente paciente;
     private final LocalDateTime fechaCreacion;
-    private final List<String> diagnosticos = new ArrayList<>();
-    private final List<String> tratamientos = new ArrayList<>();
-    private final List<String> alergias = new ArrayList<>(); //Genera numeroHistoria automáticamente
+    // Vacías compartidas hasta la primera escritura
+    private List<String> diagnosticos = Collections.emptyList();
+    private List<String> tratamientos = Collections.emptyList();
+    private List<String> alergias = Collections.emptyList(); //Genera numeroHistoria automáticamente si no se indica
+    @Getter(AccessLevel.NONE)
+    private LineaTemporal[] lineasTemporales; // Una por CampoClinico, creada con la primera entrada
+    @Getter(AccessLevel.NONE)
+    private transient volatile AutomataCompilado automataAlergenos; // Se compila al primer chequeo
+    @Getter(AccessLevel.NONE)
+    private volatile int versionAlergias; // Sube con cada alergia; invalida el autómata compilado
+
+    private record AutomataCompilado(int version, AutomataAlergenos automata) {
+    }
 
     private HistoriaClinica(HistoriaClinicaBuilder builder) {
         this.paciente = Objects.requireNonNull(builder.paciente, "El paciente no puede ser nulo");
         this.fechaCreacion = builder.fechaCreacion != null ? builder.fechaCreacion : LocalDateTime.now();
-        this.numeroHistoria = generarNumeroHistoria();
+        this.numeroHistoria = builder.numeroHistoria != null ? builder.numeroHistoria : generarNumeroHistoria();
+    }
+
+    // Builder manual: las listas no son final y no deben pasar por el builder
+    public static HistoriaClinicaBuilder builder() {
+        return new HistoriaClinicaBuilder();
     }
 
     public static class HistoriaClinicaBuilder {
+        private String numeroHistoria;
         private Paciente paciente;
         private LocalDateTime fechaCreacion;
 
+        public HistoriaClinicaBuilder numeroHistoria(String numeroHistoria) {
+            this.numeroHistoria = numeroHistoria;
+            return this;
+        }
+
         public HistoriaClinicaBuilder paciente(Paciente paciente) {
             this.paciente = paciente;
             return this;
@@ -53,20 +79,127 @@ public class HistoriaClinica implements Serializable {
     }
 
     public void agregarDiagnostico(String diagnostico) {
+        agregarDiagnostico(diagnostico, LocalDateTime.now(), null);
+    }
+
+    public void agregarDiagnostico(String diagnostico, LocalDateTime instante, Cita cita) {
         if (diagnostico != null && !diagnostico.trim().isEmpty()) {
-            diagnosticos.add(diagnostico);
+            registrarEnLinea(CampoClinico.DIAGNOSTICO, instante, diagnosticos.size(), cita);
+            diagnosticos = agregar(diagnosticos, diagnostico);
+            indexar(CampoClinico.DIAGNOSTICO, diagnostico);
         }
     }
 
-    public void agregarTratamiento(String tratamiento) {
+    public void agregarTratamiento(String tratamiento) throws AlergiaException {
+        agregarTratamiento(tratamiento, LocalDateTime.now(), null);
+    }
+
+    // Un tratamiento que choca con una alergia registrada no se agrega
+    public void agregarTratamiento(String tratamiento, LocalDateTime instante, Cita cita) throws AlergiaException {
         if (tratamiento != null && !tratamiento.trim().isEmpty()) {
-            tratamientos.add(tratamiento);
+            Set<String> conflictos = conflictosConAlergias(tratamiento);
+            if (!conflictos.isEmpty()) {
+                throw new AlergiaException("El tratamiento '" + tratamiento
+                        + "' entra en conflicto con las alergias del paciente: " + conflictos, conflictos);
+            }
+            registrarEnLinea(CampoClinico.TRATAMIENTO, instante, tratamientos.size(), cita);
+            tratamientos = agregar(tratamientos, tratamiento);
+            indexar(CampoClinico.TRATAMIENTO, tratamiento);
         }
     }
 
     public void agregarAlergia(String alergia) {
+        agregarAlergia(alergia, LocalDateTime.now(), null);
+    }
+
+    public void agregarAlergia(String alergia, LocalDateTime instante, Cita cita) {
         if (alergia != null && !alergia.trim().isEmpty()) {
-            alergias.add(alergia);
+            registrarEnLinea(CampoClinico.ALERGIA, instante, alergias.size(), cita);
+            alergias = agregar(alergias, alergia);
+            versionAlergias++;
+            indexar(CampoClinico.ALERGIA, alergia);
+        }
+    }
+
+    // La versión se lee antes que las alergias: un autómata compilado mientras se agregaba una
+    // alergia queda con la versión vieja y el próximo chequeo lo recompila
+    public Set<String> conflictosConAlergias(String texto) {
+        int version = versionAlergias;
+        AutomataCompilado compilado = automataAlergenos;
+        if (compilado == null || compilado.version() != version) {
+            compilado = new AutomataCompilado(version, AutomataAlergenos.compilar(new ArrayList<>(alergias)));
+            if (versionAlergias == version) {
+                automataAlergenos = compilado;
+            }
+        }
+        return compilado.automata().buscar(texto);
+    }
+
+    public List<String> getEntradas(CampoClinico campo) {
+        return switch (campo) {
+            case DIAGNOSTICO -> diagnosticos;
+            case TRATAMIENTO -> tratamientos;
+            case ALERGIA -> alergias;
+        };
+    }
+
+    // CONSULTAS TEMPORALES: solo se leen los textos del rango pedido
+    // Entradas con instante en [desde, hasta); cualquiera de los extremos puede ser null
+    public List<EntradaClinica> getEntradas(CampoClinico campo, LocalDateTime desde, LocalDateTime hasta) {
+        LineaTemporal linea = lineaDe(campo);
+        if (linea == null) {
+            return Collections.emptyList();
+        }
+        return entradasEntre(campo, linea, linea.desde(desde), linea.hasta(hasta));
+    }
+
+    public List<EntradaClinica> getUltimasEntradas(CampoClinico campo, int cantidad) {
+        LineaTemporal linea = lineaDe(campo);
+        if (linea == null || cantidad <= 0) {
+            return Collections.emptyList();
+        }
+        return entradasEntre(campo, linea, Math.max(0, linea.getCantidad() - cantidad), linea.getCantidad());
+    }
+
+    private List<EntradaClinica> entradasEntre(CampoClinico campo, LineaTemporal linea, int desde, int hasta) {
+        List<String> textos = getEntradas(campo);
+        List<EntradaClinica> resultado = new ArrayList<>(Math.max(0, hasta - desde));
+        for (int i = desde; i < hasta; i++) {
+            resultado.add(new EntradaClinica(campo, linea.getInstante(i), textos.get(linea.getPosicion(i)), linea.getCita(i)));
+        }
+        return resultado;
+    }
+
+    private LineaTemporal lineaDe(CampoClinico campo) {
+        return lineasTemporales != null ? lineasTemporales[campo.ordinal()] : null;
+    }
+
+    private void registrarEnLinea(CampoClinico campo, LocalDateTime instante, int posicion, Cita cita) {
+        if (lineasTemporales == null) {
+            lineasTemporales = new LineaTemporal[CampoClinico.values().length];
+        }
+        LineaTemporal linea = lineasTemporales[campo.ordinal()];
+        if (linea == null) {
+            linea = new LineaTemporal();
+            lineasTemporales[campo.ordinal()] = linea;
+        }
+        linea.agregar(Objects.requireNonNull(instante, "El instante no puede ser nulo"), posicion, cita);
+    }
+
+    // La primera entrada crea la lista en el almacén del hospital del paciente, que decide si es escalonada
+    private List<String> agregar(List<String> lista, String valor) {
+        Hospital hospital = paciente.getHospital();
+        List<String> destino = !lista.isEmpty() ? lista
+                : hospital != null ? hospital.getHistorias().nuevaListaEntradas() : new ArrayList<>();
+        destino.add(valor);
+        return destino;
+    }
+
+    // Si el paciente ya está en un hospital, la entrada queda buscable en su índice clínico
+    private void indexar(CampoClinico campo, String texto) {
+        Hospital hospital = paciente.getHospital();
+        if (hospital != null) {
+            hospital.getIndiceClinico().indexar(campo, texto, paciente.getDni());
         }
     }
 }
@@ -1,5 +1,10 @@
 package org.jcr.entidades;
 
+import org.jcr.busqueda.IndiceClinico;
+import org.jcr.estadisticas.EstadisticasHospital;
+import org.jcr.repositorio.AlmacenHistorias;
+
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -8,11 +13,13 @@ import lombok.ToString;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 @Getter
-@ToString(exclude = {"departamentos", "pacientes"}) // Evita recursión
+@ToString(exclude = {"departamentos", "pacientes", "pacientesRegistrados", "estadisticas", "indiceClinico", "historias"}) // Evita recursión
 @Builder
 
 public class Hospital implements Serializable {
@@ -23,6 +30,12 @@ public class Hospital implements Serializable {
     private final String telefono;
     private final List<Departamento> departamentos = new ArrayList<>();
     private final List<Paciente> pacientes = new ArrayList<>();
+    // Mismo contenido que pacientes, para que agregarPaciente descarte duplicados (por DNI) en O(1)
+    @Getter(AccessLevel.NONE)
+    private final Set<Paciente> pacientesRegistrados = new HashSet<>();
+    private final EstadisticasHospital estadisticas = new EstadisticasHospital();
+    private final IndiceClinico indiceClinico = new IndiceClinico();
+    private final AlmacenHistorias historias = new AlmacenHistorias(); // Historias de sus pacientes
 
     // Builder personalizado MANTENER validaciones
     private Hospital(HospitalBuilder builder) {
@@ -59,15 +72,13 @@ public class Hospital implements Serializable {
     // MÉTODOS DE NEGOCIO
     public void agregarDepartamento(Departamento departamento) {
         if (departamento != null && !departamentos.contains(departamento)) {
-            departamentos.add(departamento);
-            departamento.setHospital(this);
+            departamento.setHospital(this); // setHospital agrega a la lista y actualiza estadísticas
         }
     }
 
     public void agregarPaciente(Paciente paciente) {
-        if (paciente != null && !pacientes.contains(paciente)) {
-            pacientes.add(paciente);
-            paciente.setHospital(this);
+        if (paciente != null && !pacientesRegistrados.contains(paciente)) {
+            paciente.setHospital(this); // setHospital agrega a la lista, actualiza estadísticas e indexa la historia
         }
     }
 
@@ -89,6 +100,16 @@ public class Hospital implements Serializable {
         return pacientes;
     }
 
+    void vincularPaciente(Paciente paciente) {
+        pacientes.add(paciente);
+        pacientesRegistrados.add(paciente);
+    }
+
+    void desvincularPaciente(Paciente paciente) {
+        pacientes.remove(paciente);
+        pacientesRegistrados.remove(paciente);
+    }
+
     // VALIDACIÓN - NO TOCAR
     private String validarString(String valor, String mensajeError) {
         Objects.requireNonNull(valor, mensajeError);
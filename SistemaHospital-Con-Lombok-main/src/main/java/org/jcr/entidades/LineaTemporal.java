@@ -0,0 +1,100 @@
+package org.jcr.entidades;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+// Entradas de un campo clínico ordenadas por instante: arreglos paralelos con el instante en
+// microsegundos, la posición del texto en la lista del campo y la cita de origen.
+// Las entradas casi siempre llegan en orden, así que agregar es O(1) amortizado.
+class LineaTemporal implements Serializable {
+    private long[] instantes = new long[4];
+    private int[] posiciones = new int[4];
+    private Cita[] citas = new Cita[4];
+    private int cantidad;
+
+    void agregar(LocalDateTime instante, int posicion, Cita cita) {
+        long clave = aMicros(instante);
+        if (cantidad == instantes.length) {
+            int capacidad = cantidad * 2;
+            instantes = Arrays.copyOf(instantes, capacidad);
+            posiciones = Arrays.copyOf(posiciones, capacidad);
+            citas = Arrays.copyOf(citas, capacidad);
+        }
+        int destino = primeraPosterior(clave);
+        int mover = cantidad - destino;
+        if (mover > 0) {
+            System.arraycopy(instantes, destino, instantes, destino + 1, mover);
+            System.arraycopy(posiciones, destino, posiciones, destino + 1, mover);
+            System.arraycopy(citas, destino, citas, destino + 1, mover);
+        }
+        instantes[destino] = clave;
+        posiciones[destino] = posicion;
+        citas[destino] = cita;
+        cantidad++;
+    }
+
+    int getCantidad() {
+        return cantidad;
+    }
+
+    // Rango de índices [desde, hasta) con instante en [inicio, fin)
+    int desde(LocalDateTime inicio) {
+        return inicio == null ? 0 : primeraNoAnterior(aMicros(inicio));
+    }
+
+    int hasta(LocalDateTime fin) {
+        return fin == null ? cantidad : primeraNoAnterior(aMicros(fin));
+    }
+
+    LocalDateTime getInstante(int indice) {
+        long micros = instantes[indice];
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    int getPosicion(int indice) {
+        return posiciones[indice];
+    }
+
+    Cita getCita(int indice) {
+        return citas[indice];
+    }
+
+    private int primeraNoAnterior(long clave) {
+        int bajo = 0;
+        int alto = cantidad;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (instantes[medio] < clave) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    // Con instantes iguales se conserva el orden de llegada
+    private int primeraPosterior(long clave) {
+        if (cantidad == 0 || instantes[cantidad - 1] <= clave) {
+            return cantidad;
+        }
+        int bajo = 0;
+        int alto = cantidad;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (instantes[medio] <= clave) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private static long aMicros(LocalDateTime instante) {
+        return instante.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + instante.getNano() / 1000;
+    }
+}
@@ -8,8 +8,10 @@ import lombok.experimental.SuperBuilder;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 @Getter
 @EqualsAndHashCode(callSuper = true, of = {"matricula"}) // Incluye Persona + matricula
@@ -24,7 +26,7 @@ public class Medico extends Persona implements Serializable {
 
     @Setter // Solo departamento es mutable
     private Departamento departamento;
-    private final List<Cita> citas = new ArrayList<>();
+    private final Set<Cita> citas = new LinkedHashSet<>();
 
     protected Medico(MedicoBuilder<?, ?> builder) {
         super(builder);
@@ -48,12 +50,24 @@ public class Medico extends Persona implements Serializable {
     }
 
     // MÉTODOS DE NEGOCIO
+    // Sincronizado como en Paciente: un médico puede atender en salas de otro hospital con su misma
+    // especialidad, así que dos particiones de CitaManagerParticionado le agregan citas a la vez
     public void addCita(Cita cita) {
-        this.citas.add(cita);
+        synchronized (citas) {
+            this.citas.add(cita);
+        }
+    }
+
+    public void removeCita(Cita cita) {
+        synchronized (citas) {
+            this.citas.remove(cita);
+        }
     }
 
     // Getter personalizado para lista inmutable
     public List<Cita> getCitas() {
-        return Collections.unmodifiableList(new ArrayList<>(citas));
+        synchronized (citas) {
+            return Collections.unmodifiableList(new ArrayList<>(citas));
+        }
     }
 }
\ No newline at end of file
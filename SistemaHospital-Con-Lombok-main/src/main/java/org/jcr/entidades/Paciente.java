@@ -1,5 +1,7 @@
 package org.jcr.entidades;
 
+
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -7,39 +9,53 @@ import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 
 import java.io.Serializable;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 @Getter
-@EqualsAndHashCode(callSuper = true) // Solo hereda de Persona (DNI)
+@EqualsAndHashCode(callSuper = true, onlyExplicitlyIncluded = true) // Solo hereda de Persona (DNI)
 @ToString(callSuper = true, of = {"telefono"})
 @SuperBuilder
 
 public class Paciente extends Persona implements Serializable {
     @Setter
     private Long id;
-    private final HistoriaClinica historiaClinica;
+    private final String numeroHistoria;
+    @Getter(AccessLevel.NONE)
+    private volatile HistoriaClinica historiaClinica; // Se carga o crea en el AlmacenHistorias del hospital al primer uso
     private final String telefono;
     private final String direccion;
 
     @Setter // Solo hospital es mutable
     private Hospital hospital;
-    private final List<Cita> citas = new ArrayList<>(); // Crea HistoriaClinica automáticamente
+    // Cita no redefine equals: conjunto por identidad con orden de alta, removeCita en O(1)
+    private final Set<Cita> citas = new LinkedHashSet<>();
 
     protected Paciente(PacienteBuilder<?, ?> builder) {
         super(builder);
         this.telefono = validarString(builder.telefono, "El teléfono no puede ser nulo ni vacío");
         this.direccion = validarString(builder.direccion, "La dirección no puede ser nula ni vacía");
-        this.historiaClinica = HistoriaClinica.builder()
-                .paciente(this)
-                .build();
+        this.numeroHistoria = builder.numeroHistoria != null
+                ? builder.numeroHistoria
+                : "HC-" + dni + "-" + LocalDate.now().getYear();
     }
 
     public static abstract class PacienteBuilder<C extends Paciente, B extends PacienteBuilder<C, B>> extends PersonaBuilder<C, B> {
         private String telefono;
         private String direccion;
+        private String numeroHistoria;
+
+        public B numeroHistoria(String numeroHistoria) {
+            this.numeroHistoria = numeroHistoria;
+            return self();
+        }
 
         public B telefono(String telefono) {
             this.telefono = telefono;
@@ -52,25 +68,72 @@ public class Paciente extends Persona implements Serializable {
         }
     }
 
+    // La historia clínica se muda con el paciente: sale del almacén del hospital anterior y entra al nuevo
     public void setHospital(Hospital hospital) {
         if (this.hospital != hospital) {
+            Optional<HistoriaClinica> historia = buscarHistoriaClinica();
+            historia.ifPresent(h -> historiaClinica = h);
             if (this.hospital != null) {
-                this.hospital.getInternalPacientes().remove(this);
+                Hospital anterior = this.hospital;
+                anterior.desvincularPaciente(this);
+                anterior.getEstadisticas().registrarPaciente(tipoSangre, -1);
+                historia.ifPresent(h -> {
+                    anterior.getIndiceClinico().quitarHistoria(h, dni);
+                    anterior.getHistorias().quitar(h);
+                });
             }
             this.hospital = hospital;
             if (hospital != null) {
-                hospital.getInternalPacientes().add(this);
+                hospital.vincularPaciente(this);
+                hospital.getEstadisticas().registrarPaciente(tipoSangre, 1);
+                historia.ifPresent(h -> {
+                    hospital.getHistorias().guardar(h);
+                    hospital.getIndiceClinico().indexarHistoria(h, dni);
+                });
             }
         }
     }
 
+    // HISTORIA CLÍNICA
+    public HistoriaClinica getHistoriaClinica() {
+        HistoriaClinica historia = historiaClinica;
+        if (historia == null) {
+            Function<String, HistoriaClinica> creador = numero -> HistoriaClinica.builder().numeroHistoria(numero).paciente(this).build();
+            Hospital actual = hospital;
+            historia = actual != null ? actual.getHistorias().obtenerOCrear(numeroHistoria, creador) : creador.apply(numeroHistoria);
+            historiaClinica = historia;
+        }
+        return historia;
+    }
+
+    // No crea la historia si todavía no existe
+    public Optional<HistoriaClinica> buscarHistoriaClinica() {
+        HistoriaClinica historia = historiaClinica;
+        Hospital actual = hospital;
+        if (historia != null || actual == null) {
+            return Optional.ofNullable(historia);
+        }
+        return actual.getHistorias().buscar(numeroHistoria);
+    }
+
     // MÉTODOS DE NEGOCIO
+    // Sincronizado: un paciente puede recibir citas de particiones de distintos hospitales a la vez
     public void addCita(Cita cita) {
-        this.citas.add(cita);
+        synchronized (citas) {
+            this.citas.add(cita);
+        }
+    }
+
+    public void removeCita(Cita cita) {
+        synchronized (citas) {
+            this.citas.remove(cita);
+        }
     }
 
     public List<Cita> getCitas() {
-        return Collections.unmodifiableList(new ArrayList<>(citas));
+        synchronized (citas) {
+            return Collections.unmodifiableList(new ArrayList<>(citas));
+        }
     }
 
     // VALIDACIÓN
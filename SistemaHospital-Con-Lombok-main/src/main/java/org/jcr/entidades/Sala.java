@@ -8,8 +8,10 @@ import lombok.ToString;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 @Getter
 @ToString(of = {"numero", "tipo"}) // Evitar referencia circular con departamento
@@ -20,7 +22,7 @@ public class Sala implements Serializable {
     private final String numero;
     private final String tipo;
     private final Departamento departamento;
-    private final List<Cita> citas = new ArrayList<>();
+    private final Set<Cita> citas = new LinkedHashSet<>();
 
     private Sala(SalaBuilder builder) {
         this.numero = validarString(builder.numero, "El número de sala no puede ser nulo ni vacío");
@@ -54,12 +56,24 @@ public class Sala implements Serializable {
     }
 
     // METODO DE NEGOCIO
+    // Sincronizado como Paciente y Medico: los servicios asíncronos agregan y quitan citas desde su
+    // hilo escritor mientras otros hilos leen la lista
     public void addCita(Cita cita) {
-        this.citas.add(cita);
+        synchronized (citas) {
+            this.citas.add(cita);
+        }
+    }
+
+    public void removeCita(Cita cita) {
+        synchronized (citas) {
+            this.citas.remove(cita);
+        }
     }
 
     public List<Cita> getCitas() {
-        return Collections.unmodifiableList(new ArrayList<>(citas));
+        synchronized (citas) {
+            return Collections.unmodifiableList(new ArrayList<>(citas));
+        }
     }
 
     // VALIDACIÓN
@@ -0,0 +1,15 @@
+package org.jcr.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Getter
+
+public enum CampoClinico {
+    DIAGNOSTICO("Diagnóstico"),
+    TRATAMIENTO("Tratamiento"),
+    ALERGIA("Alergia");
+
+    private final String descripcion;
+}
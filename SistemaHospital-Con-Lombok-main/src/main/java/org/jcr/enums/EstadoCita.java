@@ -14,4 +14,9 @@ public enum EstadoCita {
     NO_ASISTIO("No Asistió");
 
     private final String descripcion;
+
+    // Una cita en estado final ya no cambia: es historial y puede archivarse
+    public boolean esFinal() {
+        return this == COMPLETADA || this == CANCELADA || this == NO_ASISTIO;
+    }
 }
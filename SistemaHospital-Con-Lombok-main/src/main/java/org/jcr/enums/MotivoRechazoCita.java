@@ -0,0 +1,17 @@
+package org.jcr.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Getter
+
+public enum MotivoRechazoCita {
+    FECHA_PASADA("Fecha en el pasado"),
+    COSTO_INVALIDO("Costo inválido"),
+    MEDICO_NO_DISPONIBLE("Médico no disponible"),
+    SALA_NO_DISPONIBLE("Sala no disponible"),
+    ESPECIALIDAD_INCOMPATIBLE("Especialidad incompatible");
+
+    private final String descripcion;
+}
@@ -0,0 +1,117 @@
+package org.jcr.estadisticas;
+
+import org.jcr.enums.EspecialidadMedica;
+import org.jcr.enums.EstadoCita;
+import org.jcr.enums.TipoSangre;
+
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Contadores que se mantienen al agregar pacientes, médicos, salas y citas,
+// indexados por ordinal del enum para que los tableros lean en O(1)
+public class EstadisticasHospital implements Serializable {
+    private final AtomicLong departamentos = new AtomicLong();
+    private final AtomicLongArray pacientesPorTipoSangre = new AtomicLongArray(TipoSangre.values().length);
+    private final AtomicLongArray medicosPorEspecialidad = new AtomicLongArray(EspecialidadMedica.values().length);
+    private final AtomicLongArray salasPorEspecialidad = new AtomicLongArray(EspecialidadMedica.values().length);
+    private final AtomicLongArray citasPorEstado = new AtomicLongArray(EstadoCita.values().length);
+
+    // ACTUALIZACIÓN
+    public void registrarDepartamento(int delta) {
+        departamentos.addAndGet(delta);
+    }
+
+    public void registrarPaciente(TipoSangre tipoSangre, int delta) {
+        pacientesPorTipoSangre.addAndGet(tipoSangre.ordinal(), delta);
+    }
+
+    public void registrarMedico(EspecialidadMedica especialidad, int delta) {
+        medicosPorEspecialidad.addAndGet(especialidad.ordinal(), delta);
+    }
+
+    public void registrarSala(EspecialidadMedica especialidad, int delta) {
+        salasPorEspecialidad.addAndGet(especialidad.ordinal(), delta);
+    }
+
+    public void registrarCita(EstadoCita estado, int delta) {
+        citasPorEstado.addAndGet(estado.ordinal(), delta);
+    }
+
+    public void cambiarEstadoCita(EstadoCita anterior, EstadoCita nuevo) {
+        if (anterior != nuevo) {
+            citasPorEstado.decrementAndGet(anterior.ordinal());
+            citasPorEstado.incrementAndGet(nuevo.ordinal());
+        }
+    }
+
+    // CONSULTAS
+    public long getTotalDepartamentos() {
+        return departamentos.get();
+    }
+
+    public long getPacientes(TipoSangre tipoSangre) {
+        return pacientesPorTipoSangre.get(tipoSangre.ordinal());
+    }
+
+    public long getMedicos(EspecialidadMedica especialidad) {
+        return medicosPorEspecialidad.get(especialidad.ordinal());
+    }
+
+    public long getSalas(EspecialidadMedica especialidad) {
+        return salasPorEspecialidad.get(especialidad.ordinal());
+    }
+
+    public long getCitas(EstadoCita estado) {
+        return citasPorEstado.get(estado.ordinal());
+    }
+
+    public long getTotalPacientes() {
+        return sumar(pacientesPorTipoSangre);
+    }
+
+    public long getTotalMedicos() {
+        return sumar(medicosPorEspecialidad);
+    }
+
+    public long getTotalSalas() {
+        return sumar(salasPorEspecialidad);
+    }
+
+    public long getTotalCitas() {
+        return sumar(citasPorEstado);
+    }
+
+    public Map<TipoSangre, Long> getDistribucionTipoSangre() {
+        Map<TipoSangre, Long> distribucion = new EnumMap<>(TipoSangre.class);
+        for (TipoSangre tipo : TipoSangre.values()) {
+            long cantidad = getPacientes(tipo);
+            if (cantidad > 0) {
+                distribucion.put(tipo, cantidad);
+            }
+        }
+        return distribucion;
+    }
+
+    public Map<EstadoCita, Long> getDistribucionEstadoCita() {
+        Map<EstadoCita, Long> distribucion = new EnumMap<>(EstadoCita.class);
+        for (EstadoCita estado : EstadoCita.values()) {
+            long cantidad = getCitas(estado);
+            if (cantidad > 0) {
+                distribucion.put(estado, cantidad);
+            }
+        }
+        return distribucion;
+    }
+
+    // Los arreglos tienen tantas posiciones como valores del enum: la suma es de costo constante
+    private long sumar(AtomicLongArray contadores) {
+        long total = 0;
+        for (int i = 0; i < contadores.length(); i++) {
+            total += contadores.get(i);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,40 @@
+package org.jcr.eventos;
+
+import org.jcr.enums.EstadoCita;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Vista derivada: cuántas citas indexadas hay en cada estado, actualizada evento a evento sin recorrer
+// las citas. Para arrancar con las que ya existían se suscribe con CitaManager.suscribir
+public class ConteoCitasPorEstado extends SuscriptorEventosCitas {
+    private final Map<EstadoCita, LongAdder> conteos = new EnumMap<>(EstadoCita.class);
+
+    public ConteoCitasPorEstado() {
+        for (EstadoCita estado : EstadoCita.values()) {
+            conteos.put(estado, new LongAdder());
+        }
+    }
+
+    @Override
+    protected void aplicar(EventoCita evento) {
+        if (evento instanceof EventoCita.CitaProgramada programada) {
+            conteos.get(programada.estado()).increment();
+        } else if (evento instanceof EventoCita.CitaRetirada retirada) {
+            conteos.get(retirada.estado()).decrement();
+        } else if (evento instanceof EventoCita.EstadoCambiado cambio) {
+            conteos.get(cambio.anterior()).decrement();
+            conteos.get(cambio.nuevo()).increment();
+        }
+    }
+
+    @Override
+    protected void reiniciar() {
+        conteos.values().forEach(LongAdder::reset);
+    }
+
+    public long getCantidad(EstadoCita estado) {
+        return conteos.get(estado).sum();
+    }
+}
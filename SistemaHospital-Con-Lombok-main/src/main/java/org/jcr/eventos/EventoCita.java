@@ -0,0 +1,29 @@
+package org.jcr.eventos;
+
+import org.jcr.entidades.Cita;
+import org.jcr.enums.EstadoCita;
+
+import java.time.Instant;
+
+// Cambios sobre las citas de un CitaManager, en el orden en que ocurrieron. Toda cita que entra a los
+// índices llega como CitaProgramada y toda cita que sale (cancelada, archivada o descartada al recargar)
+// como CitaRetirada, así una vista derivada puede sumar y restar sin volver a recorrer las citas
+public sealed interface EventoCita {
+    Cita cita();
+
+    Instant instante();
+
+    // También se emite por cada cita leída en cargarCitas; estado es el que tenía al indexarse
+    record CitaProgramada(Cita cita, EstadoCita estado, Instant instante) implements EventoCita {
+    }
+
+    // estado es el que tenía al salir de los índices
+    record CitaRetirada(Cita cita, EstadoCita estado, Instant instante) implements EventoCita {
+    }
+
+    record EstadoCambiado(Cita cita, EstadoCita anterior, EstadoCita nuevo, Instant instante) implements EventoCita {
+    }
+
+    record ObservacionActualizada(Cita cita, String anteriores, String nuevas, Instant instante) implements EventoCita {
+    }
+}
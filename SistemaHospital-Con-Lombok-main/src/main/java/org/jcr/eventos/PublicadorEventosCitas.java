@@ -0,0 +1,217 @@
+package org.jcr.eventos;
+
+import org.jcr.excepciones.EventosPerdidosException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Publica los EventoCita en lotes a través de un SubmissionPublisher. Los productores dejan cada
+// evento en una cola acotada y un hilo despachador arma lotes con todo lo acumulado.
+// publicar nunca espera: se llama con el monitor del CitaManager tomado, así que un suscriptor lento
+// no puede frenar las reservas. La contrapresión llega hasta la cola (si un suscriptor no pide más,
+// se llena su buffer, el despachador espera en submit y la cola se llena); con la cola llena el evento
+// se descarta y se cuenta en getDescartados. Donde empieza el hueco los suscriptores de ese momento
+// reciben onError con EventosPerdidosException y quedan dados de baja: para seguir tienen que volver
+// a suscribirse partiendo de una foto (CitaManager.suscribir).
+// Las altas pasan por la misma cola: un suscriptor recibe justo los eventos publicados después de
+// suscribirse, lo que permite partir de una foto tomada en ese mismo punto (CitaManager.suscribir).
+public class PublicadorEventosCitas implements Flow.Publisher<List<EventoCita>>, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(PublicadorEventosCitas.class);
+
+    public static final int TAMANIO_LOTE_POR_DEFECTO = 256;
+    public static final int CAPACIDAD_COLA_POR_DEFECTO = 16_384;
+    private static final long ESPERA_MILIS = 10;
+    private static final long ESPERA_CIERRE_SEGUNDOS = 30;
+
+    // EventoCita, Alta o PERDIDA, en orden de llegada; solo los eventos cuentan contra la capacidad
+    private final BlockingQueue<Object> pendientes = new LinkedBlockingQueue<>();
+    private final AtomicInteger eventosEnCola = new AtomicInteger();
+    private final AtomicInteger altasEnCola = new AtomicInteger();
+    private final AtomicLong descartados = new AtomicLong();
+    // Hay una marca de pérdida encolada después de la última alta: otro descarte cae en el mismo hueco
+    // para todos los suscriptores que la van a recibir. Lo protege marcas, que solo se toma al descartar
+    // y al encolar un alta
+    private final Object marcas = new Object();
+    private boolean perdidaEnCola;
+    private final int capacidadCola;
+    // Lo reemplaza el despachador después de cortar a los suscriptores por una pérdida
+    private volatile SubmissionPublisher<List<EventoCita>> publicador;
+    private final ExecutorService entregas;
+    private final Thread despachador;
+    private final int tamanioLote;
+    private volatile boolean cerrado;
+    // Lo actualiza el despachador: hasSubscribers toma el lock del SubmissionPublisher, que submit
+    // retiene mientras espera lugar en el buffer de un suscriptor, y publicar no puede esperar
+    private volatile boolean conSuscriptores;
+
+    public PublicadorEventosCitas() {
+        this(TAMANIO_LOTE_POR_DEFECTO, CAPACIDAD_COLA_POR_DEFECTO);
+    }
+
+    public PublicadorEventosCitas(int tamanioLote, int capacidadCola) {
+        if (tamanioLote <= 0 || capacidadCola <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote y la capacidad de la cola deben ser positivos");
+        }
+        this.tamanioLote = tamanioLote;
+        this.capacidadCola = capacidadCola;
+        this.entregas = Executors.newCachedThreadPool(tarea -> {
+            Thread hilo = new Thread(tarea, "eventos-citas-suscriptor");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.publicador = nuevoPublicador();
+        this.despachador = new Thread(this::despachar, "eventos-citas");
+        this.despachador.setDaemon(true);
+        this.despachador.start();
+    }
+
+    private record Alta(Flow.Subscriber<? super List<EventoCita>> suscriptor) {
+    }
+
+    private static final Object PERDIDA = new Object();
+
+    // Sin suscriptores (ni altas en camino) el evento se descarta: quien se suscriba después parte de una foto
+    public void publicar(EventoCita evento) {
+        if (cerrado || (!conSuscriptores && altasEnCola.get() == 0)) {
+            return;
+        }
+        if (eventosEnCola.incrementAndGet() > capacidadCola) {
+            eventosEnCola.decrementAndGet();
+            if (descartados.getAndIncrement() == 0) {
+                log.warn("Cola de eventos de citas llena: se descartan eventos hasta que los suscriptores se pongan al día");
+            }
+            // Una sola marca por hueco; no cuenta contra la capacidad, como las altas
+            synchronized (marcas) {
+                if (!perdidaEnCola) {
+                    perdidaEnCola = true;
+                    pendientes.add(PERDIDA);
+                }
+            }
+            return;
+        }
+        pendientes.add(evento);
+    }
+
+    // Recibe los eventos publicados desde este punto, sin estado inicial
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<EventoCita>> suscriptor) {
+        if (cerrado) {
+            publicador.subscribe(suscriptor);
+            return;
+        }
+        synchronized (marcas) {
+            altasEnCola.incrementAndGet();
+            pendientes.add(new Alta(suscriptor));
+            perdidaEnCola = false;
+        }
+    }
+
+    // Recibe primero iniciales (una foto tomada por quien llama) y después los eventos publicados desde
+    // este punto. Para que no haya huecos ni repeticiones, la foto y esta llamada deben hacerse sin que
+    // se publique nada en el medio, como hace CitaManager.suscribir bajo su monitor
+    public void suscribir(SuscriptorEventosCitas suscriptor, List<EventoCita> iniciales) {
+        suscriptor.partirDe(List.copyOf(iniciales));
+        subscribe(suscriptor);
+    }
+
+    public int getCantidadSuscriptores() {
+        return publicador.getNumberOfSubscribers();
+    }
+
+    public int getPendientes() {
+        return eventosEnCola.get();
+    }
+
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    // Entrega lo que quedaba en la cola, espera a que los suscriptores lo consuman y los completa
+    @Override
+    public void close() throws InterruptedException {
+        cerrado = true;
+        despachador.join();
+        // Un alta que llegó junto con el cierre igual recibe su foto y la finalización
+        Object resto;
+        while ((resto = pendientes.poll()) != null) {
+            if (resto instanceof Alta alta) {
+                publicador.subscribe(alta.suscriptor());
+            } else if (resto == PERDIDA) {
+                cortarSuscriptores();
+            }
+        }
+        publicador.close();
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(ESPERA_CIERRE_SEGUNDOS);
+        while (publicador.estimateMaximumLag() > 0 && System.nanoTime() < limite) {
+            Thread.sleep(ESPERA_MILIS);
+        }
+        if (publicador.estimateMaximumLag() > 0) {
+            log.warn("Se cierran los eventos de citas con lotes sin consumir por algún suscriptor");
+        }
+        entregas.shutdown();
+        entregas.awaitTermination(ESPERA_CIERRE_SEGUNDOS, TimeUnit.SECONDS);
+    }
+
+    private void despachar() {
+        List<EventoCita> lote = new ArrayList<>(tamanioLote);
+        try {
+            while (!cerrado || !pendientes.isEmpty()) {
+                conSuscriptores = publicador.hasSubscribers();
+                Object siguiente = pendientes.poll(ESPERA_MILIS, TimeUnit.MILLISECONDS);
+                while (siguiente != null) {
+                    if (siguiente instanceof Alta alta) {
+                        // Lo acumulado es anterior al alta: sale antes de sumar al suscriptor
+                        entregar(lote);
+                        publicador.subscribe(alta.suscriptor());
+                        conSuscriptores = true;
+                        altasEnCola.decrementAndGet();
+                    } else if (siguiente == PERDIDA) {
+                        // Lo acumulado llegó completo; lo que sigue ya tiene un hueco
+                        entregar(lote);
+                        cortarSuscriptores();
+                    } else {
+                        lote.add((EventoCita) siguiente);
+                        eventosEnCola.decrementAndGet();
+                        if (lote.size() == tamanioLote) {
+                            entregar(lote);
+                        }
+                    }
+                    siguiente = pendientes.poll();
+                }
+                entregar(lote);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void cortarSuscriptores() {
+        SubmissionPublisher<List<EventoCita>> anterior = publicador;
+        publicador = nuevoPublicador();
+        conSuscriptores = false;
+        anterior.closeExceptionally(new EventosPerdidosException(
+                "Se descartaron eventos de citas; hay que volver a suscribirse desde una foto", descartados.get()));
+    }
+
+    private SubmissionPublisher<List<EventoCita>> nuevoPublicador() {
+        return new SubmissionPublisher<>(entregas, Flow.defaultBufferSize());
+    }
+
+    private void entregar(List<EventoCita> lote) {
+        if (!lote.isEmpty()) {
+            publicador.submit(List.copyOf(lote));
+            lote.clear();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.jcr.eventos;
+
+import org.jcr.excepciones.EventosPerdidosException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Flow;
+
+// Base para vistas derivadas que se mantienen con los eventos: pide un lote por vez, así el
+// ritmo lo marca el suscriptor. Un error al aplicar un evento se registra y no corta la suscripción.
+// Suscrita con CitaManager.suscribir, aplica primero la foto inicial y después los eventos posteriores.
+// Si el publicador descarta eventos la suscripción se corta y queda desincronizada; la misma instancia
+// se puede volver a suscribir y arranca de cero con la nueva foto.
+public abstract class SuscriptorEventosCitas implements Flow.Subscriber<List<EventoCita>> {
+    private static final Logger log = LoggerFactory.getLogger(SuscriptorEventosCitas.class);
+
+    private Flow.Subscription suscripcion;
+    private List<EventoCita> iniciales = List.of();
+    private volatile boolean desincronizado;
+
+    // Lo fija el publicador antes de encolar el alta; se aplica en el hilo de entrega
+    void partirDe(List<EventoCita> iniciales) {
+        this.iniciales = iniciales;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription suscripcion) {
+        this.suscripcion = suscripcion;
+        reiniciar();
+        desincronizado = false;
+        aplicarTodos(iniciales);
+        iniciales = List.of();
+        suscripcion.request(1);
+    }
+
+    @Override
+    public void onNext(List<EventoCita> lote) {
+        try {
+            aplicarTodos(lote);
+        } finally {
+            suscripcion.request(1);
+        }
+    }
+
+    private void aplicarTodos(List<EventoCita> eventos) {
+        for (EventoCita evento : eventos) {
+            try {
+                aplicar(evento);
+            } catch (RuntimeException e) {
+                log.error("No se pudo aplicar {} en {}", evento.getClass().getSimpleName(), getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        if (error instanceof EventosPerdidosException perdidos) {
+            desincronizado = true;
+            log.warn("{} quedó desincronizado ({} eventos descartados); hay que volver a suscribirlo",
+                    getClass().getSimpleName(), perdidos.getDescartados());
+            return;
+        }
+        log.error("Se cortó la suscripción de {}", getClass().getSimpleName(), error);
+    }
+
+    public boolean isDesincronizado() {
+        return desincronizado;
+    }
+
+    // Vuelve la vista a su estado vacío antes de aplicar la foto de una suscripción
+    protected void reiniciar() {
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    protected abstract void aplicar(EventoCita evento);
+}
@@ -0,0 +1,18 @@
+package org.jcr.excepciones;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Un tratamiento que choca con alergias registradas del paciente; lleva las alergias detectadas
+@Getter
+public class AlergiaException extends Exception {
+    private final Set<String> alergias;
+
+    public AlergiaException(String message, Set<String> alergias) {
+        super(message);
+        this.alergias = Collections.unmodifiableSet(new LinkedHashSet<>(alergias));
+    }
+}
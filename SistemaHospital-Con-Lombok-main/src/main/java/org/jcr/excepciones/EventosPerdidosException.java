@@ -0,0 +1,14 @@
+package org.jcr.excepciones;
+
+import lombok.Getter;
+
+// Un suscriptor dejó de recibir eventos porque la cola se llenó; lleva cuántos se descartaron hasta ese punto
+@Getter
+public class EventosPerdidosException extends RuntimeException {
+    private final long descartados;
+
+    public EventosPerdidosException(String message, long descartados) {
+        super(message);
+        this.descartados = descartados;
+    }
+}
@@ -0,0 +1,93 @@
+package org.jcr.metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma de latencias en nanosegundos con cubetas log-lineales al estilo HDR:
+// cada potencia de dos se divide en 16 sub-cubetas, así el error relativo queda por debajo del 6,25%.
+// Registrar es un incremento atómico sin locks; ocupa 1024 contadores fijos.
+public class HistogramaLatencia {
+    private static final int BITS_SUB = 4;
+    private static final int SUB_CUBETAS = 1 << BITS_SUB;
+    private static final int CUBETAS = 64 * SUB_CUBETAS;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    private final LongAdder cantidad = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    public void registrar(long nanos) {
+        long valor = Math.max(0, nanos);
+        cubetas.incrementAndGet(indice(valor));
+        cantidad.increment();
+        suma.add(valor);
+        long actual = maximo.get();
+        while (valor > actual && !maximo.compareAndSet(actual, valor)) {
+            actual = maximo.get();
+        }
+    }
+
+    public long getCantidad() {
+        return cantidad.sum();
+    }
+
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    public double getMedia() {
+        long total = cantidad.sum();
+        return total == 0 ? 0 : (double) suma.sum() / total;
+    }
+
+    // Cota superior de la cubeta que contiene el percentil pedido (0 < fraccion <= 1)
+    public long percentil(double fraccion) {
+        long total = 0;
+        long[] copia = new long[CUBETAS];
+        for (int i = 0; i < CUBETAS; i++) {
+            copia[i] = cubetas.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(fraccion * total));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) {
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    public void reiniciar() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cubetas.set(i, 0);
+        }
+        cantidad.reset();
+        suma.reset();
+        maximo.set(0);
+    }
+
+    static int indice(long valor) {
+        if (valor < SUB_CUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int sub = (int) (valor >>> (exponente - BITS_SUB)) & (SUB_CUBETAS - 1);
+        return (exponente - BITS_SUB + 1) * SUB_CUBETAS + sub;
+    }
+
+    static long limiteSuperior(int indice) {
+        if (indice < SUB_CUBETAS) {
+            return indice;
+        }
+        int exponente = indice / SUB_CUBETAS + BITS_SUB - 1;
+        int desplazamiento = exponente - BITS_SUB;
+        long inferior = (long) (SUB_CUBETAS + indice % SUB_CUBETAS) << desplazamiento;
+        return inferior + (1L << desplazamiento) - 1;
+    }
+}
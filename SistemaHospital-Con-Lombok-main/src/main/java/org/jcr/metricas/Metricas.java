@@ -0,0 +1,47 @@
+package org.jcr.metricas;
+
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+// Punto de acceso a las métricas. Se habilitan con -Dhospital.metricas=true; al ser static final,
+// con las métricas apagadas el JIT elimina los bloques "if (Metricas.HABILITADAS)" y el costo es nulo.
+public final class Metricas {
+    public static final boolean HABILITADAS = Boolean.getBoolean("hospital.metricas");
+
+    public static final MetricasCitas CITAS = new MetricasCitas();
+    public static final MetricasRepositorio REPOSITORIO = new MetricasRepositorio();
+
+    static {
+        if (HABILITADAS) {
+            registrarEnJmx(CITAS, "org.jcr:type=Citas");
+            registrarEnJmx(REPOSITORIO, "org.jcr:type=Repositorios");
+        }
+    }
+
+    private Metricas() {
+    }
+
+    public static long inicio() {
+        return HABILITADAS ? System.nanoTime() : 0L;
+    }
+
+    public static long transcurrido(long inicio) {
+        return System.nanoTime() - inicio;
+    }
+
+    private static void registrarEnJmx(Object mbean, String nombre) {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(nombre);
+            if (!servidor.isRegistered(objectName)) {
+                servidor.registerMBean(mbean, objectName);
+            }
+        } catch (JMException e) {
+            LoggerFactory.getLogger(Metricas.class).warn("No se pudieron registrar las métricas en JMX ({})", nombre, e);
+        }
+    }
+}
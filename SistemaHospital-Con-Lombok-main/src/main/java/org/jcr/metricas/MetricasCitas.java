@@ -0,0 +1,154 @@
+package org.jcr.metricas;
+
+import org.jcr.enums.MotivoRechazoCita;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Contadores e histogramas de CitaManager. Quien instrumenta debe chequear Metricas.HABILITADAS antes de medir.
+public class MetricasCitas implements MetricasCitasMXBean {
+    private final HistogramaLatencia programarExitosa = new HistogramaLatencia();
+    private final Map<MotivoRechazoCita, HistogramaLatencia> programarRechazada = new EnumMap<>(MotivoRechazoCita.class);
+    private final HistogramaLatencia disponibilidad = new HistogramaLatencia();
+    private final HistogramaLatencia cargar = new HistogramaLatencia();
+    private final HistogramaLatencia guardar = new HistogramaLatencia();
+    private final LongAdder citasCargadas = new LongAdder();
+    private final LongAdder conflictosDeVersion = new LongAdder();
+
+    MetricasCitas() {
+        for (MotivoRechazoCita motivo : MotivoRechazoCita.values()) {
+            programarRechazada.put(motivo, new HistogramaLatencia());
+        }
+    }
+
+    // REGISTRO
+    public void programada(long nanos) {
+        programarExitosa.registrar(nanos);
+    }
+
+    public void rechazada(MotivoRechazoCita motivo, long nanos) {
+        programarRechazada.get(motivo).registrar(nanos);
+    }
+
+    public void disponibilidadVerificada(long nanos) {
+        disponibilidad.registrar(nanos);
+    }
+
+    public void conflictoDeVersion() {
+        conflictosDeVersion.increment();
+    }
+
+    public void cargaCsv(long nanos, long citas) {
+        cargar.registrar(nanos);
+        citasCargadas.add(citas);
+    }
+
+    public void guardadoCsv(long nanos) {
+        guardar.registrar(nanos);
+    }
+
+    public HistogramaLatencia getHistogramaProgramar() {
+        return programarExitosa;
+    }
+
+    public HistogramaLatencia getHistogramaRechazo(MotivoRechazoCita motivo) {
+        return programarRechazada.get(motivo);
+    }
+
+    // JMX
+    @Override
+    public long getCitasProgramadas() {
+        return programarExitosa.getCantidad();
+    }
+
+    @Override
+    public long getCitasRechazadas() {
+        long total = 0;
+        for (HistogramaLatencia histograma : programarRechazada.values()) {
+            total += histograma.getCantidad();
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Long> getRechazosPorMotivo() {
+        Map<String, Long> resultado = new LinkedHashMap<>();
+        programarRechazada.forEach((motivo, histograma) -> resultado.put(motivo.name(), histograma.getCantidad()));
+        return resultado;
+    }
+
+    @Override
+    public double getTasaRechazo() {
+        long rechazadas = getCitasRechazadas();
+        long total = rechazadas + getCitasProgramadas();
+        return total == 0 ? 0 : (double) rechazadas / total;
+    }
+
+    @Override
+    public long getConflictosDeVersion() {
+        return conflictosDeVersion.sum();
+    }
+
+    @Override
+    public double getProgramarMediaMicros() {
+        return programarExitosa.getMedia() / 1_000.0;
+    }
+
+    @Override
+    public double getProgramarP50Micros() {
+        return programarExitosa.percentil(0.50) / 1_000.0;
+    }
+
+    @Override
+    public double getProgramarP99Micros() {
+        return programarExitosa.percentil(0.99) / 1_000.0;
+    }
+
+    @Override
+    public double getProgramarP999Micros() {
+        return programarExitosa.percentil(0.999) / 1_000.0;
+    }
+
+    @Override
+    public double getDisponibilidadP99Micros() {
+        return disponibilidad.percentil(0.99) / 1_000.0;
+    }
+
+    @Override
+    public long getCargasCsv() {
+        return cargar.getCantidad();
+    }
+
+    @Override
+    public long getCitasCargadas() {
+        return citasCargadas.sum();
+    }
+
+    @Override
+    public double getCargarP99Millis() {
+        return cargar.percentil(0.99) / 1_000_000.0;
+    }
+
+    @Override
+    public long getGuardadosCsv() {
+        return guardar.getCantidad();
+    }
+
+    @Override
+    public double getGuardarP99Millis() {
+        return guardar.percentil(0.99) / 1_000_000.0;
+    }
+
+    @Override
+    public void reiniciar() {
+        programarExitosa.reiniciar();
+        programarRechazada.values().forEach(HistogramaLatencia::reiniciar);
+        disponibilidad.reiniciar();
+        cargar.reiniciar();
+        guardar.reiniciar();
+        citasCargadas.reset();
+        conflictosDeVersion.reset();
+    }
+}
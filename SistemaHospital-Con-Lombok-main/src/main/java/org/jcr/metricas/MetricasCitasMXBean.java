@@ -0,0 +1,38 @@
+package org.jcr.metricas;
+
+import java.util.Map;
+
+// Vista JMX de las métricas de citas: org.jcr:type=Citas
+public interface MetricasCitasMXBean {
+    long getCitasProgramadas();
+
+    long getCitasRechazadas();
+
+    Map<String, Long> getRechazosPorMotivo();
+
+    double getTasaRechazo();
+
+    long getConflictosDeVersion();
+
+    double getProgramarMediaMicros();
+
+    double getProgramarP50Micros();
+
+    double getProgramarP99Micros();
+
+    double getProgramarP999Micros();
+
+    double getDisponibilidadP99Micros();
+
+    long getCargasCsv();
+
+    long getCitasCargadas();
+
+    double getCargarP99Millis();
+
+    long getGuardadosCsv();
+
+    double getGuardarP99Millis();
+
+    void reiniciar();
+}
@@ -0,0 +1,90 @@
+package org.jcr.metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Métricas sumadas de todos los InMemoryRepository; "entidades" es la cantidad guardada entre todos
+public class MetricasRepositorio implements MetricasRepositorioMXBean {
+    private final LongAdder entidades = new LongAdder();
+    private final HistogramaLatencia guardar = new HistogramaLatencia();
+    private final LongAdder busquedasPorId = new LongAdder();
+    private final HistogramaLatencia busquedaPorCampo = new HistogramaLatencia();
+    private final LongAdder actualizaciones = new LongAdder();
+    private final LongAdder eliminaciones = new LongAdder();
+
+    MetricasRepositorio() {
+    }
+
+    // REGISTRO
+    public void guardado(long nanos) {
+        guardar.registrar(nanos);
+        entidades.increment();
+    }
+
+    public void busquedaPorId() {
+        busquedasPorId.increment();
+    }
+
+    public void busquedaPorCampo(long nanos) {
+        busquedaPorCampo.registrar(nanos);
+    }
+
+    public void actualizacion() {
+        actualizaciones.increment();
+    }
+
+    public void eliminacion(int cantidad) {
+        eliminaciones.add(cantidad);
+        entidades.add(-cantidad);
+    }
+
+    // JMX
+    @Override
+    public long getEntidades() {
+        return entidades.sum();
+    }
+
+    @Override
+    public long getGuardados() {
+        return guardar.getCantidad();
+    }
+
+    @Override
+    public double getGuardarP99Micros() {
+        return guardar.percentil(0.99) / 1_000.0;
+    }
+
+    @Override
+    public long getBusquedasPorId() {
+        return busquedasPorId.sum();
+    }
+
+    @Override
+    public long getBusquedasPorCampo() {
+        return busquedaPorCampo.getCantidad();
+    }
+
+    @Override
+    public double getBusquedaPorCampoP99Micros() {
+        return busquedaPorCampo.percentil(0.99) / 1_000.0;
+    }
+
+    @Override
+    public long getActualizaciones() {
+        return actualizaciones.sum();
+    }
+
+    @Override
+    public long getEliminaciones() {
+        return eliminaciones.sum();
+    }
+
+    // No toca "entidades": sigue reflejando lo que hay en memoria
+    @Override
+    public void reiniciar() {
+        guardar.reiniciar();
+        busquedasPorId.reset();
+        busquedaPorCampo.reiniciar();
+        actualizaciones.reset();
+        eliminaciones.reset();
+    }
+}
@@ -0,0 +1,22 @@
+package org.jcr.metricas;
+
+// Vista JMX de las métricas agregadas de los repositorios en memoria: org.jcr:type=Repositorios
+public interface MetricasRepositorioMXBean {
+    long getEntidades();
+
+    long getGuardados();
+
+    double getGuardarP99Micros();
+
+    long getBusquedasPorId();
+
+    long getBusquedasPorCampo();
+
+    double getBusquedaPorCampoP99Micros();
+
+    long getActualizaciones();
+
+    long getEliminaciones();
+
+    void reiniciar();
+}
@@ -0,0 +1,43 @@
+package org.jcr.persistencia;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+public final class JpaConfig {
+    // Perfil activo: -Dhospital.perfil=dev para ver el SQL, producción por defecto
+    public static final String PROPIEDAD_PERFIL = "hospital.perfil";
+    public static final String UNIDAD_PRODUCCION = "HotelPU";
+    public static final String UNIDAD_DESARROLLO = "HotelPU-dev";
+
+    private static volatile EntityManagerFactory entityManagerFactory;
+
+    private JpaConfig() {
+    }
+
+    public static EntityManagerFactory getEntityManagerFactory() {
+        EntityManagerFactory emf = entityManagerFactory;
+        if (emf == null) {
+            synchronized (JpaConfig.class) {
+                emf = entityManagerFactory;
+                if (emf == null) {
+                    emf = Persistence.createEntityManagerFactory(getUnidadActiva());
+                    entityManagerFactory = emf;
+                }
+            }
+        }
+        return emf;
+    }
+
+    public static String getUnidadActiva() {
+        String perfil = System.getProperty(PROPIEDAD_PERFIL, "prod");
+        return "dev".equalsIgnoreCase(perfil) ? UNIDAD_DESARROLLO : UNIDAD_PRODUCCION;
+    }
+
+    // Cierra el pool de conexiones junto con la fábrica
+    public static synchronized void cerrar() {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.close();
+            entityManagerFactory = null;
+        }
+    }
+}
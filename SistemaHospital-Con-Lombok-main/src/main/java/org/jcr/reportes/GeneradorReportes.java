@@ -0,0 +1,180 @@
+package org.jcr.reportes;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Departamento;
+import org.jcr.entidades.HistoriaClinica;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Arma las secciones del reporte en paralelo sobre un pool acotado y las escribe en orden
+// a medida que terminan. Solo hay "maxEnVuelo" secciones en memoria a la vez.
+public class GeneradorReportes implements AutoCloseable {
+    private static final String NL = System.lineSeparator();
+    private static final int PACIENTES_POR_SECCION = 256;
+
+    private final ExecutorService ejecutor;
+    private final int maxEnVuelo;
+
+    public GeneradorReportes() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public GeneradorReportes(int hilos) {
+        AtomicInteger numero = new AtomicInteger();
+        this.ejecutor = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "reportes-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.maxEnVuelo = hilos * 2;
+    }
+
+    public void generarReporteCompleto(Hospital hospital, Function<Paciente, List<Cita>> citasPorPaciente,
+                                       Writer destino) throws IOException {
+        List<Callable<String>> secciones = new ArrayList<>();
+        secciones.add(() -> seccionHospital(hospital));
+
+        secciones.add(() -> " DEPARTAMENTOS Y PERSONAL " + NL);
+        for (Departamento departamento : hospital.getDepartamentos()) {
+            secciones.add(() -> seccionDepartamento(departamento));
+        }
+
+        List<Paciente> pacientes = hospital.getPacientes();
+        secciones.add(() -> "===== PACIENTES E HISTORIAS CLÍNICAS =====" + NL);
+        for (int desde = 0; desde < pacientes.size(); desde += PACIENTES_POR_SECCION) {
+            List<Paciente> lote = pacientes.subList(desde, Math.min(pacientes.size(), desde + PACIENTES_POR_SECCION));
+            secciones.add(() -> seccionPacientes(lote));
+        }
+
+        secciones.add(() -> "===== CITAS PROGRAMADAS =====" + NL);
+        for (int desde = 0; desde < pacientes.size(); desde += PACIENTES_POR_SECCION) {
+            List<Paciente> lote = pacientes.subList(desde, Math.min(pacientes.size(), desde + PACIENTES_POR_SECCION));
+            secciones.add(() -> seccionCitas(lote, citasPorPaciente));
+        }
+
+        escribirEnOrden(secciones, destino);
+    }
+
+    // Ventana deslizante de futuros: se escribe siempre el más antiguo para conservar el orden.
+    // Si una sección o la escritura fallan, las que siguen en vuelo se cancelan
+    public void escribirEnOrden(List<Callable<String>> secciones, Writer destino) throws IOException {
+        Deque<Future<String>> enVuelo = new ArrayDeque<>();
+        try {
+            for (Callable<String> seccion : secciones) {
+                if (enVuelo.size() >= maxEnVuelo) {
+                    destino.write(esperar(enVuelo.poll()));
+                }
+                enVuelo.add(ejecutor.submit(seccion));
+            }
+            while (!enVuelo.isEmpty()) {
+                destino.write(esperar(enVuelo.poll()));
+            }
+            destino.flush();
+        } catch (IOException | RuntimeException e) {
+            for (Future<String> pendiente : enVuelo) {
+                pendiente.cancel(true);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        ejecutor.shutdown();
+    }
+
+    // SECCIONES
+    private String seccionHospital(Hospital hospital) {
+        return " INFORMACIÓN DEL HOSPITAL " + NL
+                + hospital + NL
+                + "ID en Repository: " + hospital.getId() + NL
+                + "Departamentos: " + hospital.getDepartamentos().size() + NL
+                + "Pacientes registrados: " + hospital.getPacientes().size() + NL
+                + NL;
+    }
+
+    private String seccionDepartamento(Departamento departamento) {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append(departamento).append(NL);
+        sb.append("  Médicos (").append(departamento.getMedicos().size()).append("):").append(NL);
+        for (Medico medico : departamento.getMedicos()) {
+            sb.append("    ").append(medico).append(" (ID: ").append(medico.getId()).append(')').append(NL);
+        }
+        sb.append("  Salas (").append(departamento.getSalas().size()).append("):").append(NL);
+        for (Sala sala : departamento.getSalas()) {
+            sb.append("    ").append(sala).append(NL);
+        }
+        sb.append(NL);
+        return sb.toString();
+    }
+
+    private String seccionPacientes(List<Paciente> pacientes) {
+        StringBuilder sb = new StringBuilder(pacientes.size() * 256);
+        for (Paciente paciente : pacientes) {
+            sb.append(paciente).append(" (ID: ").append(paciente.getId()).append(')').append(NL);
+            sb.append("  Historia: ").append(paciente.getNumeroHistoria())
+                    .append(" | Edad: ").append(paciente.getEdad()).append(" años").append(NL);
+            // El reporte no materializa historias que nunca se escribieron
+            HistoriaClinica historia = paciente.buscarHistoriaClinica().orElse(null);
+            if (historia != null) {
+                if (!historia.getDiagnosticos().isEmpty()) {
+                    sb.append("  Diagnósticos: ").append(historia.getDiagnosticos()).append(NL);
+                }
+                if (!historia.getTratamientos().isEmpty()) {
+                    sb.append("  Tratamientos: ").append(historia.getTratamientos()).append(NL);
+                }
+                if (!historia.getAlergias().isEmpty()) {
+                    sb.append("  Alergias: ").append(historia.getAlergias()).append(NL);
+                }
+            }
+            sb.append(NL);
+        }
+        return sb.toString();
+    }
+
+    private String seccionCitas(List<Paciente> pacientes, Function<Paciente, List<Cita>> citasPorPaciente) {
+        StringBuilder sb = new StringBuilder();
+        for (Paciente paciente : pacientes) {
+            List<Cita> citas = citasPorPaciente.apply(paciente);
+            if (citas.isEmpty()) {
+                continue;
+            }
+            sb.append("Citas de ").append(paciente.getNombreCompleto()).append(':').append(NL);
+            for (Cita cita : citas) {
+                sb.append("  ").append(cita).append(" (ID: ").append(cita.getId()).append(')').append(NL);
+                if (!cita.getObservaciones().isEmpty()) {
+                    sb.append("    Observaciones: ").append(cita.getObservaciones()).append(NL);
+                }
+            }
+            sb.append(NL);
+        }
+        return sb.toString();
+    }
+
+    private String esperar(Future<String> seccion) throws IOException {
+        try {
+            return seccion.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Generación de reporte interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error al generar una sección del reporte", e.getCause());
+        }
+    }
+}
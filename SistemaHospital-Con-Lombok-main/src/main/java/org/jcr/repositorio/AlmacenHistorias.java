@@ -0,0 +1,72 @@
+package org.jcr.repositorio;
+
+import org.jcr.entidades.HistoriaClinica;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Almacén de historias clínicas por numeroHistoria, separado de los pacientes:
+// una historia solo existe en memoria cuando alguien la lee o la escribe.
+// Hay uno por Hospital: la historia entra al almacén con el paciente y sale cuando el paciente
+// deja el hospital, así dos hospitales con los mismos números de historia no se mezclan.
+// Con el nivel frío activo (-Dhospital.historias.umbralCaliente=N) las entradas antiguas van a un SegmentoFrio.
+// Se serializa con su Hospital; el nivel frío apunta a un archivo local y no viaja: tras deserializar
+// las listas nuevas quedan en memoria hasta que se vuelva a activar.
+public final class AlmacenHistorias implements Serializable {
+    private final Map<String, HistoriaClinica> historias = new ConcurrentHashMap<>();
+    private transient volatile NivelFrio nivelFrio;
+
+    public AlmacenHistorias() {
+        Integer umbral = Integer.getInteger("hospital.historias.umbralCaliente");
+        if (umbral != null) {
+            activarNivelFrio(SegmentoFrio.temporal(), umbral);
+        }
+    }
+
+    private record NivelFrio(SegmentoFrio segmento, int umbralCaliente) {
+    }
+
+    public Optional<HistoriaClinica> buscar(String numeroHistoria) {
+        return Optional.ofNullable(historias.get(numeroHistoria));
+    }
+
+    public HistoriaClinica obtenerOCrear(String numeroHistoria, Function<String, HistoriaClinica> creador) {
+        return historias.computeIfAbsent(numeroHistoria, creador);
+    }
+
+    public void guardar(HistoriaClinica historia) {
+        historias.put(historia.getNumeroHistoria(), historia);
+    }
+
+    // Solo quita la historia si es esa misma instancia
+    public void quitar(HistoriaClinica historia) {
+        historias.remove(historia.getNumeroHistoria(), historia);
+    }
+
+    // NIVEL FRÍO: solo afecta a las listas creadas después de activarlo
+    public void activarNivelFrio(SegmentoFrio segmento, int umbralCaliente) {
+        this.nivelFrio = new NivelFrio(segmento, umbralCaliente);
+    }
+
+    public void desactivarNivelFrio() {
+        this.nivelFrio = null;
+    }
+
+    public List<String> nuevaListaEntradas() {
+        NivelFrio nivel = nivelFrio;
+        return nivel != null ? new ListaEscalonada(nivel.segmento(), nivel.umbralCaliente()) : new ArrayList<>();
+    }
+
+    public int getCantidad() {
+        return historias.size();
+    }
+
+    public void limpiar() {
+        historias.clear();
+    }
+}
@@ -1,30 +1,42 @@
 package org.jcr.repositorio;
 
+import org.jcr.metricas.Metricas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class InMemoryRepository<T> {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryRepository.class);
+
     protected Map<Long, T> data = new HashMap<>();
     protected AtomicLong idGenerator = new AtomicLong();
 
     public T save(T entity) {
+        long inicio = Metricas.inicio();
         long id = idGenerator.incrementAndGet();
         // Suponiendo que las entidades tienen un método setId
         try {
-            String clase;
             entity.getClass().getMethod("setId", Long.class).invoke(entity, id);
-            clase = entity.getClass().getName();
-            System.out.println(clase + "   id :" + id);
+            // Parametrizado: con DEBUG apagado no se arma ningún String
+            log.debug("{} id: {}", entity.getClass().getName(), id);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("No se pudo asignar el id {} a {}", id, entity.getClass().getName(), e);
         }
 
         data.put(id, entity);
+        if (Metricas.HABILITADAS) {
+            Metricas.REPOSITORIO.guardado(Metricas.transcurrido(inicio));
+        }
         return entity;
     }
 
     public Optional<T> findById(Long id) {
+        if (Metricas.HABILITADAS) {
+            Metricas.REPOSITORIO.busquedaPorId();
+        }
         return Optional.ofNullable(data.get(id));
     }
 
@@ -46,9 +58,12 @@ public class InMemoryRepository<T> {
             setIdMethod.invoke(updatedEntity, id);
 
             data.put(id, updatedEntity);
+            if (Metricas.HABILITADAS) {
+                Metricas.REPOSITORIO.actualizacion();
+            }
             return Optional.of(updatedEntity);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("No se pudo actualizar la entidad con id {}", id, e);
             return Optional.empty();
         }
     }
@@ -57,10 +72,14 @@ public class InMemoryRepository<T> {
         if (!data.containsKey(id)) {
             return Optional.empty();
         }
+        if (Metricas.HABILITADAS) {
+            Metricas.REPOSITORIO.eliminacion(1);
+        }
         return Optional.ofNullable(data.remove(id));
     }
 
     public List<T> genericFindByField(String fieldName, Object value) {
+        long inicio = Metricas.inicio();
         List<T> results = new ArrayList<>();
         try {
             for (T entity : data.values()) {
@@ -71,7 +90,10 @@ public class InMemoryRepository<T> {
                 }
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("No se pudo buscar por el campo {}", fieldName, e);
+        }
+        if (Metricas.HABILITADAS) {
+            Metricas.REPOSITORIO.busquedaPorCampo(Metricas.transcurrido(inicio));
         }
         return results;
     }
@@ -88,6 +110,9 @@ public class InMemoryRepository<T> {
     }
 
     public void clear() {
+        if (Metricas.HABILITADAS) {
+            Metricas.REPOSITORIO.eliminacion(data.size());
+        }
         data.clear();
     }
 }
\ No newline at end of file
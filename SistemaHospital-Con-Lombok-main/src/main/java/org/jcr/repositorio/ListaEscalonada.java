@@ -0,0 +1,70 @@
+package org.jcr.repositorio;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Lista de entradas clínicas en dos niveles: las recientes en un ArrayList y las antiguas en un
+// SegmentoFrio fuera del heap, de las que solo se guarda la posición (8 bytes por entrada).
+// Al superar el doble del umbral caliente se compactan las más viejas hasta dejar "umbralCaliente".
+public class ListaEscalonada extends AbstractList<String> implements Serializable {
+    private final transient SegmentoFrio segmento;
+    private final int umbralCaliente;
+    private final List<String> calientes = new ArrayList<>();
+    private long[] posicionesFrias = new long[0];
+    private int cantidadFrias;
+
+    public ListaEscalonada(SegmentoFrio segmento, int umbralCaliente) {
+        if (umbralCaliente <= 0) {
+            throw new IllegalArgumentException("El umbral caliente debe ser positivo");
+        }
+        this.segmento = segmento;
+        this.umbralCaliente = umbralCaliente;
+    }
+
+    @Override
+    public String get(int indice) {
+        if (indice < 0 || indice >= size()) {
+            throw new IndexOutOfBoundsException("Índice: " + indice + ", tamaño: " + size());
+        }
+        return indice < cantidadFrias ? segmento.leer(posicionesFrias[indice]) : calientes.get(indice - cantidadFrias);
+    }
+
+    @Override
+    public int size() {
+        return cantidadFrias + calientes.size();
+    }
+
+    @Override
+    public boolean add(String entrada) {
+        calientes.add(entrada);
+        modCount++;
+        if (calientes.size() >= umbralCaliente * 2) {
+            compactar();
+        }
+        return true;
+    }
+
+    public int getCantidadFrias() {
+        return cantidadFrias;
+    }
+
+    private void compactar() {
+        int aMover = calientes.size() - umbralCaliente;
+        if (cantidadFrias + aMover > posicionesFrias.length) {
+            posicionesFrias = Arrays.copyOf(posicionesFrias, Math.max(cantidadFrias + aMover, posicionesFrias.length * 2));
+        }
+        List<String> antiguas = calientes.subList(0, aMover);
+        for (String entrada : antiguas) {
+            posicionesFrias[cantidadFrias++] = segmento.escribir(entrada);
+        }
+        antiguas.clear();
+    }
+
+    // Se serializa como una lista común: el segmento es local a este proceso
+    private Object writeReplace() {
+        return new ArrayList<>(this);
+    }
+}
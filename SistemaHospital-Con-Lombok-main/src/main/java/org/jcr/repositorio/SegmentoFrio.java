@@ -0,0 +1,90 @@
+package org.jcr.repositorio;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Archivo de solo-agregado mapeado en memoria donde viven las entradas clínicas antiguas, fuera del heap.
+// Cada entrada es [int largo][bytes UTF-8]; el archivo se mapea por regiones de 64 MB y una entrada nunca
+// cruza de región. Las lecturas son absolutas sobre el buffer, así que no necesitan lock.
+public final class SegmentoFrio {
+    static final int TAMANIO_REGION = 1 << 26;
+
+    private final Path archivo;
+    private final List<MappedByteBuffer> regiones = new ArrayList<>();
+    private long siguiente;
+
+    public SegmentoFrio(Path archivo) {
+        this.archivo = archivo;
+    }
+
+    public static SegmentoFrio temporal() {
+        try {
+            Path archivo = Files.createTempFile("historias-", ".seg");
+            archivo.toFile().deleteOnExit();
+            return new SegmentoFrio(archivo);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el segmento frío", e);
+        }
+    }
+
+    // Devuelve la posición de la entrada dentro del segmento
+    public synchronized long escribir(String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        int largo = Integer.BYTES + bytes.length;
+        if (largo > TAMANIO_REGION) {
+            throw new IllegalArgumentException("La entrada supera el tamaño de una región del segmento");
+        }
+        if (siguiente % TAMANIO_REGION + largo > TAMANIO_REGION) {
+            siguiente = (siguiente / TAMANIO_REGION + 1) * TAMANIO_REGION;
+        }
+        long posicion = siguiente;
+        MappedByteBuffer region = region(posicion);
+        int enRegion = (int) (posicion % TAMANIO_REGION);
+        region.putInt(enRegion, bytes.length);
+        region.put(enRegion + Integer.BYTES, bytes);
+        siguiente += largo;
+        return posicion;
+    }
+
+    public String leer(long posicion) {
+        MappedByteBuffer region = regionExistente(posicion);
+        int enRegion = (int) (posicion % TAMANIO_REGION);
+        byte[] bytes = new byte[region.getInt(enRegion)];
+        region.get(enRegion + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public synchronized long getBytesUsados() {
+        return siguiente;
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+
+    private synchronized MappedByteBuffer regionExistente(long posicion) {
+        return regiones.get((int) (posicion / TAMANIO_REGION));
+    }
+
+    // El mapeo sigue vigente después de cerrar el canal
+    private MappedByteBuffer region(long posicion) {
+        int indice = (int) (posicion / TAMANIO_REGION);
+        while (regiones.size() <= indice) {
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                regiones.add(canal.map(FileChannel.MapMode.READ_WRITE, (long) regiones.size() * TAMANIO_REGION, TAMANIO_REGION));
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo mapear el segmento frío " + archivo, e);
+            }
+        }
+        return regiones.get(indice);
+    }
+}
@@ -0,0 +1,47 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Agenda diaria por recurso (médico o sala): un bucket por día con las citas calientes de ese día,
+// pasados incluidos, así consultar cualquier día es O(log días + citas del día) sin recorrer el
+// historial del recurso. La memoria la acota el archivado: las citas que pasan al nivel frío salen
+// de acá, y esos días los resuelve ArchivoCitas leyendo solo el mes correspondiente.
+class AgendaPorDia<K> {
+    private final Map<K, TreeMap<LocalDate, List<Cita>>> dias = new HashMap<>();
+
+    synchronized void agregar(K recurso, Cita cita) {
+        dias.computeIfAbsent(recurso, r -> new TreeMap<>())
+                .computeIfAbsent(cita.getFechaHora().toLocalDate(), d -> new ArrayList<>())
+                .add(cita);
+    }
+
+    synchronized void quitar(K recurso, Cita cita) {
+        TreeMap<LocalDate, List<Cita>> diasRecurso = dias.get(recurso);
+        LocalDate dia = cita.getFechaHora().toLocalDate();
+        List<Cita> citasDia = diasRecurso != null ? diasRecurso.get(dia) : null;
+        if (citasDia != null && citasDia.remove(cita) && citasDia.isEmpty()) {
+            diasRecurso.remove(dia);
+            if (diasRecurso.isEmpty()) {
+                dias.remove(recurso);
+            }
+        }
+    }
+
+    synchronized List<Cita> getAgenda(K recurso, LocalDate dia) {
+        TreeMap<LocalDate, List<Cita>> diasRecurso = dias.get(recurso);
+        List<Cita> citasDia = diasRecurso != null ? diasRecurso.get(dia) : null;
+        return citasDia != null ? Collections.unmodifiableList(new ArrayList<>(citasDia)) : Collections.emptyList();
+    }
+
+    synchronized void limpiar() {
+        dias.clear();
+    }
+}
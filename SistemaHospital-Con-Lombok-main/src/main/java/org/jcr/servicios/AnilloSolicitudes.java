@@ -0,0 +1,125 @@
+package org.jcr.servicios;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Buffer circular de varios productores y un único consumidor, al estilo Disruptor.
+// Cada productor reclama una secuencia con un incremento atómico, escribe su ranura y la marca
+// como publicada; el consumidor toma de una vez todo el tramo contiguo ya publicado.
+// Si el anillo está lleno el productor espera: así se aplica contrapresión a las ráfagas.
+// El cierre marca un bit en el mismo contador de secuencias: reclamar y ver si está cerrado es un solo
+// incremento atómico. Lo reclamado antes del cierre se publica y se consume igual; lo reclamado
+// después se rechaza sin tocar ninguna ranura.
+final class AnilloSolicitudes<E> {
+    private static final long ESPERA_NANOS = 50_000;
+    private static final long CERRADO = 1L << 62;
+
+    private final Object[] ranuras;
+    private final int mascara;
+    private final AtomicLongArray publicadas;
+    // Cantidad de secuencias reclamadas, con el bit CERRADO una vez cerrado
+    private final AtomicLong reclamadas = new AtomicLong();
+    private final AtomicLong consumida = new AtomicLong(-1);
+    private volatile long reclamadasAlCerrar = -1;
+    private volatile Thread consumidor;
+    private volatile boolean consumidorEsperando;
+
+    AnilloSolicitudes(int capacidad) {
+        if (capacidad <= 0 || Integer.bitCount(capacidad) != 1) {
+            throw new IllegalArgumentException("La capacidad del anillo debe ser una potencia de dos: " + capacidad);
+        }
+        this.ranuras = new Object[capacidad];
+        this.mascara = capacidad - 1;
+        this.publicadas = new AtomicLongArray(capacidad);
+        for (int i = 0; i < capacidad; i++) {
+            publicadas.set(i, -1);
+        }
+    }
+
+    // PRODUCTORES: devuelve false, sin publicar, si el anillo ya estaba cerrado
+    boolean publicar(E elemento) {
+        long secuencia = reclamadas.getAndIncrement();
+        if ((secuencia & CERRADO) != 0) {
+            return false;
+        }
+        while (secuencia - ranuras.length > consumida.get()) {
+            LockSupport.parkNanos(ESPERA_NANOS);
+        }
+        int indice = (int) (secuencia & mascara);
+        ranuras[indice] = elemento;
+        // La escritura volátil de la secuencia publica también el contenido de la ranura
+        publicadas.set(indice, secuencia);
+        if (consumidorEsperando) {
+            LockSupport.unpark(consumidor);
+        }
+        return true;
+    }
+
+    // Desde acá publicar rechaza; el consumidor sigue drenando hasta terminado()
+    synchronized void cerrar() {
+        if (reclamadasAlCerrar < 0) {
+            reclamadasAlCerrar = reclamadas.getAndUpdate(valor -> valor | CERRADO);
+            Thread actual = consumidor;
+            if (actual != null) {
+                LockSupport.unpark(actual);
+            }
+        }
+    }
+
+    boolean isCerrado() {
+        return (reclamadas.get() & CERRADO) != 0;
+    }
+
+    // Cerrado y consumido todo lo que se reclamó antes del cierre
+    boolean terminado() {
+        long alCerrar = reclamadasAlCerrar;
+        return alCerrar >= 0 && consumida.get() + 1 >= alCerrar;
+    }
+
+    // CONSUMIDOR: agrega a lote el tramo publicado y lo libera; devuelve cuántos tomó
+    @SuppressWarnings("unchecked")
+    int drenar(List<E> lote, int maximo) {
+        long desde = consumida.get() + 1;
+        long hasta = desde;
+        while (hasta - desde < maximo) {
+            int indice = (int) (hasta & mascara);
+            if (publicadas.get(indice) != hasta) {
+                break;
+            }
+            lote.add((E) ranuras[indice]);
+            ranuras[indice] = null;
+            hasta++;
+        }
+        int tomados = (int) (hasta - desde);
+        if (tomados > 0) {
+            consumida.set(hasta - 1);
+        }
+        return tomados;
+    }
+
+    // Duerme hasta que haya algo publicado o pase el tiempo máximo
+    void esperar(long nanos) {
+        consumidor = Thread.currentThread();
+        consumidorEsperando = true;
+        try {
+            long siguiente = consumida.get() + 1;
+            if (publicadas.get((int) (siguiente & mascara)) != siguiente) {
+                LockSupport.parkNanos(this, nanos);
+            }
+        } finally {
+            consumidorEsperando = false;
+        }
+    }
+
+    int getCapacidad() {
+        return ranuras.length;
+    }
+
+    long getPendientes() {
+        long alCerrar = reclamadasAlCerrar;
+        long total = alCerrar >= 0 ? alCerrar : reclamadas.get() & ~CERRADO;
+        return total - (consumida.get() + 1);
+    }
+}
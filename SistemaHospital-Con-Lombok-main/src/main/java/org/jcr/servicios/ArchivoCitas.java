@@ -0,0 +1,363 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+import org.jcr.excepciones.CitaException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+// Nivel frío de las citas: historial ya cerrado, fuera de los índices en memoria.
+// Cada mes es un segmento citas-AAAA-MM.csv.gz (mismo CSV que guardarCitas); cada archivado agrega
+// un miembro gzip nuevo. Al lado, citas-AAAA-MM.idx lista las claves (paciente, médico, sala)
+// presentes en el mes: una consulta solo descomprime los meses donde aparece la clave, y los meses
+// leídos quedan en un LRU acotado.
+// Un archivado escribe primero copias temporales de todos los meses que toca y recién después las
+// pone en su lugar con un rename cada una: si falla antes, ningún segmento cambió y las citas siguen
+// calientes. Si se cortara entre dos renames, el próximo archivado vuelve a escribir esas citas y la
+// lectura del mes descarta las repetidas.
+public class ArchivoCitas {
+    private static final Logger log = LoggerFactory.getLogger(ArchivoCitas.class);
+    public static final int MESES_EN_CACHE_POR_DEFECTO = 6;
+    private static final String PREFIJO = "citas-";
+
+    private final Path directorio;
+    // Clave ("P:dni", "M:dni", "S:numero") -> meses en los que tiene citas archivadas
+    private final Map<String, NavigableSet<YearMonth>> mesesPorClave = new ConcurrentHashMap<>();
+    private final LinkedHashMap<YearMonth, Map<String, List<Cita>>> cache;
+    // Entidades para reconstruir las citas al leerlas; se aprenden al archivar
+    private final Map<String, Paciente> pacientes = new ConcurrentHashMap<>();
+    private final Map<String, Medico> medicos = new ConcurrentHashMap<>();
+    private final Map<String, Sala> salas = new ConcurrentHashMap<>();
+    private long archivadas;
+
+    public ArchivoCitas(Path directorio) throws IOException {
+        this(directorio, Integer.getInteger("hospital.citas.mesesFriosEnCache", MESES_EN_CACHE_POR_DEFECTO));
+    }
+
+    public ArchivoCitas(Path directorio, int mesesEnCache) throws IOException {
+        this.directorio = Files.createDirectories(directorio);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<YearMonth, Map<String, List<Cita>>> eldest) {
+                return size() > mesesEnCache;
+            }
+        };
+        cargarIndices();
+    }
+
+    // Al reabrir un archivo existente hay que presentarle las entidades, como a cargarCitas
+    public void registrarEntidades(Map<String, Paciente> pacientes, Map<String, Medico> medicos, Map<String, Sala> salas) {
+        this.pacientes.putAll(pacientes);
+        this.medicos.putAll(medicos);
+        this.salas.putAll(salas);
+    }
+
+    // ESCRITURA
+    public synchronized void archivar(Collection<Cita> citas) throws IOException {
+        Map<YearMonth, List<Cita>> porMes = new TreeMap<>();
+        for (Cita cita : citas) {
+            porMes.computeIfAbsent(YearMonth.from(cita.getFechaHora()), m -> new ArrayList<>()).add(cita);
+        }
+        Map<YearMonth, Set<String>> clavesPorMes = new TreeMap<>();
+        List<Path> temporales = new ArrayList<>();
+        try {
+            for (Map.Entry<YearMonth, List<Cita>> entrada : porMes.entrySet()) {
+                YearMonth mes = entrada.getKey();
+                Set<String> clavesNuevas = clavesNuevas(mes, entrada.getValue());
+                clavesPorMes.put(mes, clavesNuevas);
+                temporales.add(temporal(segmento(mes)));
+                temporales.add(temporal(indice(mes)));
+                prepararSegmento(mes, entrada.getValue());
+                prepararIndice(mes, clavesNuevas);
+            }
+            for (YearMonth mes : porMes.keySet()) {
+                reemplazar(segmento(mes));
+                reemplazar(indice(mes));
+            }
+        } finally {
+            for (Path temporal : temporales) {
+                borrar(temporal);
+            }
+        }
+
+        // Los segmentos ya están en disco: recién ahora las consultas pueden ir a buscarlas
+        for (Map.Entry<YearMonth, List<Cita>> entrada : porMes.entrySet()) {
+            YearMonth mes = entrada.getKey();
+            for (Cita cita : entrada.getValue()) {
+                pacientes.putIfAbsent(cita.getPaciente().getDni(), cita.getPaciente());
+                medicos.putIfAbsent(cita.getMedico().getDni(), cita.getMedico());
+                salas.putIfAbsent(cita.getSala().getNumero(), cita.getSala());
+            }
+            for (String clave : clavesPorMes.get(mes)) {
+                mesesPorClave.computeIfAbsent(clave, c -> new ConcurrentSkipListSet<>()).add(mes);
+            }
+            cache.remove(mes);
+            archivadas += entrada.getValue().size();
+        }
+    }
+
+    private Set<String> clavesNuevas(YearMonth mes, List<Cita> citas) {
+        Set<String> nuevas = new LinkedHashSet<>();
+        for (Cita cita : citas) {
+            for (String clave : claves(cita)) {
+                NavigableSet<YearMonth> meses = mesesPorClave.get(clave);
+                if (meses == null || !meses.contains(mes)) {
+                    nuevas.add(clave);
+                }
+            }
+        }
+        return nuevas;
+    }
+
+    // Copia del segmento actual con un miembro gzip más al final
+    private void prepararSegmento(YearMonth mes, List<Cita> citas) throws IOException {
+        Path temporal = temporal(segmento(mes));
+        copiarSiExiste(segmento(mes), temporal);
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(
+                Files.newOutputStream(temporal, StandardOpenOption.CREATE, StandardOpenOption.APPEND)), StandardCharsets.UTF_8))) {
+            for (Cita cita : citas) {
+                writer.write(cita.toCsvString());
+                writer.newLine();
+            }
+        }
+    }
+
+    private void prepararIndice(YearMonth mes, Set<String> clavesNuevas) throws IOException {
+        Path temporal = temporal(indice(mes));
+        copiarSiExiste(indice(mes), temporal);
+        Files.write(temporal, clavesNuevas, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static void copiarSiExiste(Path original, Path temporal) throws IOException {
+        if (Files.exists(original)) {
+            Files.copy(original, temporal, StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    private static void reemplazar(Path destino) throws IOException {
+        Files.move(temporal(destino), destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Después de un reemplazo el temporal ya no existe; si quedó uno por un error, que no tape al original
+    private static void borrar(Path temporal) {
+        try {
+            Files.deleteIfExists(temporal);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el temporal {}", temporal, e);
+        }
+    }
+
+    // CONSULTAS
+    public List<Cita> getCitasPorPaciente(Paciente paciente) {
+        return buscar("P:" + paciente.getDni());
+    }
+
+    public List<Cita> getCitasPorMedico(Medico medico) {
+        return buscar("M:" + medico.getDni());
+    }
+
+    public List<Cita> getCitasPorSala(Sala sala) {
+        return buscar("S:" + sala.getNumero());
+    }
+
+    public List<Cita> getAgendaMedico(Medico medico, LocalDate dia) {
+        return buscarDia("M:" + medico.getDni(), dia);
+    }
+
+    public List<Cita> getAgendaSala(Sala sala, LocalDate dia) {
+        return buscarDia("S:" + sala.getNumero(), dia);
+    }
+
+    // Todo el historial, para reportes. Los meses que no están en el LRU se leen sin guardarlos,
+    // así un recorrido completo no desaloja los que usan las consultas por clave
+    public synchronized List<Cita> getCitas() {
+        List<Cita> todas = new ArrayList<>();
+        for (YearMonth mes : getMeses()) {
+            Map<String, List<Cita>> porClave = cache.get(mes);
+            if (porClave == null) {
+                porClave = leerSegmento(mes, false);
+            }
+            // Cada cita tiene un solo paciente: recorriendo esas listas aparece una vez
+            for (Map.Entry<String, List<Cita>> entrada : porClave.entrySet()) {
+                if (entrada.getKey().startsWith("P:")) {
+                    todas.addAll(entrada.getValue());
+                }
+            }
+        }
+        return todas;
+    }
+
+    public Set<YearMonth> getMeses() {
+        Set<YearMonth> meses = new TreeSet<>();
+        mesesPorClave.values().forEach(meses::addAll);
+        return meses;
+    }
+
+    public synchronized long getArchivadas() {
+        return archivadas;
+    }
+
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    // Sin lock si la clave no tiene historial, que es el caso común
+    private List<Cita> buscar(String clave) {
+        NavigableSet<YearMonth> meses = mesesPorClave.get(clave);
+        if (meses == null) {
+            return Collections.emptyList();
+        }
+        List<Cita> resultado = new ArrayList<>();
+        synchronized (this) {
+            for (YearMonth mes : meses) {
+                resultado.addAll(leerMes(mes).getOrDefault(clave, Collections.emptyList()));
+            }
+        }
+        return Collections.unmodifiableList(resultado);
+    }
+
+    private List<Cita> buscarDia(String clave, LocalDate dia) {
+        NavigableSet<YearMonth> meses = mesesPorClave.get(clave);
+        YearMonth mes = YearMonth.from(dia);
+        if (meses == null || !meses.contains(mes)) {
+            return Collections.emptyList();
+        }
+        List<Cita> resultado = new ArrayList<>();
+        synchronized (this) {
+            for (Cita cita : leerMes(mes).getOrDefault(clave, Collections.emptyList())) {
+                if (cita.getFechaHora().toLocalDate().equals(dia)) {
+                    resultado.add(cita);
+                }
+            }
+        }
+        return Collections.unmodifiableList(resultado);
+    }
+
+    private Map<String, List<Cita>> leerMes(YearMonth mes) {
+        Map<String, List<Cita>> porClave = cache.get(mes);
+        return porClave != null ? porClave : leerSegmento(mes, true);
+    }
+
+    private Map<String, List<Cita>> leerSegmento(YearMonth mes, boolean guardarEnCache) {
+        ByteArrayOutputStream contenido = new ByteArrayOutputStream();
+        boolean completo;
+        try (InputStream entrada = Files.newInputStream(segmento(mes))) {
+            completo = descomprimir(entrada, contenido);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el segmento de citas " + segmento(mes), e);
+        }
+        String texto = contenido.toString(StandardCharsets.UTF_8);
+        if (!completo) {
+            // Se usa lo que se pudo leer, sin la última fila si quedó a medias
+            texto = texto.substring(0, texto.lastIndexOf('\n') + 1);
+            log.error("El segmento {} está cortado; se leyeron sus primeras {} filas", segmento(mes),
+                    texto.lines().count());
+        }
+
+        Map<String, List<Cita>> porClave = new HashMap<>();
+        Set<CitaManager.ClaveCita> leidas = new HashSet<>();
+        int omitidas = 0;
+        for (String line : texto.lines().toList()) {
+            try {
+                Cita cita = Cita.fromCsvString(line, pacientes, medicos, salas);
+                if (!leidas.add(CitaManager.ClaveCita.de(cita))) {
+                    continue;
+                }
+                for (String clave : claves(cita)) {
+                    porClave.computeIfAbsent(clave, c -> new ArrayList<>()).add(cita);
+                }
+            } catch (CitaException | DateTimeException | IllegalArgumentException e) {
+                omitidas++;
+            }
+        }
+        // Con filas omitidas el mes no se guarda en el LRU: una vez registradas las entidades que
+        // faltaban, la próxima consulta lo lee completo
+        if (omitidas > 0) {
+            log.warn("Se omitieron {} citas archivadas de {} con entidades no registradas o filas inválidas", omitidas, mes);
+        } else if (guardarEnCache) {
+            cache.put(mes, porClave);
+        }
+        return porClave;
+    }
+
+    // Todos los miembros gzip del segmento; false si el último está truncado o dañado, con lo leído
+    // hasta ese punto ya copiado en destino
+    private static boolean descomprimir(InputStream entrada, ByteArrayOutputStream destino) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(entrada)) {
+            gzip.transferTo(destino);
+            return true;
+        } catch (EOFException | ZipException e) {
+            return false;
+        }
+    }
+
+    private void cargarIndices() throws IOException {
+        try (DirectoryStream<Path> indices = Files.newDirectoryStream(directorio, PREFIJO + "*.idx")) {
+            for (Path indice : indices) {
+                String nombre = indice.getFileName().toString();
+                YearMonth mes = YearMonth.parse(nombre.substring(PREFIJO.length(), nombre.length() - ".idx".length()));
+                for (String clave : Files.readAllLines(indice, StandardCharsets.UTF_8)) {
+                    if (!clave.isEmpty()) {
+                        mesesPorClave.computeIfAbsent(clave, c -> new ConcurrentSkipListSet<>()).add(mes);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String[] claves(Cita cita) {
+        return new String[]{"P:" + cita.getPaciente().getDni(), "M:" + cita.getMedico().getDni(),
+                "S:" + cita.getSala().getNumero()};
+    }
+
+    private Path segmento(YearMonth mes) {
+        return directorio.resolve(PREFIJO + mes + ".csv.gz");
+    }
+
+    private Path indice(YearMonth mes) {
+        return directorio.resolve(PREFIJO + mes + ".idx");
+    }
+
+    private static Path temporal(Path archivo) {
+        return archivo.resolveSibling(archivo.getFileName() + ".tmp");
+    }
+}
@@ -1,42 +1,134 @@
 package org.jcr.servicios;
 
+import org.jcr.analitica.InstantaneaColumnarCitas;
 import org.jcr.entidades.Cita;
+import org.jcr.entidades.Departamento;
+import org.jcr.entidades.Hospital;
 import org.jcr.entidades.Medico;
 import org.jcr.entidades.Paciente;
 import org.jcr.entidades.Sala;
+import org.jcr.enums.EspecialidadMedica;
+import org.jcr.enums.EstadoCita;
+import org.jcr.enums.MotivoRechazoCita;
+import org.jcr.estadisticas.EstadisticasHospital;
+import org.jcr.eventos.EventoCita;
+import org.jcr.eventos.PublicadorEventosCitas;
+import org.jcr.eventos.SuscriptorEventosCitas;
 import org.jcr.excepciones.CitaException;
+import org.jcr.metricas.Metricas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.math.BigDecimal;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class CitaManager implements CitaService {
-    private final List<Cita> citas = new ArrayList<>();
-    private final Map<Paciente, List<Cita>> citasPorPaciente = new ConcurrentHashMap<>();
-    private final Map<Medico, List<Cita>> citasPorMedico = new ConcurrentHashMap<>();
-    private final Map<Sala, List<Cita>> citasPorSala = new ConcurrentHashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(CitaManager.class);
+    private static final int MAX_REINTENTOS_ESTADO = 16;
+    public static final Duration BLOQUEO_POR_CITA = Duration.ofHours(2);
+    private static final int INTENTOS_COMPACTACION = 3;
+    public static final int MAX_HUECOS_POR_DEFECTO = 10;
 
+    // Un solo hilo compartido compacta las lápidas y corre el archivado periódico de todos los managers
+    private static final ScheduledExecutorService MANTENIMIENTO = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "citas-mantenimiento");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // Índices de citas como foto persistente: "actual" la modifica quien escribe (bajo el monitor o
+    // desde el hilo dueño de la partición) y se publica en "publicada" al terminar cada alta o lote
+    private volatile InstantaneaCitas actual = InstantaneaCitas.VACIA;
+    private final AtomicReference<InstantaneaCitas> publicada = new AtomicReference<>(InstantaneaCitas.VACIA);
+    private final AgendaPorDia<Medico> agendaMedicos = new AgendaPorDia<>();
+    private final AgendaPorDia<Sala> agendaSalas = new AgendaPorDia<>();
+    private final IndiceOcupacion<Medico> ocupacionMedicos;
+    private final IndiceOcupacion<Sala> ocupacionSalas;
+    private final Map<EspecialidadMedica, Set<Departamento>> departamentosPorEspecialidad = new EnumMap<>(EspecialidadMedica.class);
+    private final Cita.Observador observador = new ObservadorCitas();
+    private volatile PublicadorEventosCitas eventos;
+    private final AtomicBoolean compactacionPendiente = new AtomicBoolean();
+    private volatile ArchivoCitas archivo;
+    private boolean publicacionDiferida; // Bajo el monitor
+    private final Set<Cita> archivando = Collections.newSetFromMap(new IdentityHashMap<>()); // Bajo el monitor
+
+    // ORDENADA sirve para horarios arbitrarios; SLOTS_15_MINUTOS para clínicas con turnos fijos y mucho volumen
+    public enum ModoOcupacion {
+        ORDENADA,
+        SLOTS_15_MINUTOS
+    }
+
+    public CitaManager() {
+        this(ModoOcupacion.ORDENADA);
+    }
+
+    public CitaManager(ModoOcupacion modo) {
+        if (modo == ModoOcupacion.SLOTS_15_MINUTOS) {
+            this.ocupacionMedicos = new OcupacionPorSlots<>(BLOQUEO_POR_CITA);
+            this.ocupacionSalas = new OcupacionPorSlots<>(BLOQUEO_POR_CITA);
+        } else {
+            this.ocupacionMedicos = new OcupacionOrdenada<>(BLOQUEO_POR_CITA);
+            this.ocupacionSalas = new OcupacionOrdenada<>(BLOQUEO_POR_CITA);
+        }
+    }
+
+    // Sincronizado: la verificación de disponibilidad y el alta deben ser atómicas entre hilos
     @Override
-    public Cita programarCita(Paciente paciente, Medico medico, Sala sala,
+    public synchronized Cita programarCita(Paciente paciente, Medico medico, Sala sala,
                               LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
+        long inicio = Metricas.inicio();
+        validarSolicitud(medico, sala, fechaHora, costo, inicio);
+        Cita cita = registrarValidada(paciente, medico, sala, fechaHora, costo, inicio);
+        publicarInstantanea();
+        return cita;
+    }
 
-        validarCita(fechaHora, costo);
+    // Etapa sin estado compartido: puede correr en cualquier hilo antes de entrar al escritor
+    void validarSolicitud(Medico medico, Sala sala, LocalDateTime fechaHora, BigDecimal costo, long inicio) throws CitaException {
+        validarCita(fechaHora, costo, inicio);
 
-        if (!esMedicoDisponible(medico, fechaHora)) {
-            throw new CitaException("El médico no está disponible en la fecha y hora solicitadas.");
+        if (!medico.getEspecialidad().equals(sala.getDepartamento().getEspecialidad())) {
+            throw rechazo(MotivoRechazoCita.ESPECIALIDAD_INCOMPATIBLE, "La especialidad del médico no coincide con el departamento de la sala.", inicio);
         }
+    }
 
-        if (!esSalaDisponible(sala, fechaHora)) {
-            throw new CitaException("La sala no está disponible en la fecha y hora solicitadas.");
+    // Etapa con estado compartido: conflicto de horario e indexado de una solicitud ya validada.
+    // No publica la foto: lo hace quien llama, después de cada alta o de cada lote
+    synchronized Cita registrarValidada(Paciente paciente, Medico medico, Sala sala,
+                                        LocalDateTime fechaHora, BigDecimal costo, long inicio) throws CitaException {
+        return registrarValidada(paciente, medico, sala, fechaHora, costo, "", inicio);
+    }
+
+    private synchronized Cita registrarValidada(Paciente paciente, Medico medico, Sala sala, LocalDateTime fechaHora,
+                                                BigDecimal costo, String observaciones, long inicio) throws CitaException {
+        if (!esMedicoDisponible(medico, fechaHora)) {
+            throw rechazo(MotivoRechazoCita.MEDICO_NO_DISPONIBLE, "El médico no está disponible en la fecha y hora solicitadas.", inicio);
         }
 
-        if (!medico.getEspecialidad().equals(sala.getDepartamento().getEspecialidad())) {
-            throw new CitaException("La especialidad del médico no coincide con el departamento de la sala.");
+        if (!esSalaDisponible(sala, fechaHora)) {
+            throw rechazo(MotivoRechazoCita.SALA_NO_DISPONIBLE, "La sala no está disponible en la fecha y hora solicitadas.", inicio);
         }
 
         Cita cita = Cita.builder()
@@ -45,143 +137,663 @@ public class CitaManager implements CitaService {
                 .sala(sala)
                 .fechaHora(fechaHora)
                 .costo(costo)
+                .observaciones(observaciones)
                 .build();
-        citas.add(cita);
-
-        actualizarIndicePaciente(paciente, cita);
-        actualizarIndiceMedico(medico, cita);
-        actualizarIndiceSala(sala, cita);
+        indexarCita(cita);
 
         paciente.addCita(cita);
         medico.addCita(cita);
         sala.addCita(cita);
 
+        if (Metricas.HABILITADAS) {
+            Metricas.CITAS.programada(Metricas.transcurrido(inicio));
+        }
         return cita;
     }
 
-    private void validarCita(LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
+    private static CitaException rechazo(MotivoRechazoCita motivo, String mensaje, long inicio) {
+        if (Metricas.HABILITADAS) {
+            Metricas.CITAS.rechazada(motivo, Metricas.transcurrido(inicio));
+        }
+        return new CitaException(mensaje);
+    }
+
+    // Opcional: quien se suscriba recibe las altas, las bajas y los cambios de estado u observaciones.
+    // Todos los eventos se emiten con el monitor tomado, en el mismo orden en que cambian los índices
+    public void setEventos(PublicadorEventosCitas eventos) {
+        this.eventos = eventos;
+    }
+
+    // Una vista derivada que se suma tarde parte de las citas indexadas en este momento (una
+    // CitaProgramada por cada una) y sigue con los eventos posteriores, sin huecos ni repeticiones
+    public synchronized void suscribir(SuscriptorEventosCitas suscriptor) {
+        PublicadorEventosCitas destino = eventos;
+        if (destino == null) {
+            throw new IllegalStateException("No hay un publicador de eventos configurado.");
+        }
+        List<EventoCita> iniciales = new ArrayList<>(actual.getCantidad());
+        agregarIniciales(iniciales);
+        destino.suscribir(suscriptor, iniciales);
+    }
+
+    synchronized void agregarIniciales(List<EventoCita> iniciales) {
+        Instant ahora = Instant.now();
+        for (Cita cita : actual.getCitas()) {
+            iniciales.add(new EventoCita.CitaProgramada(cita, cita.getEstado(), ahora));
+        }
+    }
+
+    private void emitir(EventoCita evento) {
+        PublicadorEventosCitas destino = eventos;
+        if (destino != null) {
+            destino.publicar(evento);
+        }
+    }
+
+    // Toda cita que deja los índices (cancelada, archivada o descartada al recargar) deja también de
+    // contar en las estadísticas del hospital, igual que en ConteoCitasPorEstado
+    private void registrarRetirada(Cita cita) {
+        cita.quitarObservador(observador);
+        EstadisticasHospital estadisticas = estadisticasDe(cita);
+        if (estadisticas != null) {
+            estadisticas.registrarCita(cita.getEstado(), -1);
+        }
+        if (eventos != null) {
+            emitir(new EventoCita.CitaRetirada(cita, cita.getEstado(), Instant.now()));
+        }
+    }
+
+    // Agrega una cita ya construida a todos los índices internos. Sincronizado para no pisarse con
+    // retirarCita ni con la compactación, que pueden llegar desde otros hilos
+    synchronized void indexarCita(Cita cita) {
+        actual = actual.conCita(cita);
+        agendaMedicos.agregar(cita.getMedico(), cita);
+        agendaSalas.agregar(cita.getSala(), cita);
+        ocupacionMedicos.ocupar(cita.getMedico(), cita);
+        ocupacionSalas.ocupar(cita.getSala(), cita);
+        registrarDepartamento(cita.getSala().getDepartamento());
+
+        cita.agregarObservador(observador);
+        EstadisticasHospital estadisticas = estadisticasDe(cita);
+        if (estadisticas != null) {
+            estadisticas.registrarCita(cita.getEstado(), 1);
+        }
+        if (eventos != null) {
+            emitir(new EventoCita.CitaProgramada(cita, cita.getEstado(), Instant.now()));
+        }
+    }
+
+    // Saca una cita de todos los índices en O(log n): la ocupación, la agenda, las listas de la foto y
+    // las de las entidades. El vector general queda con una lápida que se compacta en segundo plano
+    private synchronized void retirarCita(Cita cita) {
+        if (!actual.contiene(cita)) {
+            return;
+        }
+        quitarDeIndices(cita);
+        agendaMedicos.quitar(cita.getMedico(), cita);
+        agendaSalas.quitar(cita.getSala(), cita);
+        registrarRetirada(cita);
+        publicarInstantanea();
+        programarCompactacion();
+    }
+
+    private void quitarDeIndices(Cita cita) {
+        actual = actual.sinCita(cita);
+        ocupacionMedicos.liberar(cita.getMedico(), cita);
+        ocupacionSalas.liberar(cita.getSala(), cita);
+        cita.getPaciente().removeCita(cita);
+        cita.getMedico().removeCita(cita);
+        cita.getSala().removeCita(cita);
+    }
+
+    private void programarCompactacion() {
+        if (actual.requiereCompactacion() && compactacionPendiente.compareAndSet(false, true)) {
+            MANTENIMIENTO.execute(this::compactar);
+        }
+    }
+
+    // La reconstrucción es O(n) y corre fuera del monitor sobre una foto fija; se instala solo si nadie
+    // cambió los índices mientras tanto. Si siempre pierde contra las altas, el último intento va bajo el monitor
+    private void compactar() {
+        compactacionPendiente.set(false);
+        for (int intento = 0; intento < INTENTOS_COMPACTACION; intento++) {
+            InstantaneaCitas base = actual;
+            if (!base.requiereCompactacion()) {
+                return;
+            }
+            InstantaneaCitas compactada = base.compactada();
+            synchronized (this) {
+                if (actual == base) {
+                    actual = compactada;
+                    publicarInstantanea();
+                    return;
+                }
+            }
+        }
+        synchronized (this) {
+            if (actual.requiereCompactacion()) {
+                actual = actual.compactada();
+                publicarInstantanea();
+            }
+        }
+    }
+
+    // ARCHIVADO: el historial cerrado pasa al nivel frío y los índices calientes quedan con lo que viene
+    public void setArchivo(ArchivoCitas archivo) {
+        this.archivo = archivo;
+    }
+
+    public ArchivoCitas getArchivo() {
+        return archivo;
+    }
+
+    public int archivarHistorial() throws IOException {
+        return archivarHistorial(LocalDate.now().atStartOfDay());
+    }
+
+    public int archivarHistorial(LocalDateTime antesDe) throws IOException {
+        ArchivoCitas destino = archivo;
+        if (destino == null) {
+            throw new IllegalStateException("No hay un archivo de citas configurado.");
+        }
+        return archivarEn(destino, antesDe);
+    }
+
+    // Solo días anteriores a hoy cuyo bloqueo ya terminó: las verificaciones de conflicto no pueden
+    // necesitarlas. También salen de la agenda diaria, que para esos días consulta el nivel frío.
+    // El monitor se toma dos veces y no durante la escritura a disco: una para elegir las citas (que
+    // quedan reservadas en archivando, así un archivado concurrente no las escribe de nuevo) y otra
+    // para sacarlas de los índices. Mientras tanto una consulta puede verlas en los dos niveles: unir
+    // las deduplica
+    int archivarEn(ArchivoCitas destino, LocalDateTime antesDe) throws IOException {
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime hoy = ahora.toLocalDate().atStartOfDay();
+        LocalDateTime limite = antesDe.isBefore(hoy) ? antesDe : hoy;
+        List<Cita> historial = new ArrayList<>();
+        synchronized (this) {
+            for (Cita cita : actual.getCitas()) {
+                if (cita.getEstado().esFinal() && cita.getFechaHora().isBefore(limite)
+                        && cita.getFechaHora().plus(BLOQUEO_POR_CITA).isBefore(ahora) && archivando.add(cita)) {
+                    historial.add(cita);
+                }
+            }
+        }
+        if (historial.isEmpty()) {
+            return 0;
+        }
+        int archivadas = 0;
+        try {
+            // Primero a disco: si falla, los índices calientes quedan como estaban
+            destino.archivar(historial);
+            synchronized (this) {
+                for (Cita cita : historial) {
+                    // Una recarga pudo haberla sacado mientras se escribía
+                    if (actual.contiene(cita)) {
+                        quitarDeIndices(cita);
+                        agendaMedicos.quitar(cita.getMedico(), cita);
+                        agendaSalas.quitar(cita.getSala(), cita);
+                        registrarRetirada(cita);
+                        archivadas++;
+                    }
+                }
+                publicarInstantanea();
+                programarCompactacion();
+            }
+        } finally {
+            synchronized (this) {
+                historial.forEach(archivando::remove);
+            }
+        }
+        log.debug("Archivadas {} citas anteriores a {}", archivadas, limite);
+        return archivadas;
+    }
+
+    // Corre en el hilo de mantenimiento; se detiene cancelando el futuro devuelto
+    public ScheduledFuture<?> programarArchivado(Duration periodo) {
+        return MANTENIMIENTO.scheduleWithFixedDelay(() -> {
+            try {
+                archivarHistorial();
+            } catch (IOException | RuntimeException e) {
+                log.error("Falló el archivado periódico de citas", e);
+            }
+        }, periodo.toMillis(), periodo.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Al recargar, cada cita descartada sale como CitaRetirada antes de que lleguen las leídas
+    synchronized void limpiar() {
+        for (Cita cita : actual.getCitas()) {
+            registrarRetirada(cita);
+        }
+        actual = actual.vaciada();
+        agendaMedicos.limpiar();
+        agendaSalas.limpiar();
+        ocupacionMedicos.limpiar();
+        ocupacionSalas.limpiar();
+    }
+
+    List<Cita> getCitas() {
+        return actual.getCitas();
+    }
+
+    synchronized void publicarInstantanea() {
+        if (!publicacionDiferida) {
+            publicada.set(actual);
+        }
+    }
+
+    // Mientras el escritor de CitaManagerSecuenciado aplica un lote no se publican fotos intermedias
+    // (tampoco las de una cancelación que llegue desde otro hilo): la publica él al cerrar el lote,
+    // después de vaciar el diario
+    synchronized void diferirPublicacion() {
+        publicacionDiferida = true;
+    }
+
+    synchronized void publicarLote() {
+        publicacionDiferida = false;
+        publicada.set(actual);
+    }
+
+    // Última foto publicada: se puede recorrer sin locks mientras se siguen programando citas
+    public InstantaneaCitas getInstantanea() {
+        return publicada.get();
+    }
+
+    // Foto columnar para reportes de ingresos e inasistencias sin recorrer objetos Cita. Abarca las
+    // citas indexadas y el historial archivado; las canceladas no están, porque salen de los índices
+    // al cancelarse y no se guardan ni se archivan
+    public InstantaneaColumnarCitas getInstantaneaColumnar() {
+        ArchivoCitas frio = archivo;
+        List<Cita> calientes = getInstantanea().getCitas();
+        return InstantaneaColumnarCitas.desde(frio != null ? unir(frio.getCitas(), calientes) : calientes);
+    }
+
+    private static EstadisticasHospital estadisticasDe(Cita cita) {
+        Hospital hospital = cita.getSala().getDepartamento().getHospital();
+        return hospital != null ? hospital.getEstadisticas() : null;
+    }
+
+    // Mantiene las estadísticas del hospital al día y emite los eventos de cambio de una cita indexada.
+    // Una cita cancelada por cualquier camino sale de los índices y libera su horario en el acto.
+    // Los cambios llegan desde cualquier hilo; se emiten bajo el monitor para que queden ordenados
+    // respecto de las altas, las bajas y la foto de suscribir
+    private final class ObservadorCitas implements Cita.Observador {
+        @Override
+        public void estadoCambiado(Cita cita, EstadoCita anterior, EstadoCita nuevo) {
+            EstadisticasHospital estadisticas = estadisticasDe(cita);
+            if (estadisticas != null) {
+                estadisticas.cambiarEstadoCita(anterior, nuevo);
+            }
+            synchronized (CitaManager.this) {
+                if (eventos != null) {
+                    emitir(new EventoCita.EstadoCambiado(cita, anterior, nuevo, Instant.now()));
+                }
+                if (nuevo == EstadoCita.CANCELADA) {
+                    retirarCita(cita);
+                }
+            }
+        }
+
+        @Override
+        public void observacionesActualizadas(Cita cita, String anteriores, String nuevas) {
+            synchronized (CitaManager.this) {
+                if (eventos != null) {
+                    emitir(new EventoCita.ObservacionActualizada(cita, anteriores, nuevas, Instant.now()));
+                }
+            }
+        }
+    }
+
+    private void validarCita(LocalDateTime fechaHora, BigDecimal costo, long inicio) throws CitaException {
         if (fechaHora.isBefore(LocalDateTime.now())) {
-            throw new CitaException("No se puede programar una cita en el pasado.");
+            throw rechazo(MotivoRechazoCita.FECHA_PASADA, "No se puede programar una cita en el pasado.", inicio);
         }
 
         if (costo.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new CitaException("El costo debe ser mayor que cero.");
+            throw rechazo(MotivoRechazoCita.COSTO_INVALIDO, "El costo debe ser mayor que cero.", inicio);
         }
     }
 
     private boolean esMedicoDisponible(Medico medico, LocalDateTime fechaHora) {
-        List<Cita> citasExistentes = citasPorMedico.get(medico);
-        if (citasExistentes != null) {
-            for (Cita citaExistente : citasExistentes) {
-                if (Math.abs(citaExistente.getFechaHora().compareTo(fechaHora)) < 2) { // 2 horas de diferencia
-                    return false;
-                }
-            }
+        long inicio = Metricas.inicio();
+        boolean libre = ocupacionMedicos.estaLibre(medico, fechaHora, BLOQUEO_POR_CITA); // 2 horas de diferencia
+        if (Metricas.HABILITADAS) {
+            Metricas.CITAS.disponibilidadVerificada(Metricas.transcurrido(inicio));
         }
-        return true;
+        return libre;
     }
 
     private boolean esSalaDisponible(Sala sala, LocalDateTime fechaHora) {
-        List<Cita> citasExistentes = citasPorSala.get(sala);
-        if (citasExistentes != null) {
-            for (Cita citaExistente : citasExistentes) {
-                if (Math.abs(citaExistente.getFechaHora().compareTo(fechaHora)) < 2) { // 2 horas de diferencia
-                    return false;
-                }
+        long inicio = Metricas.inicio();
+        boolean libre = ocupacionSalas.estaLibre(sala, fechaHora, BLOQUEO_POR_CITA); // 2 horas de diferencia
+        if (Metricas.HABILITADAS) {
+            Metricas.CITAS.disponibilidadVerificada(Metricas.transcurrido(inicio));
+        }
+        return libre;
+    }
+
+    // ACTUALIZACIONES CON CONCURRENCIA OPTIMISTA
+    @Override
+    public Cita cambiarEstado(Cita cita, EstadoCita nuevoEstado) throws CitaException {
+        for (int intento = 0; intento < MAX_REINTENTOS_ESTADO; intento++) {
+            Cita.EstadoVersionado actual = cita.getEstadoVersionado();
+            validarTransicion(actual.estado(), nuevoEstado);
+            if (cita.compareAndSetEstado(actual.version(), nuevoEstado)) {
+                return cita;
+            }
+            if (Metricas.HABILITADAS) {
+                Metricas.CITAS.conflictoDeVersion();
             }
         }
-        return true;
+        throw new CitaException("No se pudo actualizar el estado de la cita por modificaciones concurrentes.");
     }
 
-    private void actualizarIndicePaciente(Paciente paciente, Cita cita) {
-        List<Cita> citasPaciente = citasPorPaciente.get(paciente);
-        if (citasPaciente == null) {
-            citasPaciente = new ArrayList<>();
-            citasPorPaciente.put(paciente, citasPaciente);
+    @Override
+    public Cita cambiarEstado(Cita cita, long versionEsperada, EstadoCita nuevoEstado) throws CitaException {
+        Cita.EstadoVersionado actual = cita.getEstadoVersionado();
+        if (actual.version() == versionEsperada) {
+            validarTransicion(actual.estado(), nuevoEstado);
+            if (cita.compareAndSetEstado(versionEsperada, nuevoEstado)) {
+                return cita;
+            }
+        }
+        if (Metricas.HABILITADAS) {
+            Metricas.CITAS.conflictoDeVersion();
         }
-        citasPaciente.add(cita);
+        throw new CitaException("La cita fue modificada por otro usuario (versión esperada " + versionEsperada
+                + ", actual " + cita.getVersion() + ").");
     }
 
-    private void actualizarIndiceMedico(Medico medico, Cita cita) {
-        List<Cita> citasMedico = citasPorMedico.get(medico);
-        if (citasMedico == null) {
-            citasMedico = new ArrayList<>();
-            citasPorMedico.put(medico, citasMedico);
+    @Override
+    public Cita actualizarObservaciones(Cita cita, long versionEsperada, String observaciones) throws CitaException {
+        if (!cita.compareAndSetObservaciones(versionEsperada, observaciones)) {
+            if (Metricas.HABILITADAS) {
+                Metricas.CITAS.conflictoDeVersion();
+            }
+            throw new CitaException("La cita fue modificada por otro usuario (versión esperada " + versionEsperada
+                    + ", actual " + cita.getVersion() + ").");
+        }
+        return cita;
+    }
+
+    // CANCELACIÓN Y REPROGRAMACIÓN
+    public Cita cancelarCita(Cita cita) throws CitaException {
+        return cambiarEstado(cita, EstadoCita.CANCELADA);
+    }
+
+    @Override
+    public Cita cancelarCita(Cita cita, long versionEsperada) throws CitaException {
+        return cambiarEstado(cita, versionEsperada, EstadoCita.CANCELADA);
+    }
+
+    // Cancela la cita y crea otra igual en el nuevo horario (y en otra sala si nuevaSala no es null).
+    // Bajo el monitor: el horario viejo se libera solo mientras se verifica el nuevo, así la cita
+    // puede correrse dentro de su propio bloqueo, y si el nuevo no está libre nada cambia
+    @Override
+    public synchronized Cita reprogramarCita(Cita cita, long versionEsperada, LocalDateTime nuevaFechaHora,
+                                             Sala nuevaSala) throws CitaException {
+        long inicio = Metricas.inicio();
+        Sala sala = nuevaSala != null ? nuevaSala : cita.getSala();
+        validarSolicitud(cita.getMedico(), sala, nuevaFechaHora, cita.getCosto(), inicio);
+        if (!actual.contiene(cita)) {
+            throw new CitaException("La cita no está programada o ya fue cancelada.");
         }
-        citasMedico.add(cita);
+
+        ocupacionMedicos.liberar(cita.getMedico(), cita);
+        ocupacionSalas.liberar(cita.getSala(), cita);
+        boolean medicoLibre = esMedicoDisponible(cita.getMedico(), nuevaFechaHora);
+        boolean salaLibre = medicoLibre && esSalaDisponible(sala, nuevaFechaHora);
+        if (!medicoLibre || !salaLibre) {
+            ocupacionMedicos.ocupar(cita.getMedico(), cita);
+            ocupacionSalas.ocupar(cita.getSala(), cita);
+            throw !medicoLibre
+                    ? rechazo(MotivoRechazoCita.MEDICO_NO_DISPONIBLE, "El médico no está disponible en la fecha y hora solicitadas.", inicio)
+                    : rechazo(MotivoRechazoCita.SALA_NO_DISPONIBLE, "La sala no está disponible en la fecha y hora solicitadas.", inicio);
+        }
+
+        String observaciones = cita.getObservaciones();
+        try {
+            // Si otro hilo la modificó, cambiarEstado falla y se devuelve el horario viejo
+            cambiarEstado(cita, versionEsperada, EstadoCita.CANCELADA);
+        } catch (CitaException e) {
+            if (actual.contiene(cita)) {
+                ocupacionMedicos.ocupar(cita.getMedico(), cita);
+                ocupacionSalas.ocupar(cita.getSala(), cita);
+            }
+            throw e;
+        }
+        // Nadie pudo ocupar el horario nuevo entre la verificación y acá: seguimos dentro del monitor
+        Cita reprogramada = registrarValidada(cita.getPaciente(), cita.getMedico(), sala, nuevaFechaHora,
+                cita.getCosto(), observaciones, inicio);
+        publicarInstantanea();
+        return reprogramada;
     }
 
-    private void actualizarIndiceSala(Sala sala, Cita cita) {
-        List<Cita> citasSala = citasPorSala.get(sala);
-        if (citasSala == null) {
-            citasSala = new ArrayList<>();
-            citasPorSala.put(sala, citasSala);
+    private void validarTransicion(EstadoCita actual, EstadoCita nuevo) throws CitaException {
+        if (actual == nuevo) {
+            return;
+        }
+        if (actual.esFinal()) {
+            throw new CitaException("La cita ya está " + actual.getDescripcion().toLowerCase()
+                    + " y no puede pasar a " + nuevo.getDescripcion().toLowerCase() + ".");
         }
-        citasSala.add(cita);
     }
 
+    // CONSULTAS: historial archivado (si lo hay) seguido de las citas calientes
     @Override
     public List<Cita> getCitasPorPaciente(Paciente paciente) {
-        List<Cita> citasPaciente = citasPorPaciente.get(paciente);
-        if (citasPaciente != null) {
-            return Collections.unmodifiableList(citasPaciente);
-        } else {
-            return Collections.emptyList();
-        }
+        ArchivoCitas frio = archivo;
+        List<Cita> calientes = getInstantanea().getCitasPorPaciente(paciente);
+        return frio != null ? unir(frio.getCitasPorPaciente(paciente), calientes) : calientes;
     }
 
     @Override
     public List<Cita> getCitasPorMedico(Medico medico) {
-        List<Cita> citasMedico = citasPorMedico.get(medico);
-        if (citasMedico != null) {
-            return Collections.unmodifiableList(citasMedico);
-        } else {
-            return Collections.emptyList();
-        }
+        ArchivoCitas frio = archivo;
+        List<Cita> calientes = getInstantanea().getCitasPorMedico(medico);
+        return frio != null ? unir(frio.getCitasPorMedico(medico), calientes) : calientes;
     }
 
     @Override
     public List<Cita> getCitasPorSala(Sala sala) {
-        List<Cita> citasSala = citasPorSala.get(sala);
-        if (citasSala != null) {
-            return Collections.unmodifiableList(citasSala);
-        } else {
-            return Collections.emptyList();
+        ArchivoCitas frio = archivo;
+        List<Cita> calientes = getInstantanea().getCitasPorSala(sala);
+        return frio != null ? unir(frio.getCitasPorSala(sala), calientes) : calientes;
+    }
+
+    // Una cita que se está archivando puede estar a la vez en disco y en los índices calientes. La del
+    // nivel frío es otro objeto (se leyó del CSV), así que se reconoce por paciente, médico, sala y horario
+    static List<Cita> unir(List<Cita> archivadas, List<Cita> calientes) {
+        if (archivadas.isEmpty()) {
+            return calientes;
+        }
+        List<Cita> todas = new ArrayList<>(archivadas.size() + calientes.size());
+        todas.addAll(archivadas);
+        if (calientes.isEmpty()) {
+            return Collections.unmodifiableList(todas);
         }
+        Set<ClaveCita> enFrio = new HashSet<>();
+        for (Cita cita : archivadas) {
+            enFrio.add(ClaveCita.de(cita));
+        }
+        for (Cita cita : calientes) {
+            if (!enFrio.contains(ClaveCita.de(cita))) {
+                todas.add(cita);
+            }
+        }
+        return Collections.unmodifiableList(todas);
+    }
+
+    // También la usa ArchivoCitas para no repetir una cita que quedó dos veces en un segmento
+    record ClaveCita(String paciente, String medico, String sala, LocalDateTime fechaHora) {
+        static ClaveCita de(Cita cita) {
+            return new ClaveCita(cita.getPaciente().getDni(), cita.getMedico().getDni(), cita.getSala().getNumero(),
+                    cita.getFechaHora());
+        }
+    }
+
+    // AGENDA DIARIA: O(citas del día) usando los buckets por fecha. Un día archivado además lee
+    // del nivel frío solo el segmento de su mes (descomprimido una vez y después desde el LRU)
+    @Override
+    public List<Cita> getAgendaMedico(Medico medico, LocalDate dia) {
+        ArchivoCitas frio = archivo;
+        List<Cita> calientes = agendaMedicos.getAgenda(medico, dia);
+        return frio != null ? unir(frio.getAgendaMedico(medico, dia), calientes) : calientes;
     }
 
     @Override
-    public void guardarCitas(String filename) throws IOException {
+    public List<Cita> getAgendaSala(Sala sala, LocalDate dia) {
+        ArchivoCitas frio = archivo;
+        List<Cita> calientes = agendaSalas.getAgenda(sala, dia);
+        return frio != null ? unir(frio.getAgendaSala(sala, dia), calientes) : calientes;
+    }
+
+    // BÚSQUEDA DE HUECOS LIBRES
+    public void registrarHospital(Hospital hospital) {
+        for (Departamento departamento : hospital.getDepartamentos()) {
+            registrarDepartamento(departamento);
+        }
+    }
+
+    public void registrarDepartamento(Departamento departamento) {
+        synchronized (departamentosPorEspecialidad) {
+            departamentosPorEspecialidad
+                    .computeIfAbsent(departamento.getEspecialidad(), e -> new LinkedHashSet<>())
+                    .add(departamento);
+        }
+    }
+
+    @Override
+    public List<HuecoLibre> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde,
+                                               LocalDateTime hasta, Duration duracion) {
+        return buscarHuecosLibres(especialidad, desde, hasta, duracion, MAX_HUECOS_POR_DEFECTO);
+    }
+
+    // Fusiona los huecos de cada par (médico, sala) con una cola de prioridad: devuelve los N más tempranos
+    @Override
+    public List<HuecoLibre> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde,
+                                               LocalDateTime hasta, Duration duracion, int maxResultados) {
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime inicio = desde.isBefore(ahora) ? ahora : desde;
+        Duration paso = duracion.compareTo(BLOQUEO_POR_CITA) > 0 ? duracion : BLOQUEO_POR_CITA;
+
+        List<Departamento> departamentos;
+        synchronized (departamentosPorEspecialidad) {
+            departamentos = new ArrayList<>(departamentosPorEspecialidad.getOrDefault(especialidad, Set.of()));
+        }
+
+        PriorityQueue<HuecoLibre> candidatos = new PriorityQueue<>(Comparator.comparing(HuecoLibre::getInicio));
+        for (Departamento departamento : departamentos) {
+            for (Medico medico : departamento.getMedicos()) {
+                for (Sala sala : departamento.getSalas()) {
+                    HuecoLibre hueco = siguienteHuecoComun(medico, sala, inicio, hasta, duracion);
+                    if (hueco != null) {
+                        candidatos.add(hueco);
+                    }
+                }
+            }
+        }
+
+        List<HuecoLibre> huecos = new ArrayList<>();
+        while (huecos.size() < maxResultados && !candidatos.isEmpty()) {
+            HuecoLibre hueco = candidatos.poll();
+            huecos.add(hueco);
+            HuecoLibre siguiente = siguienteHuecoComun(hueco.getMedico(), hueco.getSala(),
+                    hueco.getInicio().plus(paso), hasta, duracion);
+            if (siguiente != null) {
+                candidatos.add(siguiente);
+            }
+        }
+        return huecos;
+    }
+
+    // Alterna entre la ocupación del médico y la de la sala hasta que ambas coinciden en un inicio libre
+    private HuecoLibre siguienteHuecoComun(Medico medico, Sala sala, LocalDateTime desde,
+                                           LocalDateTime hasta, Duration duracion) {
+        if (ocupacionMedicos instanceof OcupacionPorSlots<Medico> slotsMedicos
+                && ocupacionSalas instanceof OcupacionPorSlots<Sala> slotsSalas) {
+            LocalDateTime libre = OcupacionPorSlots.primerInicioLibreComun(slotsMedicos, medico, slotsSalas, sala,
+                    desde, hasta, duracion);
+            return libre != null ? new HuecoLibre(medico, sala, libre, libre.plus(duracion)) : null;
+        }
+
+        LocalDateTime inicio = desde;
+        while (true) {
+            LocalDateTime libreMedico = ocupacionMedicos.primerInicioLibre(medico, inicio, hasta, duracion);
+            if (libreMedico == null) {
+                return null;
+            }
+            LocalDateTime libreSala = ocupacionSalas.primerInicioLibre(sala, libreMedico, hasta, duracion);
+            if (libreSala == null) {
+                return null;
+            }
+            if (libreSala.equals(libreMedico)) {
+                return new HuecoLibre(medico, sala, libreSala, libreSala.plus(duracion));
+            }
+            inicio = libreSala;
+        }
+    }
+
+    @Override
+    public synchronized void guardarCitas(String filename) throws IOException {
+        long inicio = Metricas.inicio();
         try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            for (Cita cita : citas) {
+            for (Cita cita : actual.getCitas()) {
                 writer.println(cita.toCsvString());
             }
         }
+        if (Metricas.HABILITADAS) {
+            Metricas.CITAS.guardadoCsv(Metricas.transcurrido(inicio));
+        }
     }
 
+    // Todo o nada: si alguna fila es inválida no se toca el estado actual
     @Override
-    public void cargarCitas(String filename, Map<String, Paciente> pacientes,
+    public synchronized void cargarCitas(String filename, Map<String, Paciente> pacientes,
                             Map<String, Medico> medicos, Map<String, Sala> salas)
             throws IOException, ClassNotFoundException, CitaException {
-        citas.clear();
-        citasPorPaciente.clear();
-        citasPorMedico.clear();
-        citasPorSala.clear();
+        long inicio = Metricas.inicio();
+        List<Cita> leidas = leerCsv(filename, pacientes, medicos, salas);
+        limpiar();
+        try {
+            for (Cita cita : leidas) {
+                indexarCita(cita);
+            }
+        } finally {
+            publicarInstantanea();
+        }
+        if (Metricas.HABILITADAS) {
+            Metricas.CITAS.cargaCsv(Metricas.transcurrido(inicio), actual.getCantidad());
+        }
+        log.debug("Cargadas {} citas desde {}", actual.getCantidad(), filename);
+    }
 
+    // Lee y valida el archivo completo antes de cargar nada. Solo se cuentan como filas inválidas los
+    // errores de formato y las entidades inexistentes; cualquier otra excepción es un error de programa.
+    // Las filas CANCELADA se validan pero no se devuelven: una cita cancelada no ocupa horario ni figura
+    // en los índices, igual que cuando se cancela en memoria
+    static List<Cita> leerCsv(String filename, Map<String, Paciente> pacientes,
+                              Map<String, Medico> medicos, Map<String, Sala> salas)
+            throws IOException, CitaException {
+        List<Cita> leidas = new ArrayList<>();
+        ErroresCarga errores = new ErroresCarga(filename);
+        long numeroLinea = 0;
         try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
             String line;
             while ((line = reader.readLine()) != null) {
+                numeroLinea++;
                 try {
                     Cita cita = Cita.fromCsvString(line, pacientes, medicos, salas);
-                    citas.add(cita);
-                    actualizarIndicePaciente(cita.getPaciente(), cita);
-                    actualizarIndiceMedico(cita.getMedico(), cita);
-                    actualizarIndiceSala(cita.getSala(), cita);
-                } catch (CitaException e) {
-                    System.err.println("Error al cargar cita desde CSV: " + line + " - " + e.getMessage());
-                    throw e;
+                    if (cita.getEstado() != EstadoCita.CANCELADA) {
+                        leidas.add(cita);
+                    }
+                } catch (CitaException | DateTimeException | IllegalArgumentException e) {
+                    errores.registrar(numeroLinea, line, e.getMessage());
                 }
             }
         }
+        if (errores.hayErrores()) {
+            throw errores.informar(log, numeroLinea);
+        }
+        return leidas;
     }
 }
@@ -0,0 +1,196 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+import org.jcr.enums.EspecialidadMedica;
+import org.jcr.enums.EstadoCita;
+import org.jcr.metricas.Metricas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// CitaService asincrónico sobre un CitaManager. Una reserva pasa por tres etapas:
+// validación (sin estado, en el pool de trabajo), conflicto e indexado (en un único hilo escritor)
+// y etapas posteriores registradas por el llamador (notificación, diario, estadísticas),
+// que corren en paralelo en el pool de trabajo sin frenar al escritor.
+public class CitaManagerAsincrono implements CitaServiceAsincrono, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(CitaManagerAsincrono.class);
+
+    private final CitaManager manager;
+    private final Executor trabajo;
+    private final boolean trabajoPropio;
+    private final ExecutorService escritor;
+    private final List<Consumer<Cita>> etapasPosteriores = new CopyOnWriteArrayList<>();
+
+    // Las etapas posteriores suelen bloquear (disco, red): por defecto no se usa el commonPool
+    public CitaManagerAsincrono(CitaManager manager) {
+        this(manager, Executors.newFixedThreadPool(
+                Integer.getInteger("hospital.citas.hilosTrabajo", Runtime.getRuntime().availableProcessors() * 4),
+                hilosDeTrabajo()), true);
+    }
+
+    private static ThreadFactory hilosDeTrabajo() {
+        AtomicInteger numero = new AtomicInteger();
+        return tarea -> {
+            Thread hilo = new Thread(tarea, "citas-trabajo-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+
+    public CitaManagerAsincrono(CitaManager manager, Executor trabajo) {
+        this(manager, trabajo, false);
+    }
+
+    private CitaManagerAsincrono(CitaManager manager, Executor trabajo, boolean trabajoPropio) {
+        this.manager = manager;
+        this.trabajo = trabajo;
+        this.trabajoPropio = trabajoPropio;
+        this.escritor = Executors.newSingleThreadExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "citas-escritor");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    // Se ejecuta por cada cita programada; un fallo se registra en el log pero no deshace la reserva
+    public void agregarEtapaPosterior(Consumer<Cita> etapa) {
+        etapasPosteriores.add(etapa);
+    }
+
+    // RESERVAS
+    @Override
+    public CompletableFuture<Cita> programarCita(Paciente paciente, Medico medico, Sala sala,
+                                                 LocalDateTime fechaHora, BigDecimal costo) {
+        long inicio = Metricas.inicio();
+        return CompletableFuture
+                .runAsync(() -> etapa(() -> {
+                    manager.validarSolicitud(medico, sala, fechaHora, costo, inicio);
+                    return null;
+                }), trabajo)
+                .thenApplyAsync(v -> etapa(() -> {
+                    Cita cita = manager.registrarValidada(paciente, medico, sala, fechaHora, costo, inicio);
+                    manager.publicarInstantanea();
+                    return cita;
+                }), escritor)
+                .thenCompose(this::ejecutarEtapasPosteriores);
+    }
+
+    private CompletableFuture<Cita> ejecutarEtapasPosteriores(Cita cita) {
+        List<Consumer<Cita>> etapas = etapasPosteriores;
+        if (etapas.isEmpty()) {
+            return CompletableFuture.completedFuture(cita);
+        }
+        CompletableFuture<?>[] pendientes = new CompletableFuture<?>[etapas.size()];
+        int i = 0;
+        for (Consumer<Cita> etapa : etapas) {
+            pendientes[i++] = CompletableFuture.runAsync(() -> etapa.accept(cita), trabajo)
+                    .exceptionally(e -> {
+                        log.warn("Falló una etapa posterior de la cita del {}", cita.getFechaHora(), e);
+                        return null;
+                    });
+        }
+        return CompletableFuture.allOf(pendientes).thenApply(v -> cita);
+    }
+
+    // Las actualizaciones son compare-and-set sobre la cita: no necesitan pasar por el escritor
+    @Override
+    public CompletableFuture<Cita> cambiarEstado(Cita cita, long versionEsperada, EstadoCita nuevoEstado) {
+        return CompletableFuture.supplyAsync(() -> etapa(() -> manager.cambiarEstado(cita, versionEsperada, nuevoEstado)), trabajo);
+    }
+
+    @Override
+    public CompletableFuture<Cita> actualizarObservaciones(Cita cita, long versionEsperada, String observaciones) {
+        return CompletableFuture.supplyAsync(() -> etapa(() -> manager.actualizarObservaciones(cita, versionEsperada, observaciones)), trabajo);
+    }
+
+    @Override
+    public CompletableFuture<Cita> cancelarCita(Cita cita, long versionEsperada) {
+        return CompletableFuture.supplyAsync(() -> etapa(() -> manager.cancelarCita(cita, versionEsperada)), trabajo);
+    }
+
+    // Ocupa un horario nuevo: se serializa con las reservas en el escritor
+    @Override
+    public CompletableFuture<Cita> reprogramarCita(Cita cita, long versionEsperada, LocalDateTime nuevaFechaHora, Sala nuevaSala) {
+        return CompletableFuture.supplyAsync(() -> etapa(() -> manager.reprogramarCita(cita, versionEsperada, nuevaFechaHora, nuevaSala)), escritor);
+    }
+
+    // CONSULTAS: leen la última foto publicada del manager, sin pasar por el escritor
+    @Override
+    public CompletableFuture<List<Cita>> getCitasPorPaciente(Paciente paciente) {
+        return CompletableFuture.completedFuture(manager.getCitasPorPaciente(paciente));
+    }
+
+    @Override
+    public CompletableFuture<List<Cita>> getCitasPorMedico(Medico medico) {
+        return CompletableFuture.completedFuture(manager.getCitasPorMedico(medico));
+    }
+
+    @Override
+    public CompletableFuture<List<Cita>> getCitasPorSala(Sala sala) {
+        return CompletableFuture.completedFuture(manager.getCitasPorSala(sala));
+    }
+
+    @Override
+    public CompletableFuture<List<Cita>> getAgendaMedico(Medico medico, LocalDate dia) {
+        return CompletableFuture.supplyAsync(() -> manager.getAgendaMedico(medico, dia), trabajo);
+    }
+
+    @Override
+    public CompletableFuture<List<Cita>> getAgendaSala(Sala sala, LocalDate dia) {
+        return CompletableFuture.supplyAsync(() -> manager.getAgendaSala(sala, dia), trabajo);
+    }
+
+    // Los índices de ocupación son sincronizados: la búsqueda de huecos no ocupa al escritor
+    @Override
+    public CompletableFuture<List<HuecoLibre>> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde,
+                                                                  LocalDateTime hasta, Duration duracion, int maxResultados) {
+        return CompletableFuture.supplyAsync(
+                () -> manager.buscarHuecosLibres(especialidad, desde, hasta, duracion, maxResultados), trabajo);
+    }
+
+    // PERSISTENCIA: guardarCitas toma el monitor del manager, así que no compite con un alta a medias
+    @Override
+    public CompletableFuture<Void> guardarCitas(String filename) {
+        return CompletableFuture.runAsync(() -> etapa(() -> {
+            manager.guardarCitas(filename);
+            return null;
+        }), trabajo);
+    }
+
+    @Override
+    public void close() {
+        escritor.shutdown();
+        if (trabajoPropio) {
+            ((ExecutorService) trabajo).shutdown();
+        }
+    }
+
+    // Las excepciones verificadas viajan en el futuro envueltas en CompletionException
+    private static <T> T etapa(Callable<T> cuerpo) {
+        try {
+            return cuerpo.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package org.jcr.servicios;
+
+import org.jcr.analitica.InstantaneaColumnarCitas;
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Departamento;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+import org.jcr.enums.EspecialidadMedica;
+import org.jcr.enums.EstadoCita;
+import org.jcr.eventos.EventoCita;
+import org.jcr.eventos.PublicadorEventosCitas;
+import org.jcr.eventos.SuscriptorEventosCitas;
+import org.jcr.excepciones.CitaException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+// Motor de citas particionado por Hospital: cada partición tiene su propio CitaManager
+// y un hilo dedicado, de modo que un hospital con mucha carga no frena a los demás.
+// Las consultas que cruzan hospitales (por paciente, huecos, exportación) se resuelven con scatter-gather.
+public class CitaManagerParticionado implements CitaService, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(CitaManagerParticionado.class);
+
+    private final Map<Hospital, Particion> particiones = new ConcurrentHashMap<>();
+    private final CitaManager.ModoOcupacion modo;
+    private volatile PublicadorEventosCitas eventos;
+    private volatile ArchivoCitas archivo;
+
+    public CitaManagerParticionado() {
+        this(CitaManager.ModoOcupacion.ORDENADA);
+    }
+
+    public CitaManagerParticionado(CitaManager.ModoOcupacion modo) {
+        this.modo = modo;
+    }
+
+    private static final class Particion {
+        private final CitaManager manager;
+        private final ExecutorService ejecutor;
+
+        private Particion(Hospital hospital, CitaManager.ModoOcupacion modo) {
+            this.manager = new CitaManager(modo);
+            this.ejecutor = Executors.newSingleThreadExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "citas-" + hospital.getNombre());
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+    }
+
+    // REGISTRO Y RUTEO
+    public void registrarHospital(Hospital hospital) {
+        Particion particion = particionDe(hospital);
+        for (Departamento departamento : hospital.getDepartamentos()) {
+            particion.manager.registrarDepartamento(departamento);
+        }
+    }
+
+    // Todas las particiones publican en el mismo flujo; el orden se conserva dentro de cada hospital
+    public void setEventos(PublicadorEventosCitas eventos) {
+        this.eventos = eventos;
+        for (Particion particion : particiones.values()) {
+            particion.manager.setEventos(eventos);
+        }
+    }
+
+    // La foto inicial se toma con los monitores de todas las particiones, así ningún hospital publica
+    // entre la foto y el alta. Las particiones nuevas no pueden crearse mientras tanto (ver particionDe)
+    public synchronized void suscribir(SuscriptorEventosCitas suscriptor) {
+        PublicadorEventosCitas destino = eventos;
+        if (destino == null) {
+            throw new IllegalStateException("No hay un publicador de eventos configurado.");
+        }
+        List<CitaManager> managers = new ArrayList<>();
+        for (Particion particion : particiones.values()) {
+            managers.add(particion.manager);
+        }
+        suscribirBloqueando(managers, 0, new ArrayList<>(), destino, suscriptor);
+    }
+
+    private static void suscribirBloqueando(List<CitaManager> managers, int i, List<EventoCita> iniciales,
+                                            PublicadorEventosCitas destino, SuscriptorEventosCitas suscriptor) {
+        if (i == managers.size()) {
+            destino.suscribir(suscriptor, iniciales);
+            return;
+        }
+        CitaManager manager = managers.get(i);
+        synchronized (manager) {
+            manager.agregarIniciales(iniciales);
+            suscribirBloqueando(managers, i + 1, iniciales, destino, suscriptor);
+        }
+    }
+
+    // Un solo nivel frío compartido; las consultas que difunden leen solo lo caliente de cada
+    // partición y agregan el historial una vez, para no repetirlo por hospital
+    public void setArchivo(ArchivoCitas archivo) {
+        this.archivo = archivo;
+        for (Particion particion : particiones.values()) {
+            particion.manager.setArchivo(archivo);
+        }
+    }
+
+    // Cada partición archiva en su propio hilo, entre dos operaciones de ese hospital
+    public int archivarHistorial() throws IOException {
+        ArchivoCitas destino = archivo;
+        if (destino == null) {
+            throw new IllegalStateException("No hay un archivo de citas configurado.");
+        }
+        LocalDateTime antesDe = LocalDate.now().atStartOfDay();
+        int archivadas = 0;
+        try {
+            for (int parcial : difundir(manager -> {
+                try {
+                    return manager.archivarEn(destino, antesDe);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })) {
+                archivadas += parcial;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return archivadas;
+    }
+
+    public int getCantidadParticiones() {
+        return particiones.size();
+    }
+
+    // El alta de una partición pasa por el monitor para no cruzarse con la foto de suscribir
+    private Particion particionDe(Hospital hospital) {
+        Particion existente = particiones.get(hospital);
+        if (existente != null) {
+            return existente;
+        }
+        synchronized (this) {
+            return particiones.computeIfAbsent(hospital, h -> {
+                Particion particion = new Particion(h, modo);
+                particion.manager.setEventos(eventos);
+                particion.manager.setArchivo(archivo);
+                return particion;
+            });
+        }
+    }
+
+    private Particion particionDe(Sala sala) throws CitaException {
+        Hospital hospital = sala.getDepartamento().getHospital();
+        if (hospital == null) {
+            throw new CitaException("La sala " + sala.getNumero() + " no pertenece a ningún hospital.");
+        }
+        return particionDe(hospital);
+    }
+
+    // Una cita vive en una sola partición, la del hospital de su sala. Para que el control de agenda del
+    // médico y getCitasPorMedico vean todas sus citas, el médico tiene que ser de ese mismo hospital
+    private Particion particionDe(Medico medico, Sala sala) throws CitaException {
+        Particion particion = particionDe(sala);
+        Departamento departamento = medico.getDepartamento();
+        if (departamento == null || departamento.getHospital() != sala.getDepartamento().getHospital()) {
+            throw new CitaException("El médico " + medico.getDni() + " no pertenece al hospital de la sala "
+                    + sala.getNumero() + ".");
+        }
+        return particion;
+    }
+
+    private Particion particionDe(Medico medico) {
+        Departamento departamento = medico.getDepartamento();
+        if (departamento == null || departamento.getHospital() == null) {
+            return null;
+        }
+        return particiones.get(departamento.getHospital());
+    }
+
+    // OPERACIONES DE ESCRITURA: se serializan en el hilo de la partición
+    @Override
+    public Cita programarCita(Paciente paciente, Medico medico, Sala sala,
+                              LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
+        Particion particion = particionDe(medico, sala);
+        return ejecutar(particion, () -> particion.manager.programarCita(paciente, medico, sala, fechaHora, costo));
+    }
+
+    @Override
+    public Cita cambiarEstado(Cita cita, EstadoCita nuevoEstado) throws CitaException {
+        Particion particion = particionDe(cita.getSala());
+        return ejecutar(particion, () -> particion.manager.cambiarEstado(cita, nuevoEstado));
+    }
+
+    @Override
+    public Cita cambiarEstado(Cita cita, long versionEsperada, EstadoCita nuevoEstado) throws CitaException {
+        Particion particion = particionDe(cita.getSala());
+        return ejecutar(particion, () -> particion.manager.cambiarEstado(cita, versionEsperada, nuevoEstado));
+    }
+
+    @Override
+    public Cita actualizarObservaciones(Cita cita, long versionEsperada, String observaciones) throws CitaException {
+        Particion particion = particionDe(cita.getSala());
+        return ejecutar(particion, () -> particion.manager.actualizarObservaciones(cita, versionEsperada, observaciones));
+    }
+
+    @Override
+    public Cita cancelarCita(Cita cita, long versionEsperada) throws CitaException {
+        Particion particion = particionDe(cita.getSala());
+        return ejecutar(particion, () -> particion.manager.cancelarCita(cita, versionEsperada));
+    }
+
+    // Cada hospital tiene sus propios índices: la cita solo puede moverse dentro del mismo
+    @Override
+    public Cita reprogramarCita(Cita cita, long versionEsperada, LocalDateTime nuevaFechaHora, Sala nuevaSala) throws CitaException {
+        Particion particion = particionDe(cita.getSala());
+        if (nuevaSala != null && particionDe(nuevaSala) != particion) {
+            throw new CitaException("No se puede reprogramar una cita en una sala de otro hospital.");
+        }
+        return ejecutar(particion, () -> particion.manager.reprogramarCita(cita, versionEsperada, nuevaFechaHora, nuevaSala));
+    }
+
+    // CONSULTAS
+    @Override
+    public List<Cita> getCitasPorPaciente(Paciente paciente) {
+        ArchivoCitas frio = archivo;
+        List<Cita> calientes = new ArrayList<>();
+        for (List<Cita> parcial : difundir(manager -> List.copyOf(manager.getInstantanea().getCitasPorPaciente(paciente)))) {
+            calientes.addAll(parcial);
+        }
+        List<Cita> resultado = new ArrayList<>(frio != null ? CitaManager.unir(frio.getCitasPorPaciente(paciente), calientes) : calientes);
+        resultado.sort(Comparator.comparing(Cita::getFechaHora));
+        return Collections.unmodifiableList(resultado);
+    }
+
+    @Override
+    public List<Cita> getCitasPorMedico(Medico medico) {
+        Particion particion = particionDe(medico);
+        if (particion != null) {
+            return consultar(particion, () -> List.copyOf(particion.manager.getCitasPorMedico(medico)));
+        }
+        ArchivoCitas frio = archivo;
+        List<Cita> calientes = new ArrayList<>();
+        for (List<Cita> parcial : difundir(manager -> List.copyOf(manager.getInstantanea().getCitasPorMedico(medico)))) {
+            calientes.addAll(parcial);
+        }
+        return frio != null ? CitaManager.unir(frio.getCitasPorMedico(medico), calientes) : Collections.unmodifiableList(calientes);
+    }
+
+    @Override
+    public List<Cita> getCitasPorSala(Sala sala) {
+        Hospital hospital = sala.getDepartamento().getHospital();
+        Particion particion = hospital != null ? particiones.get(hospital) : null;
+        if (particion == null) {
+            return Collections.emptyList();
+        }
+        return consultar(particion, () -> List.copyOf(particion.manager.getCitasPorSala(sala)));
+    }
+
+    @Override
+    public List<Cita> getAgendaMedico(Medico medico, LocalDate dia) {
+        Particion particion = particionDe(medico);
+        if (particion == null) {
+            return Collections.emptyList();
+        }
+        return consultar(particion, () -> particion.manager.getAgendaMedico(medico, dia));
+    }
+
+    @Override
+    public List<Cita> getAgendaSala(Sala sala, LocalDate dia) {
+        Hospital hospital = sala.getDepartamento().getHospital();
+        Particion particion = hospital != null ? particiones.get(hospital) : null;
+        if (particion == null) {
+            return Collections.emptyList();
+        }
+        return consultar(particion, () -> particion.manager.getAgendaSala(sala, dia));
+    }
+
+    @Override
+    public List<HuecoLibre> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde,
+                                               LocalDateTime hasta, Duration duracion) {
+        return buscarHuecosLibres(especialidad, desde, hasta, duracion, CitaManager.MAX_HUECOS_POR_DEFECTO);
+    }
+
+    @Override
+    public List<HuecoLibre> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde,
+                                               LocalDateTime hasta, Duration duracion, int maxResultados) {
+        List<HuecoLibre> huecos = new ArrayList<>();
+        for (List<HuecoLibre> parcial : difundir(manager ->
+                manager.buscarHuecosLibres(especialidad, desde, hasta, duracion, maxResultados))) {
+            huecos.addAll(parcial);
+        }
+        huecos.sort(Comparator.comparing(HuecoLibre::getInicio));
+        return huecos.size() > maxResultados ? new ArrayList<>(huecos.subList(0, maxResultados)) : huecos;
+    }
+
+    // Como en CitaManager: lo caliente de cada partición más el historial archivado, leído una vez
+    public InstantaneaColumnarCitas getInstantaneaColumnar() {
+        ArchivoCitas frio = archivo;
+        List<Cita> calientes = new ArrayList<>();
+        for (List<Cita> parcial : difundir(CitaManager::getCitas)) {
+            calientes.addAll(parcial);
+        }
+        return InstantaneaColumnarCitas.desde(frio != null ? CitaManager.unir(frio.getCitas(), calientes) : calientes);
+    }
+
+    // PERSISTENCIA
+    @Override
+    public void guardarCitas(String filename) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+            for (List<Cita> parcial : difundir(CitaManager::getCitas)) {
+                for (Cita cita : parcial) {
+                    writer.println(cita.toCsvString());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void cargarCitas(String filename, Map<String, Paciente> pacientes,
+                            Map<String, Medico> medicos, Map<String, Sala> salas)
+            throws IOException, ClassNotFoundException, CitaException {
+        // Todo o nada, como CitaManager: primero se valida el archivo entero
+        List<Cita> leidas = CitaManager.leerCsv(filename, pacientes, medicos, salas);
+        List<Particion> destinos = new ArrayList<>(leidas.size());
+        for (Cita cita : leidas) {
+            destinos.add(particionDe(cita.getMedico(), cita.getSala()));
+        }
+        difundir(manager -> {
+            manager.limpiar();
+            return Boolean.TRUE;
+        });
+        try {
+            List<Future<?>> pendientes = new ArrayList<>(leidas.size());
+            for (int i = 0; i < leidas.size(); i++) {
+                Cita cita = leidas.get(i);
+                Particion particion = destinos.get(i);
+                pendientes.add(particion.ejecutor.submit(() -> particion.manager.indexarCita(cita)));
+            }
+            // Un error al indexar llega a quien carga, como en CitaManager.cargarCitas
+            for (Future<?> pendiente : pendientes) {
+                esperar(pendiente);
+            }
+        } finally {
+            // Las colas de cada partición son FIFO: esta tarea corre después de toda la carga y publica la foto
+            difundir(manager -> {
+                manager.publicarInstantanea();
+                return Boolean.TRUE;
+            });
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Particion particion : particiones.values()) {
+            particion.ejecutor.shutdown();
+        }
+    }
+
+    // SCATTER-GATHER: las listas se copian dentro del hilo de la partición antes de salir
+    private <T> List<T> difundir(Function<CitaManager, T> consulta) {
+        List<Future<T>> pendientes = new ArrayList<>();
+        for (Particion particion : particiones.values()) {
+            pendientes.add(particion.ejecutor.submit(() -> consulta.apply(particion.manager)));
+        }
+        List<T> resultados = new ArrayList<>(pendientes.size());
+        for (Future<T> pendiente : pendientes) {
+            resultados.add(esperar(pendiente));
+        }
+        return resultados;
+    }
+
+    private <T> T consultar(Particion particion, Callable<T> consulta) {
+        return esperar(particion.ejecutor.submit(consulta));
+    }
+
+    private <T> T ejecutar(Particion particion, Callable<T> operacion) throws CitaException {
+        try {
+            return particion.ejecutor.submit(operacion).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CitaException("Operación interrumpida.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CitaException citaException) {
+                throw citaException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new CitaException("Error en la partición de citas.", e.getCause());
+        }
+    }
+
+    private <T> T esperar(Future<T> pendiente) {
+        try {
+            return pendiente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Consulta interrumpida.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Error en la partición de citas.", e.getCause());
+        }
+    }
+}
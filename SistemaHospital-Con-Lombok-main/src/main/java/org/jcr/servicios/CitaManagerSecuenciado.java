@@ -0,0 +1,360 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+import org.jcr.enums.EspecialidadMedica;
+import org.jcr.enums.EstadoCita;
+import org.jcr.eventos.PublicadorEventosCitas;
+import org.jcr.eventos.SuscriptorEventosCitas;
+import org.jcr.excepciones.CitaException;
+import org.jcr.metricas.Metricas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Modo de reservas de un solo escritor: las solicitudes se publican en un AnilloSolicitudes y un
+// único hilo las aplica por lotes sobre un CitaManager que solo él modifica (sus monitores nunca
+// se disputan). Al final de cada lote se vacía el DiarioCitas una vez, el manager publica una nueva
+// InstantaneaCitas y recién entonces se completan las solicitudes del lote. Durante el lote el
+// manager no publica fotos intermedias, ni siquiera si una cancelación llega por otro camino.
+// Los lectores consultan la última instantánea publicada sin tomar ningún lock.
+public class CitaManagerSecuenciado implements CitaService, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(CitaManagerSecuenciado.class);
+
+    public static final int CAPACIDAD_POR_DEFECTO = 1024;
+    private static final int MAX_LOTE = 256;
+    private static final long ESPERA_ESCRITOR_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final CitaManager manager;
+    private final AnilloSolicitudes<Operacion> anillo;
+    private final DiarioCitas diario;
+    private final Thread escritor;
+    // Reservas confirmadas en memoria cuyo lote no llegó al diario
+    private final AtomicLong reservasSinDiario = new AtomicLong();
+    private volatile IOException ultimoFalloDiario;
+
+    private sealed interface Operacion permits Reserva, Control {
+    }
+
+    private record Reserva(Paciente paciente, Medico medico, Sala sala, LocalDateTime fechaHora,
+                           BigDecimal costo, long inicio, CompletableFuture<Cita> resultado) implements Operacion {
+    }
+
+    private record Control(Callable<Object> accion, CompletableFuture<Object> resultado) implements Operacion {
+    }
+
+    public CitaManagerSecuenciado() {
+        this(CitaManager.ModoOcupacion.ORDENADA,
+                Integer.getInteger("hospital.citas.capacidadAnillo", CAPACIDAD_POR_DEFECTO), null);
+    }
+
+    // diario puede ser null; si se pasa, lo cierra quien lo creó después de cerrar este servicio
+    public CitaManagerSecuenciado(CitaManager.ModoOcupacion modo, int capacidad, DiarioCitas diario) {
+        this.manager = new CitaManager(modo);
+        this.anillo = new AnilloSolicitudes<>(capacidad);
+        this.diario = diario;
+        this.escritor = new Thread(this::aplicarLotes, "citas-secuenciador");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    public void registrarHospital(Hospital hospital) {
+        manager.registrarHospital(hospital);
+    }
+
+    public void setEventos(PublicadorEventosCitas eventos) {
+        manager.setEventos(eventos);
+    }
+
+    // Toma la foto con el monitor del manager: el escritor no puede estar a mitad de una cita
+    public void suscribir(SuscriptorEventosCitas suscriptor) {
+        manager.suscribir(suscriptor);
+    }
+
+    public void setArchivo(ArchivoCitas archivo) {
+        manager.setArchivo(archivo);
+    }
+
+    // Saca índices calientes: corre en el hilo escritor entre dos lotes
+    public int archivarHistorial() throws IOException {
+        CompletableFuture<Object> resultado = enEscritor(manager::archivarHistorial);
+        try {
+            return (Integer) resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw e;
+        }
+    }
+
+    public InstantaneaCitas getInstantanea() {
+        return manager.getInstantanea();
+    }
+
+    // RESERVAS: la validación sin estado se hace en el hilo del productor, antes de publicar
+    public CompletableFuture<Cita> programarCitaAsync(Paciente paciente, Medico medico, Sala sala,
+                                                      LocalDateTime fechaHora, BigDecimal costo) {
+        CompletableFuture<Cita> resultado = new CompletableFuture<>();
+        long inicio = Metricas.inicio();
+        try {
+            manager.validarSolicitud(medico, sala, fechaHora, costo, inicio);
+        } catch (CitaException e) {
+            resultado.completeExceptionally(e);
+            return resultado;
+        }
+        if (!anillo.publicar(new Reserva(paciente, medico, sala, fechaHora, costo, inicio, resultado))) {
+            resultado.completeExceptionally(cerrado());
+        }
+        return resultado;
+    }
+
+    @Override
+    public Cita programarCita(Paciente paciente, Medico medico, Sala sala,
+                              LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
+        return esperar(programarCitaAsync(paciente, medico, sala, fechaHora, costo));
+    }
+
+    // Las actualizaciones son compare-and-set sobre la cita: no pasan por el anillo
+    @Override
+    public Cita cambiarEstado(Cita cita, EstadoCita nuevoEstado) throws CitaException {
+        return manager.cambiarEstado(cita, nuevoEstado);
+    }
+
+    @Override
+    public Cita cambiarEstado(Cita cita, long versionEsperada, EstadoCita nuevoEstado) throws CitaException {
+        return manager.cambiarEstado(cita, versionEsperada, nuevoEstado);
+    }
+
+    @Override
+    public Cita actualizarObservaciones(Cita cita, long versionEsperada, String observaciones) throws CitaException {
+        return manager.actualizarObservaciones(cita, versionEsperada, observaciones);
+    }
+
+    // Cancelar y reprogramar cambian índices y horarios: pasan por el anillo como las reservas,
+    // así se ven en la foto del lote y no antes
+    @Override
+    public Cita cancelarCita(Cita cita, long versionEsperada) throws CitaException {
+        return esperar(enEscritor(() -> manager.cancelarCita(cita, versionEsperada)).thenApply(Cita.class::cast));
+    }
+
+    @Override
+    public Cita reprogramarCita(Cita cita, long versionEsperada, LocalDateTime nuevaFechaHora, Sala nuevaSala) throws CitaException {
+        return esperar(enEscritor(() -> manager.reprogramarCita(cita, versionEsperada, nuevaFechaHora, nuevaSala))
+                .thenApply(Cita.class::cast));
+    }
+
+    // CONSULTAS: siempre sobre la última instantánea publicada, más el historial archivado si lo hay
+    @Override
+    public List<Cita> getCitasPorPaciente(Paciente paciente) {
+        return manager.getCitasPorPaciente(paciente);
+    }
+
+    @Override
+    public List<Cita> getCitasPorMedico(Medico medico) {
+        return manager.getCitasPorMedico(medico);
+    }
+
+    @Override
+    public List<Cita> getCitasPorSala(Sala sala) {
+        return manager.getCitasPorSala(sala);
+    }
+
+    @Override
+    public List<Cita> getAgendaMedico(Medico medico, LocalDate dia) {
+        ArchivoCitas frio = manager.getArchivo();
+        List<Cita> calientes = manager.getInstantanea().getAgendaMedico(medico, dia);
+        return frio != null ? CitaManager.unir(frio.getAgendaMedico(medico, dia), calientes) : calientes;
+    }
+
+    @Override
+    public List<Cita> getAgendaSala(Sala sala, LocalDate dia) {
+        ArchivoCitas frio = manager.getArchivo();
+        List<Cita> calientes = manager.getInstantanea().getAgendaSala(sala, dia);
+        return frio != null ? CitaManager.unir(frio.getAgendaSala(sala, dia), calientes) : calientes;
+    }
+
+    // Los índices de ocupación son sincronizados: se consultan directamente
+    @Override
+    public List<HuecoLibre> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde,
+                                               LocalDateTime hasta, Duration duracion) {
+        return manager.buscarHuecosLibres(especialidad, desde, hasta, duracion);
+    }
+
+    @Override
+    public List<HuecoLibre> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde,
+                                               LocalDateTime hasta, Duration duracion, int maxResultados) {
+        return manager.buscarHuecosLibres(especialidad, desde, hasta, duracion, maxResultados);
+    }
+
+    // PERSISTENCIA
+    // Exporta la instantánea actual: un punto consistente sin frenar al escritor
+    @Override
+    public void guardarCitas(String filename) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+            for (Cita cita : manager.getInstantanea().getCitas()) {
+                writer.println(cita.toCsvString());
+            }
+        }
+    }
+
+    // Reemplaza todo el estado: corre en el hilo escritor entre dos lotes
+    @Override
+    public void cargarCitas(String filename, Map<String, Paciente> pacientes,
+                            Map<String, Medico> medicos, Map<String, Sala> salas)
+            throws IOException, ClassNotFoundException, CitaException {
+        CompletableFuture<Object> resultado = enEscritor(() -> {
+            manager.cargarCitas(filename, pacientes, medicos, salas);
+            return null;
+        });
+        try {
+            resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof CitaException citaException) {
+                throw citaException;
+            }
+            throw e;
+        }
+    }
+
+    // DIARIO: si un registro o un vaciado falla, las reservas afectadas quedan confirmadas en memoria (ya ocupan su
+    // horario y están en la foto) y la falla se informa acá y en el log, no en cada futuro
+    public long getReservasSinDiario() {
+        return reservasSinDiario.get();
+    }
+
+    public IOException getUltimoFalloDiario() {
+        return ultimoFalloDiario;
+    }
+
+    // Lo que se publicó antes del cierre se aplica; lo que llega después se rechaza al publicar
+    @Override
+    public void close() throws InterruptedException {
+        anillo.cerrar();
+        escritor.join();
+    }
+
+    private CompletableFuture<Object> enEscritor(Callable<Object> accion) {
+        CompletableFuture<Object> resultado = new CompletableFuture<>();
+        if (!anillo.publicar(new Control(accion, resultado))) {
+            resultado.completeExceptionally(cerrado());
+        }
+        return resultado;
+    }
+
+    private static IllegalStateException cerrado() {
+        return new IllegalStateException("El servicio de citas está cerrado.");
+    }
+
+    // HILO ESCRITOR
+    private void aplicarLotes() {
+        List<Operacion> lote = new ArrayList<>(MAX_LOTE);
+        Object[] resultados = new Object[MAX_LOTE];
+        while (true) {
+            if (anillo.drenar(lote, MAX_LOTE) == 0) {
+                if (anillo.terminado()) {
+                    return;
+                }
+                anillo.esperar(ESPERA_ESCRITOR_NANOS);
+                continue;
+            }
+            aplicarLote(lote, resultados);
+            lote.clear();
+        }
+    }
+
+    private void aplicarLote(List<Operacion> lote, Object[] resultados) {
+        manager.diferirPublicacion();
+        int reservas = 0;
+        for (int i = 0; i < lote.size(); i++) {
+            try {
+                if (lote.get(i) instanceof Reserva reserva) {
+                    Cita cita = manager.registrarValidada(reserva.paciente(), reserva.medico(), reserva.sala(),
+                            reserva.fechaHora(), reserva.costo(), reserva.inicio());
+                    // Desde acá el horario ya está tomado: un fallo del diario no convierte la reserva
+                    // en error, se cuenta como reserva solo en memoria
+                    resultados[i] = cita;
+                    if (diario != null) {
+                        try {
+                            diario.registrar(cita);
+                            reservas++;
+                        } catch (IOException e) {
+                            log.error("No se pudo registrar en el diario la cita {}; queda solo en memoria", cita, e);
+                            reservasSinDiario.incrementAndGet();
+                            ultimoFalloDiario = e;
+                        }
+                    }
+                } else if (lote.get(i) instanceof Control control) {
+                    resultados[i] = control.accion().call();
+                }
+            } catch (Exception e) {
+                resultados[i] = e;
+            }
+        }
+
+        // Un solo vaciado del diario por lote; las reservas se confirman después de intentar bajarlo a disco
+        if (diario != null) {
+            try {
+                diario.vaciar();
+            } catch (IOException e) {
+                log.error("No se pudo vaciar el diario de citas; {} reservas quedan solo en memoria", reservas, e);
+                reservasSinDiario.addAndGet(reservas);
+                ultimoFalloDiario = e;
+            }
+        }
+        manager.publicarLote();
+
+        for (int i = 0; i < lote.size(); i++) {
+            Object resultado = resultados[i];
+            resultados[i] = null;
+            completar(lote.get(i), resultado);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void completar(Operacion operacion, Object resultado) {
+        CompletableFuture<Object> futuro = operacion instanceof Reserva reserva
+                ? (CompletableFuture<Object>) (CompletableFuture<?>) reserva.resultado()
+                : ((Control) operacion).resultado();
+        if (resultado instanceof Exception error) {
+            futuro.completeExceptionally(error);
+        } else {
+            futuro.complete(resultado);
+        }
+    }
+
+    private static Cita esperar(CompletableFuture<Cita> pendiente) throws CitaException {
+        try {
+            return pendiente.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof CitaException citaException) {
+                throw citaException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.jcr.servicios;
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+import org.jcr.enums.EspecialidadMedica;
+import org.jcr.enums.EstadoCita;
+import org.jcr.excepciones.CitaException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface CitaService {
+    Cita programarCita(Paciente paciente, Medico medico, Sala sala,
+                       LocalDateTime fechaHora, BigDecimal costo) throws CitaException;
+
+    Cita cambiarEstado(Cita cita, EstadoCita nuevoEstado) throws CitaException;
+
+    Cita cambiarEstado(Cita cita, long versionEsperada, EstadoCita nuevoEstado) throws CitaException;
+
+    Cita actualizarObservaciones(Cita cita, long versionEsperada, String observaciones) throws CitaException;
+
+    // La cita cancelada sale de todos los índices y su horario queda libre
+    Cita cancelarCita(Cita cita, long versionEsperada) throws CitaException;
+
+    // nuevaSala null conserva la sala actual; devuelve la cita nueva y la anterior queda cancelada
+    Cita reprogramarCita(Cita cita, long versionEsperada, LocalDateTime nuevaFechaHora, Sala nuevaSala) throws CitaException;
+
+    List<Cita> getCitasPorPaciente(Paciente paciente);
+
+    List<Cita> getCitasPorMedico(Medico medico);
+
+    List<Cita> getCitasPorSala(Sala sala);
+
+    List<Cita> getAgendaMedico(Medico medico, LocalDate dia);
+
+    List<Cita> getAgendaSala(Sala sala, LocalDate dia);
+
+    List<HuecoLibre> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde,
+                                        LocalDateTime hasta, Duration duracion);
+
+    List<HuecoLibre> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde,
+                                        LocalDateTime hasta, Duration duracion, int maxResultados);
+
+    void guardarCitas(String filename) throws IOException;
+
+    void cargarCitas(String filename, Map<String, Paciente> pacientes,
+                     Map<String, Medico> medicos, Map<String, Sala> salas)
+            throws IOException, ClassNotFoundException, CitaException;
+}
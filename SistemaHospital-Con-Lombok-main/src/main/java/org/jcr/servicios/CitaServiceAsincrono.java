@@ -0,0 +1,45 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+import org.jcr.enums.EspecialidadMedica;
+import org.jcr.enums.EstadoCita;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Variante no bloqueante de CitaService: los errores de negocio llegan como CitaException
+// dentro del futuro (envuelta en CompletionException al hacer join).
+public interface CitaServiceAsincrono {
+    CompletableFuture<Cita> programarCita(Paciente paciente, Medico medico, Sala sala,
+                                          LocalDateTime fechaHora, BigDecimal costo);
+
+    CompletableFuture<Cita> cambiarEstado(Cita cita, long versionEsperada, EstadoCita nuevoEstado);
+
+    CompletableFuture<Cita> actualizarObservaciones(Cita cita, long versionEsperada, String observaciones);
+
+    CompletableFuture<Cita> cancelarCita(Cita cita, long versionEsperada);
+
+    CompletableFuture<Cita> reprogramarCita(Cita cita, long versionEsperada, LocalDateTime nuevaFechaHora, Sala nuevaSala);
+
+    CompletableFuture<List<Cita>> getCitasPorPaciente(Paciente paciente);
+
+    CompletableFuture<List<Cita>> getCitasPorMedico(Medico medico);
+
+    CompletableFuture<List<Cita>> getCitasPorSala(Sala sala);
+
+    CompletableFuture<List<Cita>> getAgendaMedico(Medico medico, LocalDate dia);
+
+    CompletableFuture<List<Cita>> getAgendaSala(Sala sala, LocalDate dia);
+
+    CompletableFuture<List<HuecoLibre>> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde,
+                                                           LocalDateTime hasta, Duration duracion, int maxResultados);
+
+    CompletableFuture<Void> guardarCitas(String filename);
+}
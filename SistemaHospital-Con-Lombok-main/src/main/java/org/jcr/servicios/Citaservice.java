@@ -1,29 +0,0 @@
-package org.jcr.servicios;
-import org.jcr.entidades.Cita;
-import org.jcr.entidades.Medico;
-import org.jcr.entidades.Paciente;
-import org.jcr.entidades.Sala;
-import org.jcr.excepciones.CitaException;
-
-import java.io.IOException;
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Map;
-
-interface CitaService {
-    Cita programarCita(Paciente paciente, Medico medico, Sala sala,
-                       LocalDateTime fechaHora, BigDecimal costo) throws CitaException;
-
-    List<Cita> getCitasPorPaciente(Paciente paciente);
-
-    List<Cita> getCitasPorMedico(Medico medico);
-
-    List<Cita> getCitasPorSala(Sala sala);
-
-    void guardarCitas(String filename) throws IOException;
-
-    void cargarCitas(String filename, Map<String, Paciente> pacientes,
-                     Map<String, Medico> medicos, Map<String, Sala> salas)
-            throws IOException, ClassNotFoundException, CitaException;
-}
@@ -0,0 +1,59 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+// Diario de altas en formato CSV (el mismo que guardarCitas), abierto en modo append.
+// registrar solo escribe en el buffer; vaciar baja el lote a disco una sola vez, y con
+// sincronizar además fuerza el fsync. No es thread-safe: lo usa únicamente el hilo escritor.
+public class DiarioCitas implements AutoCloseable {
+    private static final int TAMANIO_BUFFER = 64 * 1024;
+
+    private final BufferedWriter writer;
+    private final FileChannel canal;
+    private final boolean sincronizar;
+    private long registros;
+    private long vaciados;
+
+    public DiarioCitas(Path archivo, boolean sincronizar) throws IOException {
+        FileOutputStream salida = new FileOutputStream(archivo.toFile(), true);
+        this.canal = salida.getChannel();
+        this.writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMANIO_BUFFER);
+        this.sincronizar = sincronizar;
+    }
+
+    public void registrar(Cita cita) throws IOException {
+        writer.write(cita.toCsvString());
+        writer.newLine();
+        registros++;
+    }
+
+    public void vaciar() throws IOException {
+        writer.flush();
+        if (sincronizar) {
+            canal.force(false);
+        }
+        vaciados++;
+    }
+
+    public long getRegistros() {
+        return registros;
+    }
+
+    public long getVaciados() {
+        return vaciados;
+    }
+
+    @Override
+    public void close() throws IOException {
+        vaciar();
+        writer.close();
+    }
+}
@@ -0,0 +1,243 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+import org.jcr.enums.EstadoCita;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Atiende cada solicitud de un CitaService en su propio hilo virtual, así las esperas bloqueantes
+// (escritura de CSV, persistencia) no retienen hilos de plataforma. En JVMs sin hilos virtuales
+// se usa un pool fijo de hilos de plataforma. La concurrencia por hospital la acota un semáforo.
+// Con hilos virtuales el permiso se espera dentro de la tarea: no ocupa un carrier. Con hilos de
+// plataforma esa espera retendría un hilo del pool, y un hospital saturado podría dejar a los demás
+// sin hilos; ahí la solicitud solo se envía al pool con permiso tomado y, si no hay, queda en la
+// cola de su hospital hasta que otra termine.
+public class EjecutorSolicitudesCitas implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(EjecutorSolicitudesCitas.class);
+
+    public static final int PERMISOS_POR_DEFECTO = 64;
+    public static final int HILOS_PLATAFORMA_POR_DEFECTO = 200;
+
+    private final CitaService servicio;
+    private final ExecutorService ejecutor;
+    private final boolean virtual;
+    private final int permisosPorHospital;
+    private final Map<Hospital, Limite> limites = new ConcurrentHashMap<>();
+    // Para solicitudes que no pertenecen a un hospital (exportaciones, consultas cruzadas)
+    private final Limite limiteGeneral;
+
+    // Permisos de un hospital y, sin hilos virtuales, las solicitudes que esperan uno
+    private static final class Limite {
+        private final Semaphore permisos;
+        private final Queue<Pendiente> enEspera = new ConcurrentLinkedQueue<>();
+
+        private Limite(int permisos) {
+            this.permisos = new Semaphore(permisos);
+        }
+    }
+
+    private record Pendiente(Runnable tarea, CompletableFuture<?> resultado) {
+    }
+
+    @FunctionalInterface
+    public interface Solicitud<T> {
+        T ejecutar(CitaService servicio) throws Exception;
+    }
+
+    public EjecutorSolicitudesCitas(CitaService servicio) {
+        this(servicio, Integer.getInteger("hospital.solicitudes.permisosPorHospital", PERMISOS_POR_DEFECTO));
+    }
+
+    public EjecutorSolicitudesCitas(CitaService servicio, int permisosPorHospital) {
+        this(servicio, permisosPorHospital, crearEjecutorVirtual(), true);
+    }
+
+    // Con un ExecutorService propio (por ejemplo un pool fijo para comparar)
+    public EjecutorSolicitudesCitas(CitaService servicio, int permisosPorHospital, ExecutorService ejecutor) {
+        this(servicio, permisosPorHospital, ejecutor, false);
+    }
+
+    private EjecutorSolicitudesCitas(CitaService servicio, int permisosPorHospital,
+                                     ExecutorService ejecutor, boolean virtual) {
+        if (permisosPorHospital <= 0) {
+            throw new IllegalArgumentException("La cantidad de permisos por hospital debe ser positiva");
+        }
+        this.servicio = servicio;
+        this.permisosPorHospital = permisosPorHospital;
+        this.limiteGeneral = new Limite(permisosPorHospital);
+        this.virtual = virtual && ejecutor != null;
+        this.ejecutor = ejecutor != null ? ejecutor : crearEjecutorPlataforma(
+                Integer.getInteger("hospital.solicitudes.hilosPlataforma", HILOS_PLATAFORMA_POR_DEFECTO));
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor existe desde Java 21; se busca por reflexión
+    // para seguir compilando con Java 17. Devuelve null si la JVM no lo ofrece.
+    private static ExecutorService crearEjecutorVirtual() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Hilos virtuales no disponibles, se usa un pool de plataforma: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static ExecutorService crearEjecutorPlataforma(int hilos) {
+        AtomicInteger numero = new AtomicInteger();
+        return Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "solicitudes-citas-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    // ENVÍO DE SOLICITUDES
+    public <T> CompletableFuture<T> enviar(Hospital hospital, Solicitud<T> solicitud) {
+        Limite limite = hospital != null
+                ? limites.computeIfAbsent(hospital, h -> new Limite(permisosPorHospital))
+                : limiteGeneral;
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        Runnable tarea = () -> {
+            try {
+                resultado.complete(solicitud.ejecutar(servicio));
+            } catch (Exception e) {
+                resultado.completeExceptionally(e);
+            }
+        };
+        if (virtual) {
+            ejecutarEnHiloVirtual(limite, tarea, resultado);
+        } else {
+            limite.enEspera.add(new Pendiente(tarea, resultado));
+            despachar(limite);
+        }
+        return resultado;
+    }
+
+    private void ejecutarEnHiloVirtual(Limite limite, Runnable tarea, CompletableFuture<?> resultado) {
+        try {
+            ejecutor.execute(() -> {
+                try {
+                    limite.permisos.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    resultado.completeExceptionally(e);
+                    return;
+                }
+                try {
+                    tarea.run();
+                } finally {
+                    limite.permisos.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            resultado.completeExceptionally(e);
+        }
+    }
+
+    // Envía al pool las solicitudes en espera mientras haya permisos. Lo llaman quien encola y quien
+    // libera un permiso, siempre después de encolar o liberar, así ninguna queda esperando sin motivo
+    private void despachar(Limite limite) {
+        while (!limite.enEspera.isEmpty() && limite.permisos.tryAcquire()) {
+            Pendiente pendiente = limite.enEspera.poll();
+            if (pendiente == null) {
+                limite.permisos.release();
+                continue;
+            }
+            try {
+                ejecutor.execute(() -> {
+                    try {
+                        pendiente.tarea().run();
+                    } finally {
+                        limite.permisos.release();
+                        despachar(limite);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                limite.permisos.release();
+                pendiente.resultado().completeExceptionally(e);
+            }
+        }
+    }
+
+    public CompletableFuture<Cita> programarCita(Paciente paciente, Medico medico, Sala sala,
+                                                 LocalDateTime fechaHora, BigDecimal costo) {
+        return enviar(hospitalDe(sala), s -> s.programarCita(paciente, medico, sala, fechaHora, costo));
+    }
+
+    public CompletableFuture<Cita> cambiarEstado(Cita cita, long versionEsperada, EstadoCita nuevoEstado) {
+        return enviar(hospitalDe(cita.getSala()), s -> s.cambiarEstado(cita, versionEsperada, nuevoEstado));
+    }
+
+    public CompletableFuture<Cita> actualizarObservaciones(Cita cita, long versionEsperada, String observaciones) {
+        return enviar(hospitalDe(cita.getSala()), s -> s.actualizarObservaciones(cita, versionEsperada, observaciones));
+    }
+
+    public CompletableFuture<Cita> cancelarCita(Cita cita, long versionEsperada) {
+        return enviar(hospitalDe(cita.getSala()), s -> s.cancelarCita(cita, versionEsperada));
+    }
+
+    public CompletableFuture<Cita> reprogramarCita(Cita cita, long versionEsperada, LocalDateTime nuevaFechaHora, Sala nuevaSala) {
+        return enviar(hospitalDe(cita.getSala()), s -> s.reprogramarCita(cita, versionEsperada, nuevaFechaHora, nuevaSala));
+    }
+
+    public CompletableFuture<List<Cita>> getAgendaMedico(Medico medico, LocalDate dia) {
+        Hospital hospital = medico.getDepartamento() != null ? medico.getDepartamento().getHospital() : null;
+        return enviar(hospital, s -> s.getAgendaMedico(medico, dia));
+    }
+
+    public CompletableFuture<List<Cita>> getAgendaSala(Sala sala, LocalDate dia) {
+        return enviar(hospitalDe(sala), s -> s.getAgendaSala(sala, dia));
+    }
+
+    public CompletableFuture<List<Cita>> getCitasPorPaciente(Paciente paciente) {
+        return enviar(paciente.getHospital(), s -> s.getCitasPorPaciente(paciente));
+    }
+
+    public CompletableFuture<Void> guardarCitas(String filename) {
+        return enviar(null, s -> {
+            s.guardarCitas(filename);
+            return null;
+        });
+    }
+
+    // ESTADO
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public int getPermisosDisponibles(Hospital hospital) {
+        Limite limite = limites.get(hospital);
+        return limite != null ? limite.permisos.availablePermits() : permisosPorHospital;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        ejecutor.shutdown();
+        if (!ejecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    private static Hospital hospitalDe(Sala sala) {
+        return sala.getDepartamento() != null ? sala.getDepartamento().getHospital() : null;
+    }
+}
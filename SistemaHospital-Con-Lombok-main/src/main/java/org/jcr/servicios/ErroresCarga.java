@@ -0,0 +1,39 @@
+package org.jcr.servicios;
+
+import org.jcr.excepciones.CitaException;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Acumula las filas inválidas de una importación CSV para informarlas juntas al final,
+// en lugar de escribir una línea por fila. Solo se guardan las primeras como ejemplo.
+class ErroresCarga {
+    private static final int MAX_EJEMPLOS = 5;
+
+    private final String archivo;
+    private final List<String> ejemplos = new ArrayList<>(MAX_EJEMPLOS);
+    private int cantidad;
+
+    ErroresCarga(String archivo) {
+        this.archivo = archivo;
+    }
+
+    synchronized void registrar(long numeroLinea, String fila, String motivo) {
+        cantidad++;
+        if (ejemplos.size() < MAX_EJEMPLOS) {
+            ejemplos.add("línea " + numeroLinea + ": " + motivo + " [" + fila + "]");
+        }
+    }
+
+    synchronized boolean hayErrores() {
+        return cantidad > 0;
+    }
+
+    // Un solo WARN con el total y los ejemplos, y la excepción con el mismo resumen
+    synchronized CitaException informar(Logger log, long filasLeidas) {
+        log.warn("Carga de {}: {} de {} filas inválidas. Primeras: {}", archivo, cantidad, filasLeidas, ejemplos);
+        return new CitaException("Se encontraron " + cantidad + " filas inválidas de " + filasLeidas
+                + " al cargar " + archivo + ". Primeras: " + ejemplos);
+    }
+}
@@ -0,0 +1,21 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Sala;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Getter
+@ToString
+@RequiredArgsConstructor
+
+public class HuecoLibre {
+    private final Medico medico;
+    private final Sala sala;
+    private final LocalDateTime inicio;
+    private final LocalDateTime fin;
+}
@@ -0,0 +1,20 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Representación de la ocupación de médicos o salas usada para detectar conflictos y buscar huecos
+interface IndiceOcupacion<K> {
+    void ocupar(K recurso, Cita cita);
+
+    void liberar(K recurso, Cita cita);
+
+    boolean estaLibre(K recurso, LocalDateTime inicio, Duration duracion);
+
+    // Primer inicio >= desde en el que el recurso queda libre y la cita termina antes de hasta, o null
+    LocalDateTime primerInicioLibre(K recurso, LocalDateTime desde, LocalDateTime hasta, Duration duracion);
+
+    void limpiar();
+}
@@ -0,0 +1,231 @@
+package org.jcr.servicios;
+
+import org.jcr.colecciones.MapaPersistente;
+import org.jcr.colecciones.VectorPersistente;
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Foto inmutable de las citas y sus índices en una versión dada. Cada alta genera una foto nueva
+// que comparte casi toda la estructura con la anterior (vectores y mapas persistentes), así que
+// un reporte largo puede recorrer una versión fija mientras se siguen programando citas.
+// Retirar una cita deja una lápida (null) en el vector general, ubicada por el mapa de posiciones;
+// compactada() las elimina cuando son muchas. Las listas por paciente, médico y sala hacen lo mismo
+// en pequeño (CitasDeClave), así una baja es O(log n) en todos los índices.
+public final class InstantaneaCitas {
+    static final InstantaneaCitas VACIA = new InstantaneaCitas(0, VectorPersistente.vacio(), MapaPersistente.vacio(), 0,
+            MapaPersistente.vacio(), MapaPersistente.vacio(), MapaPersistente.vacio());
+    private static final int LAPIDAS_MINIMAS_PARA_COMPACTAR = 1024;
+
+    private final long version;
+    private final VectorPersistente<Cita> citas;
+    // Cita no redefine equals: las claves son por identidad
+    private final MapaPersistente<Cita, Integer> posiciones;
+    private final int lapidas;
+    private final MapaPersistente<Paciente, CitasDeClave> porPaciente;
+    private final MapaPersistente<Medico, CitasDeClave> porMedico;
+    private final MapaPersistente<Sala, CitasDeClave> porSala;
+    // Se calcula una vez por foto si hay lápidas; la carrera al inicializarla es benigna
+    private List<Cita> vigentes;
+
+    private InstantaneaCitas(long version, VectorPersistente<Cita> citas, MapaPersistente<Cita, Integer> posiciones,
+                             int lapidas, MapaPersistente<Paciente, CitasDeClave> porPaciente,
+                             MapaPersistente<Medico, CitasDeClave> porMedico,
+                             MapaPersistente<Sala, CitasDeClave> porSala) {
+        this.version = version;
+        this.citas = citas;
+        this.posiciones = posiciones;
+        this.lapidas = lapidas;
+        this.porPaciente = porPaciente;
+        this.porMedico = porMedico;
+        this.porSala = porSala;
+    }
+
+    InstantaneaCitas conCita(Cita cita) {
+        return new InstantaneaCitas(version + 1, citas.conAgregado(cita), posiciones.conEntrada(cita, citas.size()), lapidas,
+                agregar(porPaciente, cita.getPaciente(), cita),
+                agregar(porMedico, cita.getMedico(), cita),
+                agregar(porSala, cita.getSala(), cita));
+    }
+
+    InstantaneaCitas sinCita(Cita cita) {
+        Integer posicion = posiciones.get(cita);
+        if (posicion == null) {
+            return this;
+        }
+        return new InstantaneaCitas(version + 1, citas.conReemplazo(posicion, null), posiciones.sinClave(cita), lapidas + 1,
+                quitar(porPaciente, cita.getPaciente(), cita),
+                quitar(porMedico, cita.getMedico(), cita),
+                quitar(porSala, cita.getSala(), cita));
+    }
+
+    boolean contiene(Cita cita) {
+        return posiciones.containsKey(cita);
+    }
+
+    boolean requiereCompactacion() {
+        return lapidas >= LAPIDAS_MINIMAS_PARA_COMPACTAR && lapidas * 4L >= citas.size();
+    }
+
+    // Misma versión lógica sin lápidas en el vector general: las listas por clave se compactan solas
+    // y se comparten tal cual
+    InstantaneaCitas compactada() {
+        VectorPersistente<Cita> compactas = VectorPersistente.vacio();
+        MapaPersistente<Cita, Integer> nuevasPosiciones = MapaPersistente.vacio();
+        for (Cita cita : citas) {
+            if (cita != null) {
+                nuevasPosiciones = nuevasPosiciones.conEntrada(cita, compactas.size());
+                compactas = compactas.conAgregado(cita);
+            }
+        }
+        return new InstantaneaCitas(version + 1, compactas, nuevasPosiciones, 0, porPaciente, porMedico, porSala);
+    }
+
+    // Una foto vacía que sigue la numeración de versiones de esta
+    InstantaneaCitas vaciada() {
+        return new InstantaneaCitas(version + 1, VectorPersistente.vacio(), MapaPersistente.vacio(), 0,
+                MapaPersistente.vacio(), MapaPersistente.vacio(), MapaPersistente.vacio());
+    }
+
+    private static <K> MapaPersistente<K, CitasDeClave> agregar(MapaPersistente<K, CitasDeClave> indice, K clave, Cita cita) {
+        return indice.conEntrada(clave, indice.getOrDefault(clave, CitasDeClave.VACIA).conCita(cita));
+    }
+
+    private static <K> MapaPersistente<K, CitasDeClave> quitar(MapaPersistente<K, CitasDeClave> indice, K clave, Cita cita) {
+        CitasDeClave actuales = indice.get(clave);
+        if (actuales == null) {
+            return indice;
+        }
+        CitasDeClave restantes = actuales.sinCita(cita);
+        if (restantes == actuales) {
+            return indice;
+        }
+        return restantes.cantidad() == 0 ? indice.sinClave(clave) : indice.conEntrada(clave, restantes);
+    }
+
+    // Citas de un paciente, médico o sala: vector con lápidas y posiciones por identidad, como el
+    // general. Cuando la mitad son lápidas se reconstruye en el acto, lo que amortiza O(1) por baja
+    private static final class CitasDeClave {
+        static final CitasDeClave VACIA = new CitasDeClave(VectorPersistente.vacio(), MapaPersistente.vacio(), 0);
+
+        private final VectorPersistente<Cita> citas;
+        private final MapaPersistente<Cita, Integer> posiciones;
+        private final int lapidas;
+        private List<Cita> vigentes;
+
+        private CitasDeClave(VectorPersistente<Cita> citas, MapaPersistente<Cita, Integer> posiciones, int lapidas) {
+            this.citas = citas;
+            this.posiciones = posiciones;
+            this.lapidas = lapidas;
+        }
+
+        CitasDeClave conCita(Cita cita) {
+            return new CitasDeClave(citas.conAgregado(cita), posiciones.conEntrada(cita, citas.size()), lapidas);
+        }
+
+        CitasDeClave sinCita(Cita cita) {
+            Integer posicion = posiciones.get(cita);
+            if (posicion == null) {
+                return this;
+            }
+            CitasDeClave restantes = new CitasDeClave(citas.conReemplazo(posicion, null), posiciones.sinClave(cita), lapidas + 1);
+            return restantes.lapidas * 2 >= restantes.citas.size() ? restantes.compactada() : restantes;
+        }
+
+        int cantidad() {
+            return citas.size() - lapidas;
+        }
+
+        private CitasDeClave compactada() {
+            CitasDeClave compacta = VACIA;
+            for (Cita cita : citas) {
+                if (cita != null) {
+                    compacta = compacta.conCita(cita);
+                }
+            }
+            return compacta;
+        }
+
+        List<Cita> lista() {
+            if (lapidas == 0) {
+                return citas;
+            }
+            List<Cita> resultado = vigentes;
+            if (resultado == null) {
+                resultado = sinLapidas(citas, cantidad());
+                vigentes = resultado;
+            }
+            return resultado;
+        }
+    }
+
+    private static List<Cita> sinLapidas(VectorPersistente<Cita> citas, int cantidad) {
+        List<Cita> sinLapidas = new ArrayList<>(cantidad);
+        for (Cita cita : citas) {
+            if (cita != null) {
+                sinLapidas.add(cita);
+            }
+        }
+        return Collections.unmodifiableList(sinLapidas);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getCantidad() {
+        return citas.size() - lapidas;
+    }
+
+    // CONSULTAS: las listas devueltas son inmutables y no cambian aunque se publiquen fotos nuevas
+    public List<Cita> getCitas() {
+        if (lapidas == 0) {
+            return citas;
+        }
+        List<Cita> resultado = vigentes;
+        if (resultado == null) {
+            resultado = sinLapidas(citas, getCantidad());
+            vigentes = resultado;
+        }
+        return resultado;
+    }
+
+    public List<Cita> getCitasPorPaciente(Paciente paciente) {
+        CitasDeClave citasPaciente = porPaciente.get(paciente);
+        return citasPaciente != null ? citasPaciente.lista() : Collections.emptyList();
+    }
+
+    public List<Cita> getCitasPorMedico(Medico medico) {
+        CitasDeClave citasMedico = porMedico.get(medico);
+        return citasMedico != null ? citasMedico.lista() : Collections.emptyList();
+    }
+
+    public List<Cita> getCitasPorSala(Sala sala) {
+        CitasDeClave citasSala = porSala.get(sala);
+        return citasSala != null ? citasSala.lista() : Collections.emptyList();
+    }
+
+    public List<Cita> getAgendaMedico(Medico medico, LocalDate dia) {
+        return delDia(getCitasPorMedico(medico), dia);
+    }
+
+    public List<Cita> getAgendaSala(Sala sala, LocalDate dia) {
+        return delDia(getCitasPorSala(sala), dia);
+    }
+
+    private static List<Cita> delDia(List<Cita> citasRecurso, LocalDate dia) {
+        List<Cita> resultado = new ArrayList<>();
+        for (Cita cita : citasRecurso) {
+            if (cita.getFechaHora().toLocalDate().equals(dia)) {
+                resultado.add(cita);
+            }
+        }
+        return Collections.unmodifiableList(resultado);
+    }
+}
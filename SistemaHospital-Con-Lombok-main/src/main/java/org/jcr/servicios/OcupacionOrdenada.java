@@ -0,0 +1,79 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Ocupación de cada recurso ordenada por horario de inicio.
+// Cada cita bloquea el recurso desde su inicio durante "bloqueo".
+class OcupacionOrdenada<K> implements IndiceOcupacion<K> {
+    private final Map<K, TreeMap<LocalDateTime, List<Cita>>> ocupacion = new HashMap<>();
+    private final Duration bloqueo;
+
+    OcupacionOrdenada(Duration bloqueo) {
+        this.bloqueo = bloqueo;
+    }
+
+    @Override
+    public synchronized void ocupar(K recurso, Cita cita) {
+        ocupacion.computeIfAbsent(recurso, r -> new TreeMap<>())
+                .computeIfAbsent(cita.getFechaHora(), f -> new ArrayList<>(1))
+                .add(cita);
+    }
+
+    @Override
+    public synchronized void liberar(K recurso, Cita cita) {
+        TreeMap<LocalDateTime, List<Cita>> horarios = ocupacion.get(recurso);
+        if (horarios == null) {
+            return;
+        }
+        List<Cita> citas = horarios.get(cita.getFechaHora());
+        if (citas != null && citas.remove(cita) && citas.isEmpty()) {
+            horarios.remove(cita.getFechaHora());
+        }
+    }
+
+    @Override
+    public synchronized boolean estaLibre(K recurso, LocalDateTime inicio, Duration duracion) {
+        return primerConflicto(ocupacion.get(recurso), inicio, duracion) == null;
+    }
+
+    // Saltea de conflicto en conflicto: O(k log n) con k = citas que se interponen
+    @Override
+    public synchronized LocalDateTime primerInicioLibre(K recurso, LocalDateTime desde, LocalDateTime hasta, Duration duracion) {
+        TreeMap<LocalDateTime, List<Cita>> horarios = ocupacion.get(recurso);
+        LocalDateTime inicio = desde;
+        while (!inicio.plus(duracion).isAfter(hasta)) {
+            LocalDateTime conflicto = primerConflicto(horarios, inicio, duracion);
+            if (conflicto == null) {
+                return inicio;
+            }
+            inicio = conflicto.plus(bloqueo);
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void limpiar() {
+        ocupacion.clear();
+    }
+
+    // Hay conflicto con una cita existente en t si t está en (inicio - bloqueo, inicio + max(bloqueo, duracion))
+    private LocalDateTime primerConflicto(TreeMap<LocalDateTime, List<Cita>> horarios, LocalDateTime inicio, Duration duracion) {
+        if (horarios == null) {
+            return null;
+        }
+        Duration necesario = duracion.compareTo(bloqueo) > 0 ? duracion : bloqueo;
+        LocalDateTime existente = horarios.higherKey(inicio.minus(bloqueo));
+        if (existente != null && existente.isBefore(inicio.plus(necesario))) {
+            return existente;
+        }
+        return null;
+    }
+}
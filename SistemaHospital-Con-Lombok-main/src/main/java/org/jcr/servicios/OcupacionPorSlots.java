@@ -0,0 +1,191 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+// Ocupación en slots fijos de 15 minutos: cada recurso tiene un bitset de 96 bits (2 longs) por día.
+// Un conflicto es un test de bits y el hueco común de médico y sala es el AND de sus slots libres.
+// programarCita no deja superponer citas de un mismo recurso, pero una carga desde CSV puede traerlas:
+// el día que recibe una superposición pasa a contar citas por slot y cada bit se apaga con la última.
+class OcupacionPorSlots<K> implements IndiceOcupacion<K> {
+    static final int MINUTOS_POR_SLOT = 15;
+    static final int SLOTS_POR_DIA = 24 * 60 / MINUTOS_POR_SLOT;
+    private static final int BITS_ULTIMA_PALABRA = SLOTS_POR_DIA - 64;
+
+    private final Map<K, Map<Long, DiaOcupado>> slotsPorRecurso = new HashMap<>();
+    private final Duration bloqueo;
+
+    OcupacionPorSlots(Duration bloqueo) {
+        this.bloqueo = bloqueo;
+    }
+
+    private static final class DiaOcupado {
+        private final long[] bits = new long[2];
+        // Solo existe si el día tuvo citas superpuestas
+        private int[] conteos;
+
+        private void ocupar(int enDia) {
+            long bit = 1L << (enDia & 63);
+            if ((bits[enDia >>> 6] & bit) == 0) {
+                bits[enDia >>> 6] |= bit;
+                if (conteos != null) {
+                    conteos[enDia] = 1;
+                }
+                return;
+            }
+            if (conteos == null) {
+                conteos = new int[SLOTS_POR_DIA];
+                for (int i = 0; i < SLOTS_POR_DIA; i++) {
+                    conteos[i] = (int) (bits[i >>> 6] >>> (i & 63)) & 1;
+                }
+            }
+            conteos[enDia]++;
+        }
+
+        private void liberar(int enDia) {
+            if (conteos != null) {
+                if (conteos[enDia] > 1) {
+                    conteos[enDia]--;
+                    return;
+                }
+                conteos[enDia] = 0;
+            }
+            bits[enDia >>> 6] &= ~(1L << (enDia & 63));
+        }
+    }
+
+    @Override
+    public synchronized void ocupar(K recurso, Cita cita) {
+        Map<Long, DiaOcupado> dias = slotsPorRecurso.computeIfAbsent(recurso, r -> new HashMap<>());
+        long fin = slotTecho(cita.getFechaHora().plus(bloqueo));
+        for (long slot = slotPiso(cita.getFechaHora()); slot < fin; slot++) {
+            DiaOcupado dia = dias.computeIfAbsent(Math.floorDiv(slot, SLOTS_POR_DIA), d -> new DiaOcupado());
+            dia.ocupar((int) Math.floorMod(slot, SLOTS_POR_DIA));
+        }
+    }
+
+    @Override
+    public synchronized void liberar(K recurso, Cita cita) {
+        Map<Long, DiaOcupado> dias = slotsPorRecurso.get(recurso);
+        if (dias == null) {
+            return;
+        }
+        long fin = slotTecho(cita.getFechaHora().plus(bloqueo));
+        for (long slot = slotPiso(cita.getFechaHora()); slot < fin; slot++) {
+            DiaOcupado dia = dias.get(Math.floorDiv(slot, SLOTS_POR_DIA));
+            if (dia != null) {
+                dia.liberar((int) Math.floorMod(slot, SLOTS_POR_DIA));
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean estaLibre(K recurso, LocalDateTime inicio, Duration duracion) {
+        Map<Long, DiaOcupado> dias = slotsPorRecurso.get(recurso);
+        long desde = slotPiso(inicio);
+        long hasta = slotTecho(inicio.plus(necesario(duracion)));
+        return siguienteSlot(dias, null, desde, hasta, true) >= hasta;
+    }
+
+    @Override
+    public synchronized LocalDateTime primerInicioLibre(K recurso, LocalDateTime desde, LocalDateTime hasta, Duration duracion) {
+        return buscarInicio(slotsPorRecurso.get(recurso), null, desde, hasta, duracion);
+    }
+
+    @Override
+    public synchronized void limpiar() {
+        slotsPorRecurso.clear();
+    }
+
+    // Hueco común de dos recursos en una sola pasada sobre el AND de sus bitsets
+    static <A, B> LocalDateTime primerInicioLibreComun(OcupacionPorSlots<A> primero, A recursoA,
+                                                       OcupacionPorSlots<B> segundo, B recursoB,
+                                                       LocalDateTime desde, LocalDateTime hasta, Duration duracion) {
+        synchronized (primero) {
+            synchronized (segundo) {
+                return primero.buscarInicio(primero.slotsPorRecurso.get(recursoA),
+                        segundo.slotsPorRecurso.get(recursoB), desde, hasta, duracion);
+            }
+        }
+    }
+
+    private LocalDateTime buscarInicio(Map<Long, DiaOcupado> diasA, Map<Long, DiaOcupado> diasB,
+                                       LocalDateTime desde, LocalDateTime hasta, Duration duracion) {
+        long primero = slotTecho(desde);
+        long ultimo = slotPiso(hasta.minus(duracion));
+        long segundosPorSlot = MINUTOS_POR_SLOT * 60L;
+        long largo = (necesario(duracion).toSeconds() + segundosPorSlot - 1) / segundosPorSlot;
+        long slot = primero;
+        while (slot <= ultimo) {
+            slot = siguienteSlot(diasA, diasB, slot, ultimo + 1, false);
+            if (slot > ultimo) {
+                return null;
+            }
+            long ocupado = siguienteSlot(diasA, diasB, slot, slot + largo, true);
+            if (ocupado >= slot + largo) {
+                return aFechaHora(slot);
+            }
+            slot = ocupado;
+        }
+        return null;
+    }
+
+    // Primer slot en [desde, limite) libre (u ocupado) en ambos recursos; limite si no hay
+    private static long siguienteSlot(Map<Long, DiaOcupado> diasA, Map<Long, DiaOcupado> diasB,
+                                      long desde, long limite, boolean buscarOcupado) {
+        long slot = desde;
+        while (slot < limite) {
+            long dia = Math.floorDiv(slot, SLOTS_POR_DIA);
+            int enDia = (int) (slot - dia * SLOTS_POR_DIA);
+            int palabra = enDia >>> 6;
+
+            long libres = ~0L;
+            DiaOcupado ocupadoA = diasA != null ? diasA.get(dia) : null;
+            DiaOcupado ocupadoB = diasB != null ? diasB.get(dia) : null;
+            if (ocupadoA != null) {
+                libres &= ~ocupadoA.bits[palabra];
+            }
+            if (ocupadoB != null) {
+                libres &= ~ocupadoB.bits[palabra];
+            }
+
+            long mascara = buscarOcupado ? ~libres : libres;
+            mascara &= -1L << (enDia & 63);
+            if (palabra == 1) {
+                mascara &= (1L << BITS_ULTIMA_PALABRA) - 1;
+            }
+            if (mascara != 0) {
+                return Math.min(dia * SLOTS_POR_DIA + palabra * 64L + Long.numberOfTrailingZeros(mascara), limite);
+            }
+            slot = dia * SLOTS_POR_DIA + (palabra == 0 ? 64 : SLOTS_POR_DIA);
+        }
+        return limite;
+    }
+
+    private Duration necesario(Duration duracion) {
+        return duracion.compareTo(bloqueo) > 0 ? duracion : bloqueo;
+    }
+
+    private static long slotPiso(LocalDateTime fechaHora) {
+        long minutoDelDia = fechaHora.getHour() * 60L + fechaHora.getMinute();
+        return fechaHora.toLocalDate().toEpochDay() * SLOTS_POR_DIA + minutoDelDia / MINUTOS_POR_SLOT;
+    }
+
+    private static long slotTecho(LocalDateTime fechaHora) {
+        long piso = slotPiso(fechaHora);
+        boolean alineado = fechaHora.getMinute() % MINUTOS_POR_SLOT == 0
+                && fechaHora.getSecond() == 0 && fechaHora.getNano() == 0;
+        return alineado ? piso : piso + 1;
+    }
+
+    private static LocalDateTime aFechaHora(long slot) {
+        long dia = Math.floorDiv(slot, SLOTS_POR_DIA);
+        int enDia = (int) (slot - dia * SLOTS_POR_DIA);
+        return LocalDate.ofEpochDay(dia).atStartOfDay().plusMinutes((long) enDia * MINUTOS_POR_SLOT);
+    }
+}
@@ -0,0 +1,127 @@
+package org.jcr.simulacion;
+
+import org.jcr.excepciones.CitaException;
+import org.jcr.servicios.CitaService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Reproduce una lista de solicitudes contra un CitaService con N hilos y mide latencia por operación.
+// Los hilos toman la siguiente solicitud de un contador compartido, así el orden global se conserva aproximadamente.
+// Cada hilo anota sus latencias en un arreglo propio; se ordenan juntas al final para los percentiles.
+public class ConductorCarga {
+    private final CitaService servicio;
+    private final int hilos;
+
+    public ConductorCarga(CitaService servicio, int hilos) {
+        if (hilos <= 0) {
+            throw new IllegalArgumentException("La cantidad de hilos debe ser positiva");
+        }
+        this.servicio = servicio;
+        this.hilos = hilos;
+    }
+
+    public ResultadoCarga ejecutar(List<SolicitudCita> solicitudes) throws InterruptedException {
+        AtomicInteger siguiente = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Trabajador> trabajadores = new ArrayList<>(hilos);
+        List<Thread> threads = new ArrayList<>(hilos);
+        for (int i = 0; i < hilos; i++) {
+            Trabajador trabajador = new Trabajador(solicitudes, siguiente, largada, solicitudes.size() / hilos + 1);
+            Thread hilo = new Thread(trabajador, "carga-" + i);
+            trabajadores.add(trabajador);
+            threads.add(hilo);
+            hilo.start();
+        }
+
+        long inicio = System.nanoTime();
+        largada.countDown();
+        for (Thread hilo : threads) {
+            hilo.join();
+        }
+        long duracion = System.nanoTime() - inicio;
+
+        long aceptadas = 0;
+        long rechazadas = 0;
+        long errores = 0;
+        int totalMuestras = 0;
+        for (Trabajador trabajador : trabajadores) {
+            aceptadas += trabajador.aceptadas;
+            rechazadas += trabajador.rechazadas;
+            errores += trabajador.errores;
+            totalMuestras += trabajador.muestras;
+        }
+        long[] latencias = new long[totalMuestras];
+        int posicion = 0;
+        for (Trabajador trabajador : trabajadores) {
+            System.arraycopy(trabajador.latencias, 0, latencias, posicion, trabajador.muestras);
+            posicion += trabajador.muestras;
+        }
+        Arrays.sort(latencias);
+
+        return new ResultadoCarga(hilos, aceptadas, rechazadas, errores, duracion,
+                percentil(latencias, 0.50), percentil(latencias, 0.90), percentil(latencias, 0.99),
+                percentil(latencias, 0.999), percentil(latencias, 1.0));
+    }
+
+    private static double percentil(long[] ordenadas, double fraccion) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int indice = (int) Math.ceil(fraccion * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, Math.min(indice, ordenadas.length - 1))] / 1_000.0;
+    }
+
+    private final class Trabajador implements Runnable {
+        private final List<SolicitudCita> solicitudes;
+        private final AtomicInteger siguiente;
+        private final CountDownLatch largada;
+        private long[] latencias;
+        private int muestras;
+        private long aceptadas;
+        private long rechazadas;
+        private long errores;
+
+        private Trabajador(List<SolicitudCita> solicitudes, AtomicInteger siguiente, CountDownLatch largada, int capacidad) {
+            this.solicitudes = solicitudes;
+            this.siguiente = siguiente;
+            this.largada = largada;
+            this.latencias = new long[capacidad];
+        }
+
+        @Override
+        public void run() {
+            try {
+                largada.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            int indice;
+            while ((indice = siguiente.getAndIncrement()) < solicitudes.size()) {
+                SolicitudCita solicitud = solicitudes.get(indice);
+                long inicio = System.nanoTime();
+                try {
+                    servicio.programarCita(solicitud.paciente(), solicitud.medico(), solicitud.sala(),
+                            solicitud.fechaHora(), solicitud.costo());
+                    aceptadas++;
+                } catch (CitaException e) {
+                    rechazadas++;
+                } catch (RuntimeException e) {
+                    errores++;
+                }
+                registrar(System.nanoTime() - inicio);
+            }
+        }
+
+        private void registrar(long nanos) {
+            if (muestras == latencias.length) {
+                latencias = Arrays.copyOf(latencias, latencias.length * 2);
+            }
+            latencias[muestras++] = nanos;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.jcr.simulacion;
+
+import org.jcr.entidades.Departamento;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Genera hospitales y solicitudes de turno deterministas a partir de un PerfilCarga.
+// El sesgo sale de dos fuentes: un grupo de médicos "calientes" y horas pico (9-12 y 15-18).
+public class GeneradorCarga {
+    private static final int HORA_APERTURA = 8;
+    private static final int HORA_CIERRE = 20;
+
+    private final PerfilCarga perfil;
+    private final GeneradorHospital generadorHospital;
+    private final Random random;
+    private final double[] pesoAcumuladoPorHora;
+
+    public GeneradorCarga(PerfilCarga perfil) {
+        this.perfil = perfil;
+        this.generadorHospital = new GeneradorHospital(perfil.getSemilla());
+        this.random = new Random(perfil.getSemilla() * 31 + 7);
+        this.pesoAcumuladoPorHora = new double[HORA_CIERRE - HORA_APERTURA];
+        double acumulado = 0;
+        for (int i = 0; i < pesoAcumuladoPorHora.length; i++) {
+            int hora = HORA_APERTURA + i;
+            boolean pico = (hora >= 9 && hora < 12) || (hora >= 15 && hora < 18);
+            acumulado += pico ? perfil.getPesoHoraPico() : 1.0;
+            pesoAcumuladoPorHora[i] = acumulado;
+        }
+    }
+
+    public List<Hospital> generarHospitales() {
+        List<Hospital> hospitales = new ArrayList<>(perfil.getHospitales());
+        for (int h = 0; h < perfil.getHospitales(); h++) {
+            hospitales.add(generadorHospital.generarHospital(perfil.getDepartamentosPorHospital(),
+                    perfil.getMedicosPorDepartamento(), perfil.getSalasPorDepartamento(),
+                    perfil.getPacientesPorHospital()));
+        }
+        return hospitales;
+    }
+
+    public List<SolicitudCita> generarSolicitudes(List<Hospital> hospitales, LocalDate primerDia) {
+        List<Medico> medicos = new ArrayList<>();
+        List<Paciente> pacientes = new ArrayList<>();
+        for (Hospital hospital : hospitales) {
+            pacientes.addAll(hospital.getPacientes());
+            for (Departamento departamento : hospital.getDepartamentos()) {
+                if (!departamento.getSalas().isEmpty()) {
+                    medicos.addAll(departamento.getMedicos());
+                }
+            }
+        }
+        if (medicos.isEmpty() || pacientes.isEmpty()) {
+            throw new IllegalArgumentException("Los hospitales necesitan médicos con salas y pacientes");
+        }
+        int calientes = Math.max(1, (int) Math.round(medicos.size() * perfil.getFraccionMedicosCalientes()));
+
+        List<SolicitudCita> solicitudes = new ArrayList<>(perfil.getSolicitudes());
+        for (int i = 0; i < perfil.getSolicitudes(); i++) {
+            Medico medico = random.nextDouble() < perfil.getFraccionSolicitudesCalientes()
+                    ? medicos.get(random.nextInt(calientes))
+                    : medicos.get(random.nextInt(medicos.size()));
+            Departamento departamento = medico.getDepartamento();
+            solicitudes.add(new SolicitudCita(
+                    pacientes.get(random.nextInt(pacientes.size())),
+                    medico,
+                    departamento.getSalas().get(random.nextInt(departamento.getSalas().size())),
+                    fechaHora(primerDia),
+                    BigDecimal.valueOf(20_000 + random.nextInt(180) * 1_000L).setScale(2)));
+        }
+        return solicitudes;
+    }
+
+    // Día uniforme dentro del horizonte, hora según el peso de cada franja y minuto en múltiplos de 15
+    private LocalDateTime fechaHora(LocalDate primerDia) {
+        double valor = random.nextDouble() * pesoAcumuladoPorHora[pesoAcumuladoPorHora.length - 1];
+        int indice = 0;
+        while (pesoAcumuladoPorHora[indice] <= valor) {
+            indice++;
+        }
+        return primerDia.plusDays(random.nextInt(perfil.getDiasHorizonte()))
+                .atTime(HORA_APERTURA + indice, random.nextInt(4) * 15);
+    }
+}
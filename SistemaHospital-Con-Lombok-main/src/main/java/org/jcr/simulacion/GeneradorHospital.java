@@ -0,0 +1,181 @@
+package org.jcr.simulacion;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Departamento;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+import org.jcr.enums.EspecialidadMedica;
+import org.jcr.enums.TipoSangre;
+import org.jcr.excepciones.CitaException;
+import org.jcr.servicios.CitaManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Genera hospitales sintéticos reproducibles (misma semilla, mismos datos) para benchmarks y pruebas de carga.
+// Los DNI y matrículas son únicos dentro de un mismo generador.
+public class GeneradorHospital {
+    private static final String[] NOMBRES = {"Ana", "Carlos", "Lucía", "Martín", "Sofía", "Juan", "Valentina",
+            "Diego", "Camila", "Mateo", "Florencia", "Nicolás", "Julieta", "Tomás", "Agustina", "Facundo"};
+    private static final String[] APELLIDOS = {"González", "Rodríguez", "Gómez", "Fernández", "López", "Díaz",
+            "Martínez", "Pérez", "García", "Sánchez", "Romero", "Sosa", "Torres", "Álvarez", "Ruiz", "Cruz"};
+    private static final String[] TIPOS_SALA = {"Consultorio", "Consultorio", "Consultorio", "Quirófano", "Emergencias"};
+    // Frecuencia aproximada de cada grupo sanguíneo, en el orden de TipoSangre
+    private static final double[] FRECUENCIA_SANGRE = {0.34, 0.06, 0.09, 0.02, 0.03, 0.01, 0.38, 0.07};
+
+    private final Random random;
+    private int siguienteDni = 10_000_000;
+    private int siguienteMatricula = 100_000;
+    private int siguienteHospital = 1;
+
+    public GeneradorHospital(long semilla) {
+        this.random = new Random(semilla);
+    }
+
+    // ESTRUCTURA
+    public Hospital generarHospital(int departamentos, int medicosPorDepartamento, int salasPorDepartamento, int pacientes) {
+        int numero = siguienteHospital++;
+        Hospital hospital = Hospital.builder()
+                .nombre("Hospital Sintético " + numero)
+                .direccion("Calle " + (100 + random.nextInt(9000)))
+                .telefono("011-" + (4000 + random.nextInt(6000)) + "-" + (1000 + random.nextInt(9000)))
+                .build();
+
+        EspecialidadMedica[] especialidades = EspecialidadMedica.values();
+        for (int d = 0; d < departamentos; d++) {
+            EspecialidadMedica especialidad = especialidades[d % especialidades.length];
+            Departamento departamento = Departamento.builder()
+                    .nombre(especialidad.getDescripcion() + (d < especialidades.length ? "" : " " + (d / especialidades.length + 1)))
+                    .especialidad(especialidad)
+                    .build();
+            hospital.agregarDepartamento(departamento);
+            for (int m = 0; m < medicosPorDepartamento; m++) {
+                departamento.agregarMedico(generarMedico(especialidad));
+            }
+            for (int s = 0; s < salasPorDepartamento; s++) {
+                departamento.crearSala(especialidad.name().substring(0, 4) + "-" + numero + "-" + d + "-" + s,
+                        TIPOS_SALA[random.nextInt(TIPOS_SALA.length)]);
+            }
+        }
+
+        for (int p = 0; p < pacientes; p++) {
+            hospital.agregarPaciente(generarPaciente());
+        }
+        return hospital;
+    }
+
+    public Medico generarMedico(EspecialidadMedica especialidad) {
+        return Medico.builder()
+                .nombre(elegir(NOMBRES))
+                .apellido(elegir(APELLIDOS))
+                .dni(String.valueOf(siguienteDni++))
+                .fechaNacimiento(LocalDate.of(1955 + random.nextInt(40), 1 + random.nextInt(12), 1 + random.nextInt(28)))
+                .tipoSangre(tipoSangre())
+                .numeroMatricula("MP-" + siguienteMatricula++)
+                .especialidad(especialidad)
+                .build();
+    }
+
+    public Paciente generarPaciente() {
+        return Paciente.builder()
+                .nombre(elegir(NOMBRES))
+                .apellido(elegir(APELLIDOS))
+                .dni(String.valueOf(siguienteDni++))
+                .fechaNacimiento(LocalDate.of(1935 + random.nextInt(88), 1 + random.nextInt(12), 1 + random.nextInt(28)))
+                .tipoSangre(tipoSangre())
+                .telefono("11-" + (10_000_000 + random.nextInt(90_000_000)))
+                .direccion("Calle " + (100 + random.nextInt(9000)))
+                .build();
+    }
+
+    // CITAS
+    // Programa citas sin conflictos: dentro de cada departamento el médico i atiende en la sala i,
+    // y cada par avanza de a un bloqueo (CitaManager.BLOQUEO_POR_CITA) a partir de "desde"
+    public List<Cita> programarCitas(CitaManager manager, Hospital hospital, int cantidad, LocalDateTime desde) throws CitaException {
+        List<Departamento> departamentos = new ArrayList<>();
+        for (Departamento departamento : hospital.getDepartamentos()) {
+            if (!departamento.getMedicos().isEmpty() && !departamento.getSalas().isEmpty()) {
+                departamentos.add(departamento);
+            }
+        }
+        if (departamentos.isEmpty() || hospital.getPacientes().isEmpty()) {
+            throw new IllegalArgumentException("El hospital necesita pacientes y departamentos con médicos y salas");
+        }
+
+        int[] turnosPorDepartamento = new int[departamentos.size()];
+        List<Paciente> pacientes = hospital.getPacientes();
+        List<Cita> citas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            int d = random.nextInt(departamentos.size());
+            Departamento departamento = departamentos.get(d);
+            int pares = Math.min(departamento.getMedicos().size(), departamento.getSalas().size());
+            int turno = turnosPorDepartamento[d]++;
+            LocalDateTime fechaHora = desde.plus(CitaManager.BLOQUEO_POR_CITA.multipliedBy(turno / pares));
+            citas.add(manager.programarCita(
+                    pacientes.get(random.nextInt(pacientes.size())),
+                    departamento.getMedicos().get(turno % pares),
+                    departamento.getSalas().get(turno % pares),
+                    fechaHora,
+                    costo()));
+        }
+        return citas;
+    }
+
+    // ÍNDICES PARA cargarCitas
+    public static Map<String, Paciente> pacientesPorDni(Hospital hospital) {
+        Map<String, Paciente> resultado = new HashMap<>();
+        for (Paciente paciente : hospital.getPacientes()) {
+            resultado.put(paciente.getDni(), paciente);
+        }
+        return resultado;
+    }
+
+    public static Map<String, Medico> medicosPorDni(Hospital hospital) {
+        Map<String, Medico> resultado = new HashMap<>();
+        for (Departamento departamento : hospital.getDepartamentos()) {
+            for (Medico medico : departamento.getMedicos()) {
+                resultado.put(medico.getDni(), medico);
+            }
+        }
+        return resultado;
+    }
+
+    public static Map<String, Sala> salasPorNumero(Hospital hospital) {
+        Map<String, Sala> resultado = new HashMap<>();
+        for (Departamento departamento : hospital.getDepartamentos()) {
+            for (Sala sala : departamento.getSalas()) {
+                resultado.put(sala.getNumero(), sala);
+            }
+        }
+        return resultado;
+    }
+
+    // AUXILIARES
+    private BigDecimal costo() {
+        return BigDecimal.valueOf(20_000 + random.nextInt(180) * 1_000L).setScale(2);
+    }
+
+    private TipoSangre tipoSangre() {
+        double valor = random.nextDouble();
+        TipoSangre[] tipos = TipoSangre.values();
+        for (int i = 0; i < tipos.length; i++) {
+            valor -= FRECUENCIA_SANGRE[i];
+            if (valor < 0) {
+                return tipos[i];
+            }
+        }
+        return TipoSangre.O_POSITIVO;
+    }
+
+    private String elegir(String[] opciones) {
+        return opciones[random.nextInt(opciones.length)];
+    }
+}
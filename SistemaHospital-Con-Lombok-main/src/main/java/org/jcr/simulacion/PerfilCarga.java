@@ -0,0 +1,36 @@
+package org.jcr.simulacion;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+// Parámetros de una carga sintética. Los valores por defecto describen un hospital mediano
+// donde el 10% de los médicos recibe el 60% de las solicitudes y las horas pico pesan el triple.
+@Getter
+@ToString
+@Builder
+
+public class PerfilCarga {
+    @Builder.Default
+    private final long semilla = 42L;
+    @Builder.Default
+    private final int hospitales = 1;
+    @Builder.Default
+    private final int departamentosPorHospital = 12;
+    @Builder.Default
+    private final int medicosPorDepartamento = 20;
+    @Builder.Default
+    private final int salasPorDepartamento = 10;
+    @Builder.Default
+    private final int pacientesPorHospital = 100_000;
+    @Builder.Default
+    private final int solicitudes = 200_000;
+    @Builder.Default
+    private final int diasHorizonte = 60;
+    @Builder.Default
+    private final double fraccionMedicosCalientes = 0.10;
+    @Builder.Default
+    private final double fraccionSolicitudesCalientes = 0.60;
+    @Builder.Default
+    private final double pesoHoraPico = 3.0;
+}
@@ -0,0 +1,22 @@
+package org.jcr.simulacion;
+
+import java.util.Locale;
+
+// Resumen de una corrida del ConductorCarga; las latencias están en microsegundos
+public record ResultadoCarga(int hilos, long aceptadas, long rechazadas, long errores, long duracionNanos,
+                             double p50, double p90, double p99, double p999, double maxima) {
+
+    public long getTotal() {
+        return aceptadas + rechazadas + errores;
+    }
+
+    public double getOperacionesPorSegundo() {
+        return duracionNanos == 0 ? 0 : getTotal() * 1_000_000_000.0 / duracionNanos;
+    }
+
+    public String resumen() {
+        return String.format(Locale.ROOT,
+                "hilos=%d total=%d aceptadas=%d rechazadas=%d errores=%d | %.0f ops/s | latencia us p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f",
+                hilos, getTotal(), aceptadas, rechazadas, errores, getOperacionesPorSegundo(), p50, p90, p99, p999, maxima);
+    }
+}
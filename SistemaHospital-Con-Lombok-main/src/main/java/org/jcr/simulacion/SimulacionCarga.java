@@ -0,0 +1,77 @@
+package org.jcr.simulacion;
+
+import org.jcr.entidades.Hospital;
+import org.jcr.metricas.Metricas;
+import org.jcr.servicios.CitaManager;
+import org.jcr.servicios.CitaManagerParticionado;
+import org.jcr.servicios.CitaManagerSecuenciado;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Punto de entrada de la prueba de carga: gradle simularCarga -Pcarga.solicitudes=1000000 ...
+// Genera la misma carga una vez por motor y la corre contra CitaManager, CitaManagerParticionado
+// y CitaManagerSecuenciado.
+public class SimulacionCarga {
+
+    public static void main(String[] args) throws InterruptedException {
+        PerfilCarga perfil = PerfilCarga.builder()
+                .semilla(Long.getLong("carga.semilla", 42L))
+                .hospitales(Integer.getInteger("carga.hospitales", 4))
+                .pacientesPorHospital(Integer.getInteger("carga.pacientes", 100_000))
+                .solicitudes(Integer.getInteger("carga.solicitudes", 200_000))
+                .build();
+        int hilos = Integer.getInteger("carga.hilos", Runtime.getRuntime().availableProcessors());
+        System.out.println("Perfil: " + perfil);
+
+        List<SolicitudCita> solicitudes = prepararYCorrer(perfil, hilos, Motor.SINCRONIZADO);
+        System.out.println("Solicitudes generadas: " + solicitudes.size());
+        prepararYCorrer(perfil, hilos, Motor.PARTICIONADO);
+        prepararYCorrer(perfil, hilos, Motor.SECUENCIADO);
+    }
+
+    private enum Motor {
+        SINCRONIZADO("CitaManager:             "),
+        PARTICIONADO("CitaManagerParticionado: "),
+        SECUENCIADO("CitaManagerSecuenciado:  ");
+
+        private final String etiqueta;
+
+        Motor(String etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+    }
+
+    // Cada corrida usa hospitales nuevos para que las citas de una no afecten a la otra
+    private static List<SolicitudCita> prepararYCorrer(PerfilCarga perfil, int hilos, Motor motor)
+            throws InterruptedException {
+        GeneradorCarga generador = new GeneradorCarga(perfil);
+        List<Hospital> hospitales = generador.generarHospitales();
+        List<SolicitudCita> solicitudes = generador.generarSolicitudes(hospitales, LocalDate.now().plusDays(1));
+
+        ResultadoCarga resultado;
+        if (motor == Motor.PARTICIONADO) {
+            try (CitaManagerParticionado servicio = new CitaManagerParticionado()) {
+                hospitales.forEach(servicio::registrarHospital);
+                resultado = new ConductorCarga(servicio, hilos).ejecutar(solicitudes);
+            }
+        } else if (motor == Motor.SECUENCIADO) {
+            try (CitaManagerSecuenciado servicio = new CitaManagerSecuenciado()) {
+                hospitales.forEach(servicio::registrarHospital);
+                resultado = new ConductorCarga(servicio, hilos).ejecutar(solicitudes);
+            }
+        } else {
+            CitaManager servicio = new CitaManager();
+            hospitales.forEach(servicio::registrarHospital);
+            resultado = new ConductorCarga(servicio, hilos).ejecutar(solicitudes);
+        }
+        System.out.println(motor.etiqueta + resultado.resumen());
+        if (Metricas.HABILITADAS) {
+            System.out.printf("  métricas internas: programar p50=%.1fus p99=%.1fus, disponibilidad p99=%.1fus, rechazos=%s%n",
+                    Metricas.CITAS.getProgramarP50Micros(), Metricas.CITAS.getProgramarP99Micros(),
+                    Metricas.CITAS.getDisponibilidadP99Micros(), Metricas.CITAS.getRechazosPorMotivo());
+            Metricas.CITAS.reiniciar();
+        }
+        return solicitudes;
+    }
+}
@@ -0,0 +1,12 @@
+package org.jcr.simulacion;
+
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Una solicitud de turno tal como llegaría de recepción; puede chocar con otra y ser rechazada
+public record SolicitudCita(Paciente paciente, Medico medico, Sala sala, LocalDateTime fechaHora, BigDecimal costo) {
+}
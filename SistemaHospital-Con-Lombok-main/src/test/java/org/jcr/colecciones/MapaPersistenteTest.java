@@ -0,0 +1,96 @@
+package org.jcr.colecciones;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Propiedades contra HashMap con operaciones aleatorias de semilla fija. Las claves de Clave
+// fuerzan hashes repetidos (nodos de colisión) y hashes que solo difieren en los bits altos
+// (caminos profundos en el trie)
+class MapaPersistenteTest {
+
+    private record Clave(int id, int hash) {
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @Test
+    void operacionesAleatoriasCoincidenConHashMap() {
+        verificarContraHashMap(new Random(47), 2_000, id -> new Clave(id, id * 0x9E3779B9));
+    }
+
+    @Test
+    void clavesConElMismoHashVanAColision() {
+        verificarContraHashMap(new Random(48), 200, id -> new Clave(id, id % 7));
+    }
+
+    @Test
+    void hashesQueSoloDifierenEnBitsAltos() {
+        // hash() mezcla los 16 bits altos con los bajos: se repiten los bajos y los altos difieren poco
+        verificarContraHashMap(new Random(49), 500, id -> new Clave(id, (id % 3) << 30 | (id & 0xF) << 16));
+    }
+
+    @Test
+    void quitarLoQueNoEstaOReasociarElMismoValorDevuelveLoMismo() {
+        MapaPersistente<String, Integer> mapa = MapaPersistente.<String, Integer>vacio().conEntrada("a", 1);
+        assertSame(mapa, mapa.sinClave("b"));
+        assertEquals(0, mapa.sinClave("a").size());
+        assertNull(mapa.sinClave("a").get("a"));
+        assertFalse(MapaPersistente.<String, Integer>vacio().containsKey("a"));
+        assertThrows(NullPointerException.class, () -> mapa.get(null));
+        assertThrows(NullPointerException.class, () -> mapa.conEntrada(null, 1));
+    }
+
+    private static void verificarContraHashMap(Random random, int claves, IntFunction<Clave> clave) {
+        MapaPersistente<Clave, Integer> mapa = MapaPersistente.vacio();
+        Map<Clave, Integer> referencia = new HashMap<>();
+        List<MapaPersistente<Clave, Integer>> versiones = new ArrayList<>();
+        List<Map<Clave, Integer>> copias = new ArrayList<>();
+
+        for (int paso = 0; paso < 50_000; paso++) {
+            Clave k = clave.apply(random.nextInt(claves));
+            int operacion = random.nextInt(10);
+            if (operacion < 6) {
+                int valor = random.nextInt(100);
+                mapa = mapa.conEntrada(k, valor);
+                referencia.put(k, valor);
+            } else if (operacion < 9) {
+                mapa = mapa.sinClave(k);
+                referencia.remove(k);
+            } else {
+                assertEquals(referencia.get(k), mapa.get(k));
+                assertEquals(referencia.containsKey(k), mapa.containsKey(k));
+            }
+            assertEquals(referencia.size(), mapa.size());
+            if (paso % 1_009 == 0) {
+                versiones.add(mapa);
+                copias.add(new HashMap<>(referencia));
+            }
+        }
+
+        assertEquals(referencia, aMapa(mapa));
+        for (int i = 0; i < versiones.size(); i++) {
+            assertEquals(copias.get(i), aMapa(versiones.get(i)), "versión " + i);
+        }
+    }
+
+    private static Map<Clave, Integer> aMapa(MapaPersistente<Clave, Integer> mapa) {
+        Map<Clave, Integer> resultado = new HashMap<>();
+        mapa.forEach((k, v) -> assertNull(resultado.put(k, v), "clave repetida en forEach: " + k));
+        assertEquals(mapa.size(), resultado.size());
+        return resultado;
+    }
+}
@@ -0,0 +1,77 @@
+package org.jcr.colecciones;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Propiedades contra ArrayList con operaciones aleatorias de semilla fija; cada versión vieja
+// guardada tiene que seguir igual a la copia que se tomó en su momento
+class VectorPersistenteTest {
+
+    @Test
+    void agregadosYReemplazosAleatoriosCoincidenConArrayList() {
+        Random random = new Random(47);
+        VectorPersistente<Integer> vector = VectorPersistente.vacio();
+        List<Integer> referencia = new ArrayList<>();
+        List<VectorPersistente<Integer>> versiones = new ArrayList<>();
+        List<List<Integer>> copias = new ArrayList<>();
+
+        // Más de 32 * 32 * 32 elementos, así el trie llega a tres niveles más la cola
+        for (int paso = 0; paso < 60_000; paso++) {
+            if (referencia.isEmpty() || random.nextInt(4) > 0) {
+                int valor = random.nextInt();
+                vector = vector.conAgregado(valor);
+                referencia.add(valor);
+            } else {
+                int indice = random.nextInt(referencia.size());
+                int valor = random.nextInt();
+                vector = vector.conReemplazo(indice, valor);
+                referencia.set(indice, valor);
+            }
+            if (paso % 997 == 0) {
+                versiones.add(vector);
+                copias.add(new ArrayList<>(referencia));
+            }
+        }
+
+        assertEquals(referencia, vector);
+        assertEquals(referencia.get(referencia.size() - 1), vector.getUltimo());
+        for (int i = 0; i < versiones.size(); i++) {
+            assertEquals(copias.get(i), versiones.get(i), "versión " + i);
+        }
+    }
+
+    @Test
+    void tamaniosEnLosBordesDeCadaNivel() {
+        for (int tamanio : new int[]{0, 1, 31, 32, 33, 1023, 1024, 1025, 1056, 1057, 32 * 32 * 32 + 32, 32 * 32 * 32 + 33}) {
+            VectorPersistente<Integer> vector = VectorPersistente.vacio();
+            for (int i = 0; i < tamanio; i++) {
+                vector = vector.conAgregado(i);
+            }
+            assertEquals(tamanio, vector.size());
+            for (int i = 0; i < tamanio; i++) {
+                assertEquals(i, vector.get(i), "tamaño " + tamanio + ", índice " + i);
+            }
+            if (tamanio > 1) {
+                VectorPersistente<Integer> reemplazado = vector.conReemplazo(0, -1).conReemplazo(tamanio - 1, -2);
+                assertEquals(-1, reemplazado.get(0));
+                assertEquals(-2, reemplazado.getUltimo());
+                assertEquals(0, vector.get(0));
+            }
+        }
+    }
+
+    @Test
+    void indicesFueraDeRangoFallan() {
+        VectorPersistente<String> vector = VectorPersistente.de("a", "b");
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.get(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.conReemplazo(2, "c"));
+        assertThrows(IndexOutOfBoundsException.class, () -> VectorPersistente.vacio().getUltimo());
+    }
+}
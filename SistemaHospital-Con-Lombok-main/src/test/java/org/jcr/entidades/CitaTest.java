@@ -0,0 +1,44 @@
+package org.jcr.entidades;
+
+import org.jcr.enums.EstadoCita;
+import org.jcr.simulacion.GeneradorHospital;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CitaTest {
+
+    @Test
+    void losSettersNoReabrenUnEstadoFinal() {
+        Hospital hospital = new GeneradorHospital(27).generarHospital(1, 1, 1, 1);
+        Departamento departamento = hospital.getDepartamentos().get(0);
+        Cita cita = Cita.builder()
+                .paciente(hospital.getPacientes().get(0))
+                .medico(departamento.getMedicos().get(0))
+                .sala(departamento.getSalas().get(0))
+                .fechaHora(LocalDate.now().plusDays(1).atTime(9, 0))
+                .costo(BigDecimal.TEN)
+                .build();
+
+        cita.setEstado(EstadoCita.EN_CURSO);
+        cita.setEstado(EstadoCita.COMPLETADA);
+        assertEquals(2, cita.getVersion());
+        cita.setEstado(EstadoCita.COMPLETADA);
+        assertEquals(2, cita.getVersion());
+
+        assertThrows(IllegalStateException.class, () -> cita.setEstado(EstadoCita.PROGRAMADA));
+        assertThrows(IllegalStateException.class, () -> cita.compareAndSetEstado(2, EstadoCita.EN_CURSO));
+        assertFalse(cita.compareAndSetEstado(1, EstadoCita.CANCELADA));
+        assertEquals(EstadoCita.COMPLETADA, cita.getEstado());
+
+        // Las observaciones de una cita cerrada se pueden seguir completando
+        cita.setObservaciones("Alta sin indicaciones");
+        assertEquals("Alta sin indicaciones", cita.getObservaciones());
+        assertEquals(3, cita.getVersion());
+    }
+}
@@ -0,0 +1,39 @@
+package org.jcr.entidades;
+
+import org.jcr.simulacion.GeneradorHospital;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HospitalTest {
+
+    @Test
+    void trasDeserializarElAlmacenDeHistoriasSigueDisponible() throws Exception {
+        Hospital hospital = new GeneradorHospital(37).generarHospital(1, 1, 1, 3);
+        Paciente conHistoria = hospital.getPacientes().get(0);
+        HistoriaClinica historia = conHistoria.getHistoriaClinica();
+        assertSame(historia, hospital.getHistorias().buscar(conHistoria.getNumeroHistoria()).orElseThrow());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream salida = new ObjectOutputStream(bytes)) {
+            salida.writeObject(hospital);
+        }
+        Hospital copia;
+        try (ObjectInputStream entrada = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copia = (Hospital) entrada.readObject();
+        }
+
+        Paciente copiaPaciente = copia.getPacientes().get(0);
+        assertTrue(copia.getHistorias().buscar(copiaPaciente.getNumeroHistoria()).isPresent());
+        assertSame(copiaPaciente.getHistoriaClinica(), copia.getHistorias().buscar(copiaPaciente.getNumeroHistoria()).orElseThrow());
+        copia.getPacientes().get(1).getHistoriaClinica();
+        assertEquals(2, copia.getHistorias().getCantidad());
+    }
+}
@@ -0,0 +1,128 @@
+package org.jcr.eventos;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Departamento;
+import org.jcr.entidades.Hospital;
+import org.jcr.enums.EstadoCita;
+import org.jcr.excepciones.EventosPerdidosException;
+import org.jcr.servicios.CitaManager;
+import org.jcr.simulacion.GeneradorHospital;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConteoCitasPorEstadoTest {
+
+    @Test
+    void suscriptorTardioYRecargaCoincidenConLasCitasIndexadas(@TempDir Path directorio) throws Exception {
+        Hospital hospital = new GeneradorHospital(48).generarHospital(2, 3, 3, 20);
+        LocalDateTime desde = LocalDate.now().plusDays(1).atTime(8, 0);
+        CitaManager manager = new CitaManager();
+        PublicadorEventosCitas eventos = new PublicadorEventosCitas(16, 1_024);
+        manager.setEventos(eventos);
+        ConteoCitasPorEstado conteo = new ConteoCitasPorEstado();
+
+        List<Cita> previas = new GeneradorHospital(1).programarCitas(manager, hospital, 40, desde);
+        manager.cambiarEstado(previas.get(0), EstadoCita.EN_CURSO);
+        manager.suscribir(conteo);
+        List<Cita> posteriores = new GeneradorHospital(2).programarCitas(manager, hospital, 40, desde.plusDays(30));
+        manager.cambiarEstado(previas.get(1), EstadoCita.EN_CURSO);
+        manager.cancelarCita(previas.get(2));
+        manager.cancelarCita(posteriores.get(0));
+
+        String archivo = directorio.resolve("citas.csv").toString();
+        manager.guardarCitas(archivo);
+        manager.cargarCitas(archivo, GeneradorHospital.pacientesPorDni(hospital),
+                GeneradorHospital.medicosPorDni(hospital), GeneradorHospital.salasPorNumero(hospital));
+        eventos.close();
+
+        Map<EstadoCita, Long> esperados = new EnumMap<>(EstadoCita.class);
+        for (Cita cita : manager.getInstantanea().getCitas()) {
+            esperados.merge(cita.getEstado(), 1L, Long::sum);
+        }
+        for (EstadoCita estado : EstadoCita.values()) {
+            assertEquals(esperados.getOrDefault(estado, 0L), conteo.getCantidad(estado), estado.name());
+            assertEquals(esperados.getOrDefault(estado, 0L), hospital.getEstadisticas().getCitas(estado), estado.name());
+        }
+        assertEquals(0, eventos.getDescartados());
+    }
+
+    @Test
+    void unSuscriptorLentoNoFrenaLasReservasYLosCortadosSeResincronizan() throws Exception {
+        Hospital hospital = new GeneradorHospital(49).generarHospital(1, 1, 1, 2);
+        Departamento departamento = hospital.getDepartamentos().get(0);
+        LocalDateTime desde = LocalDate.now().plusDays(1).atTime(8, 0);
+        CitaManager manager = new CitaManager();
+        PublicadorEventosCitas eventos = new PublicadorEventosCitas(1, 8);
+        manager.setEventos(eventos);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Throwable> corte = new CompletableFuture<>();
+        ConteoCitasPorEstado conteo = new ConteoCitasPorEstado();
+        manager.suscribir(conteo);
+        eventos.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription suscripcion) {
+                suscripcion.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(List<EventoCita> lote) {
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                corte.complete(error);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < 1_000; i++) {
+                manager.programarCita(hospital.getPacientes().get(0), departamento.getMedicos().get(0),
+                        departamento.getSalas().get(0), desde.plusHours(2L * i), BigDecimal.TEN);
+            }
+        });
+        assertEquals(1_000, manager.getInstantanea().getCantidad());
+        assertTrue(eventos.getDescartados() > 0);
+        liberar.countDown();
+
+        // Los dos suscriptores quedan cortados donde empieza el hueco, y el conteo vuelve desde una foto
+        assertTrue(corte.get(10, TimeUnit.SECONDS) instanceof EventosPerdidosException);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (!conteo.isDesincronizado()) {
+                Thread.sleep(10);
+            }
+        });
+        manager.suscribir(conteo);
+        manager.cancelarCita(manager.getInstantanea().getCitas().get(0));
+        eventos.close();
+        assertFalse(conteo.isDesincronizado());
+        assertEquals(999, conteo.getCantidad(EstadoCita.PROGRAMADA));
+        assertEquals(0, conteo.getCantidad(EstadoCita.CANCELADA));
+    }
+}
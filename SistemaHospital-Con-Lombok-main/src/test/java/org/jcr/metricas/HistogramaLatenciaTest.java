@@ -0,0 +1,63 @@
+package org.jcr.metricas;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramaLatenciaTest {
+
+    @Test
+    void valoresChicosTienenCubetaPropia() {
+        for (long valor = 0; valor < 16; valor++) {
+            assertEquals(valor, HistogramaLatencia.indice(valor));
+            assertEquals(valor, HistogramaLatencia.limiteSuperior((int) valor));
+        }
+        assertEquals(16, HistogramaLatencia.indice(16));
+        assertEquals(16, HistogramaLatencia.limiteSuperior(16));
+    }
+
+    @Test
+    void cubetasContiguasHastaLongMaxValue() {
+        int ultima = HistogramaLatencia.indice(Long.MAX_VALUE);
+        assertTrue(ultima < 64 * 16, "la última cubeta entra en el arreglo");
+        assertEquals(Long.MAX_VALUE, HistogramaLatencia.limiteSuperior(ultima));
+        for (int i = 1; i <= ultima; i++) {
+            long inferior = HistogramaLatencia.limiteSuperior(i - 1) + 1;
+            long superior = HistogramaLatencia.limiteSuperior(i);
+            assertTrue(inferior <= superior, "cubeta " + i + " vacía");
+            assertEquals(i, HistogramaLatencia.indice(inferior), "inferior de la cubeta " + i);
+            assertEquals(i, HistogramaLatencia.indice(superior), "superior de la cubeta " + i);
+        }
+    }
+
+    @Test
+    void errorRelativoAcotadoPorUnaSubCubeta() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long valor = random.nextLong() >>> (1 + random.nextInt(63));
+            long superior = HistogramaLatencia.limiteSuperior(HistogramaLatencia.indice(valor));
+            assertTrue(superior >= valor, "la cota no cubre " + valor);
+            assertTrue(superior - valor <= valor / 16, "error mayor a 1/16 para " + valor);
+        }
+    }
+
+    @Test
+    void percentilesEnLosBordes() {
+        HistogramaLatencia histograma = new HistogramaLatencia();
+        assertEquals(0, histograma.percentil(0.99));
+
+        histograma.registrar(-5);
+        assertEquals(0, histograma.getMaximo());
+        assertEquals(0, histograma.percentil(1.0));
+
+        histograma.reiniciar();
+        histograma.registrar(1_000);
+        assertEquals(1_000, histograma.percentil(0.5), "la cota se recorta al máximo observado");
+        histograma.registrar(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histograma.percentil(1.0));
+        assertEquals(HistogramaLatencia.limiteSuperior(HistogramaLatencia.indice(1_000)), histograma.percentil(0.5));
+    }
+}
@@ -0,0 +1,130 @@
+package org.jcr.servicios;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnilloSolicitudesTest {
+
+    @Test
+    void capacidadDebeSerPotenciaDeDos() {
+        assertThrows(IllegalArgumentException.class, () -> new AnilloSolicitudes<>(0));
+        assertThrows(IllegalArgumentException.class, () -> new AnilloSolicitudes<>(6));
+        assertEquals(8, new AnilloSolicitudes<>(8).getCapacidad());
+    }
+
+    @Test
+    void drenarRespetaElOrdenYElMaximo() {
+        AnilloSolicitudes<Integer> anillo = new AnilloSolicitudes<>(8);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(anillo.publicar(i));
+        }
+        assertEquals(5, anillo.getPendientes());
+        List<Integer> lote = new ArrayList<>();
+        assertEquals(3, anillo.drenar(lote, 3));
+        assertEquals(List.of(0, 1, 2), lote);
+        assertEquals(2, anillo.drenar(lote, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4), lote);
+        assertEquals(0, anillo.drenar(lote, 10));
+        assertEquals(0, anillo.getPendientes());
+    }
+
+    @Test
+    void variosProductoresSobreUnAnilloChicoNoPierdenNiRepiten() throws InterruptedException {
+        AnilloSolicitudes<Integer> anillo = new AnilloSolicitudes<>(16);
+        int productores = 4;
+        int porProductor = 20_000;
+        List<Thread> hilos = new ArrayList<>();
+        for (int p = 0; p < productores; p++) {
+            int base = p * porProductor;
+            Thread hilo = new Thread(() -> {
+                for (int i = 0; i < porProductor; i++) {
+                    anillo.publicar(base + i);
+                }
+            });
+            hilo.start();
+            hilos.add(hilo);
+        }
+
+        Set<Integer> vistos = new HashSet<>();
+        int[] ultimoPorProductor = new int[productores];
+        Arrays.fill(ultimoPorProductor, -1);
+        List<Integer> lote = new ArrayList<>();
+        while (vistos.size() < productores * porProductor) {
+            if (anillo.drenar(lote, 64) == 0) {
+                anillo.esperar(1_000_000);
+                continue;
+            }
+            for (int valor : lote) {
+                assertTrue(vistos.add(valor), "repetido " + valor);
+                int productor = valor / porProductor;
+                assertTrue(valor > ultimoPorProductor[productor], "fuera de orden " + valor);
+                ultimoPorProductor[productor] = valor;
+            }
+            lote.clear();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        assertEquals(0, anillo.getPendientes());
+    }
+
+    @Test
+    void publicarDespuesDeCerrarSeRechaza() {
+        AnilloSolicitudes<Integer> anillo = new AnilloSolicitudes<>(4);
+        assertTrue(anillo.publicar(1));
+        anillo.cerrar();
+        assertTrue(anillo.isCerrado());
+        assertFalse(anillo.publicar(2));
+        assertFalse(anillo.terminado(), "queda lo publicado antes del cierre");
+        assertEquals(1, anillo.getPendientes());
+
+        List<Integer> lote = new ArrayList<>();
+        assertEquals(1, anillo.drenar(lote, 10));
+        assertEquals(List.of(1), lote);
+        assertTrue(anillo.terminado());
+        assertEquals(0, anillo.getPendientes());
+    }
+
+    @Test
+    void productorEsperandoConAnilloLlenoTerminaAunqueSeCierre() throws InterruptedException {
+        AnilloSolicitudes<Integer> anillo = new AnilloSolicitudes<>(2);
+        assertTrue(anillo.publicar(1));
+        assertTrue(anillo.publicar(2));
+        CountDownLatch iniciado = new CountDownLatch(1);
+        AtomicBoolean publicado = new AtomicBoolean();
+        Thread productor = new Thread(() -> {
+            iniciado.countDown();
+            publicado.set(anillo.publicar(3));
+        });
+        productor.start();
+        iniciado.await();
+        while (anillo.getPendientes() < 3) {
+            Thread.onSpinWait();
+        }
+        anillo.cerrar();
+
+        // Reclamó antes del cierre: se publica cuando el consumidor libera lugar
+        List<Integer> lote = new ArrayList<>();
+        while (!anillo.terminado()) {
+            if (anillo.drenar(lote, 10) == 0) {
+                anillo.esperar(1_000_000);
+            }
+        }
+        productor.join(5_000);
+        assertFalse(productor.isAlive());
+        assertTrue(publicado.get());
+        assertEquals(List.of(1, 2, 3), lote);
+    }
+}
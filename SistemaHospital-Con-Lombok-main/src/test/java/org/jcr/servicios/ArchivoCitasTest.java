@@ -0,0 +1,175 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Departamento;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.enums.EstadoCita;
+import org.jcr.simulacion.GeneradorHospital;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchivoCitasTest {
+
+    @Test
+    void archivadosConcurrentesNoDuplicanCitas(@TempDir Path directorio) throws Exception {
+        Hospital hospital = new GeneradorHospital(50).generarHospital(1, 4, 4, 10);
+        CitaManager manager = cargarHistorial(hospital, directorio.resolve("citas.csv"), 2_000);
+        ArchivoCitas archivo = new ArchivoCitas(directorio.resolve("frio"));
+        manager.setArchivo(archivo);
+        Medico medico = hospital.getDepartamentos().get(0).getMedicos().get(0);
+        int antes = manager.getCitasPorMedico(medico).size();
+
+        ExecutorService hilos = Executors.newFixedThreadPool(4);
+        List<Callable<Integer>> tareas = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tareas.add(manager::archivarHistorial);
+        }
+        int archivadas = 0;
+        for (Future<Integer> parcial : hilos.invokeAll(tareas)) {
+            archivadas += parcial.get();
+        }
+        hilos.shutdown();
+
+        assertEquals(2_000, archivadas);
+        assertEquals(2_000, archivo.getArchivadas());
+        assertEquals(0, manager.getInstantanea().getCantidad());
+        assertEquals(antes, manager.getCitasPorMedico(medico).size());
+        for (EstadoCita estado : EstadoCita.values()) {
+            assertEquals(0, hospital.getEstadisticas().getCitas(estado), estado.name());
+        }
+
+        // Los reportes siguen viendo el historial archivado
+        Map<EstadoCita, Long> porEstado = manager.getInstantaneaColumnar().contarPorEstado();
+        assertEquals(1_000, porEstado.get(EstadoCita.COMPLETADA));
+        assertEquals(1_000, porEstado.get(EstadoCita.NO_ASISTIO));
+    }
+
+    @Test
+    void unMesConEntidadesFaltantesNoQuedaEnCache(@TempDir Path directorio) throws Exception {
+        Hospital hospital = new GeneradorHospital(51).generarHospital(1, 2, 2, 6);
+        CitaManager manager = cargarHistorial(hospital, directorio.resolve("citas.csv"), 200);
+        manager.setArchivo(new ArchivoCitas(directorio.resolve("frio")));
+        Paciente paciente = manager.getInstantanea().getCitas().get(0).getPaciente();
+        int esperadas = manager.getCitasPorPaciente(paciente).size();
+        manager.archivarHistorial();
+
+        ArchivoCitas reabierto = new ArchivoCitas(directorio.resolve("frio"));
+        reabierto.registrarEntidades(GeneradorHospital.pacientesPorDni(hospital), Map.of(),
+                GeneradorHospital.salasPorNumero(hospital));
+        assertEquals(0, reabierto.getCitasPorPaciente(paciente).size());
+
+        reabierto.registrarEntidades(Map.of(), GeneradorHospital.medicosPorDni(hospital), Map.of());
+        assertEquals(esperadas, reabierto.getCitasPorPaciente(paciente).size());
+    }
+
+    @Test
+    void unArchivadoQueFallaEnUnMesNoDejaNadaEscrito(@TempDir Path directorio) throws Exception {
+        Hospital hospital = new GeneradorHospital(52).generarHospital(1, 4, 4, 10);
+        CitaManager manager = cargarHistorial(hospital, directorio.resolve("citas.csv"), 2_000);
+        Path frio = directorio.resolve("frio");
+        ArchivoCitas archivo = new ArchivoCitas(frio);
+        manager.setArchivo(archivo);
+        List<YearMonth> meses = manager.getInstantanea().getCitas().stream()
+                .map(cita -> YearMonth.from(cita.getFechaHora())).distinct().sorted().toList();
+        assertTrue(meses.size() > 1);
+
+        // Un directorio con contenido donde va el temporal del último mes hace fallar su preparación
+        Path bloqueo = frio.resolve("citas-" + meses.get(meses.size() - 1) + ".csv.gz.tmp");
+        Files.createDirectories(bloqueo.resolve("ocupado"));
+        assertThrows(IOException.class, manager::archivarHistorial);
+        assertEquals(2_000, manager.getInstantanea().getCantidad());
+        for (YearMonth mes : meses) {
+            assertFalse(Files.exists(frio.resolve("citas-" + mes + ".csv.gz")), mes.toString());
+        }
+
+        Files.delete(bloqueo.resolve("ocupado"));
+        Files.delete(bloqueo);
+        assertEquals(2_000, manager.archivarHistorial());
+        Paciente paciente = hospital.getPacientes().get(0);
+        assertEquals(200, manager.getCitasPorPaciente(paciente).size());
+    }
+
+    @Test
+    void unMesArchivadoDosVecesSeLeeSinRepetidas(@TempDir Path directorio) throws Exception {
+        Hospital hospital = new GeneradorHospital(53).generarHospital(1, 2, 2, 5);
+        CitaManager manager = cargarHistorial(hospital, directorio.resolve("citas.csv"), 100);
+        ArchivoCitas archivo = new ArchivoCitas(directorio.resolve("frio"));
+        List<Cita> historial = manager.getInstantanea().getCitas();
+        archivo.archivar(historial);
+        archivo.archivar(historial);
+
+        Paciente paciente = hospital.getPacientes().get(0);
+        assertEquals(20, archivo.getCitasPorPaciente(paciente).size());
+    }
+
+    @Test
+    void unSegmentoCortadoDevuelveLoQueSePudoLeer(@TempDir Path directorio) throws Exception {
+        Hospital hospital = new GeneradorHospital(54).generarHospital(1, 2, 2, 5);
+        CitaManager manager = cargarHistorial(hospital, directorio.resolve("citas.csv"), 100);
+        Path frio = directorio.resolve("frio");
+        ArchivoCitas archivo = new ArchivoCitas(frio);
+        List<Cita> historial = manager.getInstantanea().getCitas();
+        archivo.archivar(historial.subList(0, 50));
+        archivo.archivar(historial.subList(50, 100));
+
+        // Se pierde el final del segundo miembro gzip, como si el proceso se hubiera cortado escribiéndolo
+        Path segmento = frio.resolve("citas-" + YearMonth.from(historial.get(99).getFechaHora()) + ".csv.gz");
+        byte[] bytes = Files.readAllBytes(segmento);
+        Files.write(segmento, Arrays.copyOf(bytes, bytes.length - 40));
+
+        ArchivoCitas reabierto = new ArchivoCitas(frio);
+        reabierto.registrarEntidades(GeneradorHospital.pacientesPorDni(hospital),
+                GeneradorHospital.medicosPorDni(hospital), GeneradorHospital.salasPorNumero(hospital));
+        int leidas = 0;
+        for (Paciente paciente : hospital.getPacientes()) {
+            leidas += reabierto.getCitasPorPaciente(paciente).size();
+        }
+        assertTrue(leidas >= 50 && leidas < 100, String.valueOf(leidas));
+    }
+
+    // Historial cerrado hace tres meses, cargado desde CSV porque programarCita no acepta fechas pasadas
+    private static CitaManager cargarHistorial(Hospital hospital, Path csv, int cantidad) throws Exception {
+        LocalDateTime desde = LocalDate.now().minusDays(90).atTime(8, 0);
+        List<String> lineas = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            Departamento departamento = hospital.getDepartamentos().get(i % hospital.getDepartamentos().size());
+            Cita cita = Cita.builder()
+                    .paciente(hospital.getPacientes().get(i % hospital.getPacientes().size()))
+                    .medico(departamento.getMedicos().get(i % departamento.getMedicos().size()))
+                    .sala(departamento.getSalas().get(i % departamento.getSalas().size()))
+                    .fechaHora(desde.plusMinutes(30L * i))
+                    .costo(BigDecimal.TEN)
+                    .build();
+            cita.setEstado(i % 2 == 0 ? EstadoCita.COMPLETADA : EstadoCita.NO_ASISTIO);
+            lineas.add(cita.toCsvString());
+        }
+        Files.write(csv, lineas);
+        CitaManager manager = new CitaManager();
+        manager.cargarCitas(csv.toString(), GeneradorHospital.pacientesPorDni(hospital),
+                GeneradorHospital.medicosPorDni(hospital), GeneradorHospital.salasPorNumero(hospital));
+        return manager;
+    }
+}
@@ -0,0 +1,58 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+import org.jcr.excepciones.CitaException;
+import org.jcr.simulacion.GeneradorHospital;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CitaManagerParticionadoTest {
+
+    @Test
+    void unMedicoNoReservaSalasDeOtroHospital(@TempDir Path directorio) throws Exception {
+        GeneradorHospital generador = new GeneradorHospital(31);
+        Hospital norte = generador.generarHospital(1, 1, 1, 2);
+        Hospital sur = generador.generarHospital(1, 1, 1, 2);
+        Paciente paciente = norte.getPacientes().get(0);
+        Medico medico = norte.getDepartamentos().get(0).getMedicos().get(0);
+        Sala salaNorte = norte.getDepartamentos().get(0).getSalas().get(0);
+        Sala salaSur = sur.getDepartamentos().get(0).getSalas().get(0);
+        LocalDateTime fecha = LocalDate.now().plusDays(1).atTime(9, 0);
+
+        try (CitaManagerParticionado servicio = new CitaManagerParticionado()) {
+            servicio.registrarHospital(norte);
+            servicio.registrarHospital(sur);
+            Cita cita = servicio.programarCita(paciente, medico, salaNorte, fecha, BigDecimal.TEN);
+            assertThrows(CitaException.class,
+                    () -> servicio.programarCita(paciente, medico, salaSur, fecha, BigDecimal.TEN));
+            assertEquals(List.of(cita), servicio.getCitasPorMedico(medico));
+
+            // Una fila así tampoco entra por la carga, y la carga anterior queda intacta
+            Cita cruzada = Cita.builder().paciente(paciente).medico(medico).sala(salaSur)
+                    .fechaHora(fecha).costo(BigDecimal.TEN).build();
+            Path archivo = Files.write(directorio.resolve("citas.csv"), List.of(cruzada.toCsvString()));
+            Map<String, Paciente> pacientes = new HashMap<>(GeneradorHospital.pacientesPorDni(norte));
+            Map<String, Medico> medicos = new HashMap<>(GeneradorHospital.medicosPorDni(norte));
+            Map<String, Sala> salas = new HashMap<>(GeneradorHospital.salasPorNumero(norte));
+            salas.putAll(GeneradorHospital.salasPorNumero(sur));
+            assertThrows(CitaException.class, () -> servicio.cargarCitas(archivo.toString(), pacientes, medicos, salas));
+            assertEquals(List.of(cita), servicio.getCitasPorMedico(medico));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Departamento;
+import org.jcr.entidades.Hospital;
+import org.jcr.simulacion.GeneradorHospital;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CitaManagerSecuenciadoTest {
+
+    @Test
+    void cerrarConProductoresActivosCompletaTodosLosFuturos() throws Exception {
+        Hospital hospital = new GeneradorHospital(11).generarHospital(1, 4, 4, 10);
+        Departamento departamento = hospital.getDepartamentos().get(0);
+        LocalDateTime desde = LocalDate.now().plusDays(1).atTime(8, 0);
+        ConcurrentLinkedQueue<CompletableFuture<Cita>> futuros = new ConcurrentLinkedQueue<>();
+        CountDownLatch arrancaron = new CountDownLatch(4);
+
+        CitaManagerSecuenciado servicio = new CitaManagerSecuenciado(CitaManager.ModoOcupacion.ORDENADA, 8, null);
+        servicio.registrarHospital(hospital);
+        Thread[] productores = new Thread[4];
+        for (int p = 0; p < productores.length; p++) {
+            int par = p;
+            productores[p] = new Thread(() -> {
+                arrancaron.countDown();
+                for (int i = 0; i < 5_000; i++) {
+                    futuros.add(servicio.programarCitaAsync(hospital.getPacientes().get(0),
+                            departamento.getMedicos().get(par), departamento.getSalas().get(par),
+                            desde.plusHours(2L * i), BigDecimal.TEN));
+                }
+            });
+            productores[p].start();
+        }
+        arrancaron.await();
+        servicio.close();
+        for (Thread productor : productores) {
+            productor.join();
+        }
+
+        int aplicadas = 0;
+        for (CompletableFuture<Cita> futuro : futuros) {
+            try {
+                futuro.get(5, TimeUnit.SECONDS);
+                aplicadas++;
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException, e.getCause().toString());
+            }
+        }
+        assertEquals(aplicadas, servicio.getInstantanea().getCantidad());
+    }
+
+    @Test
+    void cancelarPasaPorElEscritorYLiberaElHorario() throws Exception {
+        Hospital hospital = new GeneradorHospital(12).generarHospital(1, 1, 1, 2);
+        Departamento departamento = hospital.getDepartamentos().get(0);
+        LocalDateTime fecha = LocalDate.now().plusDays(1).atTime(9, 0);
+        CitaManagerSecuenciado servicio = new CitaManagerSecuenciado(CitaManager.ModoOcupacion.ORDENADA, 8, null);
+        try (servicio) {
+            servicio.registrarHospital(hospital);
+            Cita cita = servicio.programarCita(hospital.getPacientes().get(0), departamento.getMedicos().get(0),
+                    departamento.getSalas().get(0), fecha, BigDecimal.TEN);
+            servicio.cancelarCita(cita, cita.getVersion());
+            assertFalse(servicio.getInstantanea().contiene(cita));
+
+            Cita otra = servicio.programarCita(hospital.getPacientes().get(1), departamento.getMedicos().get(0),
+                    departamento.getSalas().get(0), fecha, BigDecimal.TEN);
+            assertEquals(List.of(otra), servicio.getCitasPorSala(departamento.getSalas().get(0)));
+        }
+
+        CompletableFuture<Cita> trasCierre = servicio.programarCitaAsync(hospital.getPacientes().get(0),
+                departamento.getMedicos().get(0), departamento.getSalas().get(0), fecha.plusDays(1), BigDecimal.TEN);
+        ExecutionException error = assertThrows(ExecutionException.class, () -> trasCierre.get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void unFalloDelDiarioNoHaceFallarUnaReservaYaTomada(@TempDir Path directorio) throws Exception {
+        Hospital hospital = new GeneradorHospital(13).generarHospital(1, 1, 1, 2);
+        Departamento departamento = hospital.getDepartamentos().get(0);
+        LocalDateTime fecha = LocalDate.now().plusDays(1).atTime(9, 0);
+        // Un diario ya cerrado falla en cada registro
+        DiarioCitas diario = new DiarioCitas(directorio.resolve("diario.csv"), false);
+        diario.close();
+        try (CitaManagerSecuenciado servicio = new CitaManagerSecuenciado(CitaManager.ModoOcupacion.ORDENADA, 8, diario)) {
+            servicio.registrarHospital(hospital);
+            Cita cita = servicio.programarCita(hospital.getPacientes().get(0), departamento.getMedicos().get(0),
+                    departamento.getSalas().get(0), fecha, BigDecimal.TEN);
+
+            assertTrue(servicio.getInstantanea().contiene(cita));
+            assertEquals(1, servicio.getReservasSinDiario());
+            assertNotNull(servicio.getUltimoFalloDiario());
+        }
+    }
+}
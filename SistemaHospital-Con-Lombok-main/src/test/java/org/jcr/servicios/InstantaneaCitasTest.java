@@ -0,0 +1,126 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Departamento;
+import org.jcr.entidades.Hospital;
+import org.jcr.entidades.Medico;
+import org.jcr.entidades.Paciente;
+import org.jcr.entidades.Sala;
+import org.jcr.enums.EstadoCita;
+import org.jcr.simulacion.GeneradorHospital;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstantaneaCitasTest {
+
+    @Test
+    void altasYBajasAleatoriasCoincidenConListasPorClave() {
+        Hospital hospital = new GeneradorHospital(49).generarHospital(2, 3, 3, 15);
+        List<Paciente> pacientes = hospital.getPacientes();
+        List<Departamento> departamentos = hospital.getDepartamentos();
+        LocalDateTime desde = LocalDate.now().plusDays(1).atTime(8, 0);
+        Random random = new Random(49);
+        List<Cita> vigentes = new ArrayList<>();
+        InstantaneaCitas foto = InstantaneaCitas.VACIA;
+
+        for (int i = 0; i < 20_000; i++) {
+            if (!vigentes.isEmpty() && random.nextInt(3) == 0) {
+                Cita cita = vigentes.remove(random.nextInt(vigentes.size()));
+                InstantaneaCitas anterior = foto;
+                foto = foto.sinCita(cita);
+                assertFalse(foto.contiene(cita));
+                assertTrue(anterior.contiene(cita));
+                assertTrue(anterior.getCitasPorSala(cita.getSala()).contains(cita));
+            } else {
+                Departamento departamento = departamentos.get(random.nextInt(departamentos.size()));
+                Cita cita = Cita.builder()
+                        .paciente(pacientes.get(random.nextInt(pacientes.size())))
+                        .medico(departamento.getMedicos().get(random.nextInt(departamento.getMedicos().size())))
+                        .sala(departamento.getSalas().get(random.nextInt(departamento.getSalas().size())))
+                        .fechaHora(desde.plusHours(i))
+                        .costo(BigDecimal.TEN)
+                        .build();
+                vigentes.add(cita);
+                foto = foto.conCita(cita);
+            }
+            if (i % 997 == 0 || i == 19_999) {
+                verificar(foto, vigentes, hospital);
+            }
+            if (foto.requiereCompactacion()) {
+                foto = foto.compactada();
+            }
+        }
+    }
+
+    @Test
+    void cargarIgnoraLasFilasCanceladasYNoOcupaSuHorario(@TempDir Path directorio) throws Exception {
+        Hospital hospital = new GeneradorHospital(50).generarHospital(1, 1, 1, 2);
+        Departamento departamento = hospital.getDepartamentos().get(0);
+        Medico medico = departamento.getMedicos().get(0);
+        Sala sala = departamento.getSalas().get(0);
+        LocalDateTime fecha = LocalDate.now().plusDays(1).atTime(9, 0);
+        Cita cancelada = Cita.builder().paciente(hospital.getPacientes().get(0)).medico(medico).sala(sala)
+                .fechaHora(fecha).costo(BigDecimal.TEN).build();
+        cancelada.setEstado(EstadoCita.CANCELADA);
+        Cita vigente = Cita.builder().paciente(hospital.getPacientes().get(1)).medico(medico).sala(sala)
+                .fechaHora(fecha.plusDays(1)).costo(BigDecimal.TEN).build();
+        Path archivo = escribir(directorio.resolve("citas.csv"), cancelada, vigente);
+
+        CitaManager manager = new CitaManager();
+        manager.cargarCitas(archivo.toString(), GeneradorHospital.pacientesPorDni(hospital),
+                GeneradorHospital.medicosPorDni(hospital), GeneradorHospital.salasPorNumero(hospital));
+
+        assertEquals(1, manager.getInstantanea().getCantidad());
+        Cita nueva = manager.programarCita(hospital.getPacientes().get(1), medico, sala, fecha, BigDecimal.TEN);
+        assertEquals(EstadoCita.PROGRAMADA, nueva.getEstado());
+    }
+
+    private static void verificar(InstantaneaCitas foto, List<Cita> vigentes, Hospital hospital) {
+        assertEquals(vigentes.size(), foto.getCantidad());
+        assertEquals(vigentes, foto.getCitas());
+        for (Paciente paciente : hospital.getPacientes()) {
+            assertEquals(filtrar(vigentes, c -> c.getPaciente() == paciente), foto.getCitasPorPaciente(paciente));
+        }
+        for (Departamento departamento : hospital.getDepartamentos()) {
+            for (Medico medico : departamento.getMedicos()) {
+                assertEquals(filtrar(vigentes, c -> c.getMedico() == medico), foto.getCitasPorMedico(medico));
+            }
+            for (Sala sala : departamento.getSalas()) {
+                assertEquals(filtrar(vigentes, c -> c.getSala() == sala), foto.getCitasPorSala(sala));
+            }
+        }
+    }
+
+    private static List<Cita> filtrar(List<Cita> citas, Predicate<Cita> condicion) {
+        List<Cita> resultado = new ArrayList<>();
+        for (Cita cita : citas) {
+            if (condicion.test(cita)) {
+                resultado.add(cita);
+            }
+        }
+        return resultado;
+    }
+
+    private static Path escribir(Path archivo, Cita... citas) throws IOException {
+        List<String> lineas = new ArrayList<>();
+        for (Cita cita : citas) {
+            lineas.add(cita.toCsvString());
+        }
+        return Files.write(archivo, lineas);
+    }
+}
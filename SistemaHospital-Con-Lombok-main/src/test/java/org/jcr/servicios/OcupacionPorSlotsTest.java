@@ -0,0 +1,176 @@
+package org.jcr.servicios;
+
+import org.jcr.entidades.Cita;
+import org.jcr.entidades.Departamento;
+import org.jcr.entidades.Hospital;
+import org.jcr.simulacion.GeneradorHospital;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Los slots se comparan contra OcupacionOrdenada, que es la referencia para horarios alineados a 15 minutos
+class OcupacionPorSlotsTest {
+    private static final Duration BLOQUEO = CitaManager.BLOQUEO_POR_CITA;
+    private static final LocalDateTime INICIO = LocalDate.of(2030, 1, 7).atStartOfDay();
+
+    private Departamento departamento;
+
+    @BeforeEach
+    void preparar() {
+        Hospital hospital = new GeneradorHospital(7).generarHospital(1, 1, 1, 1);
+        departamento = hospital.getDepartamentos().get(0);
+    }
+
+    private Cita cita(LocalDateTime fechaHora) {
+        return Cita.builder()
+                .paciente(departamento.getHospital().getPacientes().get(0))
+                .medico(departamento.getMedicos().get(0))
+                .sala(departamento.getSalas().get(0))
+                .fechaHora(fechaHora)
+                .costo(BigDecimal.TEN)
+                .build();
+    }
+
+    private static LocalDateTime slotAleatorio(Random random, int dias) {
+        return INICIO.plusMinutes(15L * random.nextInt(dias * OcupacionPorSlots.SLOTS_POR_DIA));
+    }
+
+    @Test
+    void reservasAleatoriasCoincidenConOcupacionOrdenada() {
+        Random random = new Random(30);
+        OcupacionPorSlots<Integer> slots = new OcupacionPorSlots<>(BLOQUEO);
+        OcupacionOrdenada<Integer> ordenada = new OcupacionOrdenada<>(BLOQUEO);
+        List<List<Cita>> ocupadas = new ArrayList<>();
+        for (int r = 0; r < 10; r++) {
+            ocupadas.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < 3000; i++) {
+            int recurso = random.nextInt(10);
+            LocalDateTime fechaHora = slotAleatorio(random, 14);
+            Duration duracion = Duration.ofMinutes(15L * (1 + random.nextInt(16)));
+            boolean libre = ordenada.estaLibre(recurso, fechaHora, duracion);
+            assertEquals(libre, slots.estaLibre(recurso, fechaHora, duracion), "estaLibre en " + fechaHora);
+
+            if (libre && ordenada.estaLibre(recurso, fechaHora, BLOQUEO)) {
+                Cita cita = cita(fechaHora);
+                slots.ocupar(recurso, cita);
+                ordenada.ocupar(recurso, cita);
+                ocupadas.get(recurso).add(cita);
+            }
+            if (random.nextInt(5) == 0 && !ocupadas.get(recurso).isEmpty()) {
+                Cita cita = ocupadas.get(recurso).remove(random.nextInt(ocupadas.get(recurso).size()));
+                slots.liberar(recurso, cita);
+                ordenada.liberar(recurso, cita);
+            }
+
+            LocalDateTime desde = slotAleatorio(random, 14);
+            LocalDateTime hasta = desde.plusHours(1 + random.nextInt(48));
+            assertEquals(ordenada.primerInicioLibre(recurso, desde, hasta, duracion),
+                    slots.primerInicioLibre(recurso, desde, hasta, duracion), "primerInicioLibre desde " + desde);
+        }
+    }
+
+    @Test
+    void huecoComunEsElPrimeroLibreEnAmbosRecursos() {
+        Random random = new Random(31);
+        OcupacionPorSlots<String> medicos = new OcupacionPorSlots<>(BLOQUEO);
+        OcupacionPorSlots<String> salas = new OcupacionPorSlots<>(BLOQUEO);
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime fechaHora = slotAleatorio(random, 3);
+            if (medicos.estaLibre("m", fechaHora, BLOQUEO)) {
+                medicos.ocupar("m", cita(fechaHora));
+            }
+            fechaHora = slotAleatorio(random, 3);
+            if (salas.estaLibre("s", fechaHora, BLOQUEO)) {
+                salas.ocupar("s", cita(fechaHora));
+            }
+        }
+
+        for (int i = 0; i < 500; i++) {
+            LocalDateTime desde = slotAleatorio(random, 3);
+            LocalDateTime hasta = desde.plusHours(1 + random.nextInt(72));
+            Duration duracion = Duration.ofMinutes(15L * (1 + random.nextInt(12)));
+            // Referencia: alternar entre ambos recursos como hace CitaManager con OcupacionOrdenada
+            LocalDateTime esperado = null;
+            LocalDateTime inicio = desde;
+            while (true) {
+                LocalDateTime libreMedico = medicos.primerInicioLibre("m", inicio, hasta, duracion);
+                LocalDateTime libreSala = libreMedico != null ? salas.primerInicioLibre("s", libreMedico, hasta, duracion) : null;
+                if (libreSala == null || libreSala.equals(libreMedico)) {
+                    esperado = libreSala;
+                    break;
+                }
+                inicio = libreSala;
+            }
+            assertEquals(esperado, OcupacionPorSlots.primerInicioLibreComun(medicos, "m", salas, "s", desde, hasta, duracion));
+        }
+    }
+
+    @Test
+    void citaQueCruzaMedianocheOcupaElDiaSiguiente() {
+        OcupacionPorSlots<Integer> slots = new OcupacionPorSlots<>(BLOQUEO);
+        Cita cita = cita(INICIO.withHour(23));
+        slots.ocupar(1, cita);
+
+        assertFalse(slots.estaLibre(1, INICIO.plusDays(1), Duration.ofMinutes(15)));
+        assertTrue(slots.estaLibre(1, INICIO.plusDays(1).withHour(1), Duration.ofMinutes(15)));
+        slots.liberar(1, cita);
+        assertTrue(slots.estaLibre(1, INICIO.plusDays(1), Duration.ofMinutes(15)));
+    }
+
+    @Test
+    void horarioNoAlineadoOcupaLosSlotsQueToca() {
+        OcupacionPorSlots<Integer> slots = new OcupacionPorSlots<>(BLOQUEO);
+        slots.ocupar(1, cita(INICIO.withHour(10).withMinute(10)));
+
+        assertFalse(slots.estaLibre(1, INICIO.withHour(12), Duration.ofMinutes(15)));
+        assertTrue(slots.estaLibre(1, INICIO.withHour(12).withMinute(15), Duration.ofMinutes(15)));
+    }
+
+    @Test
+    void sinHuecoAntesDelLimiteDevuelveNull() {
+        OcupacionPorSlots<Integer> slots = new OcupacionPorSlots<>(BLOQUEO);
+        slots.ocupar(1, cita(INICIO.withHour(8)));
+
+        assertNull(slots.primerInicioLibre(1, INICIO.withHour(8), INICIO.withHour(10).withMinute(30), BLOQUEO));
+        assertEquals(INICIO.withHour(10), slots.primerInicioLibre(1, INICIO.withHour(8), INICIO.withHour(12), BLOQUEO));
+    }
+
+    // Una carga desde CSV puede traer citas superpuestas: liberar una no libera los slots de la otra
+    @Test
+    void citasSuperpuestasLiberanSoloLoPropio() {
+        OcupacionPorSlots<Integer> slots = new OcupacionPorSlots<>(BLOQUEO);
+        OcupacionOrdenada<Integer> ordenada = new OcupacionOrdenada<>(BLOQUEO);
+        Cita primera = cita(INICIO.withHour(9));
+        Cita segunda = cita(INICIO.withHour(10));
+        for (Cita cita : List.of(primera, segunda)) {
+            slots.ocupar(1, cita);
+            ordenada.ocupar(1, cita);
+        }
+
+        slots.liberar(1, primera);
+        ordenada.liberar(1, primera);
+        for (int minutos = 8 * 60; minutos < 13 * 60; minutos += 15) {
+            LocalDateTime fechaHora = INICIO.plusMinutes(minutos);
+            Duration slot = Duration.ofMinutes(15);
+            assertEquals(ordenada.estaLibre(1, fechaHora, slot), slots.estaLibre(1, fechaHora, slot), fechaHora.toString());
+        }
+        assertFalse(slots.estaLibre(1, INICIO.withHour(11), Duration.ofMinutes(15)));
+
+        slots.liberar(1, segunda);
+        assertTrue(slots.estaLibre(1, INICIO.withHour(9), Duration.ofHours(4)));
+    }
+}